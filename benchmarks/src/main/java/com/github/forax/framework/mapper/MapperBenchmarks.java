@@ -0,0 +1,30 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the write and read benchmarks with the GC profiler, so the allocation rate
+ * (gc.alloc.rate.norm, the bytes allocated per operation) is reported next to the time per operation.
+ * The results are saved as JSON, to be compared with the results of a previous run.
+ *
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar com.github.forax.framework.mapper.MapperBenchmarks [result.json]
+ * </pre>
+ */
+public class MapperBenchmarks {
+  public static void main(String[] args) throws RunnerException {
+    var result = args.length == 0 ? "mapper-benchmarks.json" : args[0];
+    var options = new OptionsBuilder()
+        .include(WriteBenchmark.class.getSimpleName())
+        .include(ReadBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result(result)
+        .build();
+    new Runner(options).run();
+  }
+}
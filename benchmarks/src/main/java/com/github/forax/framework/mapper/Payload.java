@@ -0,0 +1,148 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * The payloads shared by {@link WriteBenchmark} and {@link ReadBenchmark},
+ * each payload is an object or a record at the root, so it can be read back with its class.
+ */
+public enum Payload {
+  BEAN(PersonBean.class) {
+    @Override
+    Object create(Random random) {
+      var person = new PersonBean();
+      person.setName("Ada Lovelace");
+      person.setEmail("ada@analytical.engine");
+      person.setAge(36);
+      person.setScore(97.5);
+      person.setActive(true);
+      return person;
+    }
+  },
+  RECORD(Measure.class) {
+    @Override
+    Object create(Random random) {
+      return new Measure("temperature", 1_024, -12.5, 37.2, true);
+    }
+  },
+  DEEP_NESTING(Tree.class) {
+    @Override
+    Object create(Random random) {
+      var tree = new Tree("leaf", List.of());
+      for (var depth = 0; depth < 128; depth++) {
+        tree = new Tree("node" + depth, List.of(tree, new Tree("sibling" + depth, List.of())));
+      }
+      return tree;
+    }
+  },
+  LONG_ARRAY(Series.class) {
+    @Override
+    Object create(Random random) {
+      return new Series("counters", IntStream.range(0, 10_000).map(i -> random.nextInt(1_000_000)).boxed().toList());
+    }
+  },
+  ESCAPES(Document.class) {
+    @Override
+    Object create(Random random) {
+      var paragraphs = new ArrayList<String>();
+      for (var i = 0; i < 64; i++) {
+        var builder = new StringBuilder();
+        for (var j = 0; j < 256; j++) {
+          builder.append(random.nextInt(4) == 0 ? "\"\\\n\té€".charAt(random.nextInt(6)) : (char) ('a' + random.nextInt(26)));
+        }
+        paragraphs.add(builder.toString());
+      }
+      return new Document("escapes", paragraphs);
+    }
+  },
+  NUMBERS(Samples.class) {
+    @Override
+    Object create(Random random) {
+      return new Samples(IntStream.range(0, 1_000)
+          .mapToObj(i -> new Sample(1_700_000_000_000L + i, random.nextDouble(), random.nextGaussian() * 1e6, i / 3.0))
+          .toList());
+    }
+  };
+
+  public static class PersonBean {
+    private String name;
+    private String email;
+    private int age;
+    private double score;
+    private boolean active;
+
+    public String getName() {
+      return name;
+    }
+    public void setName(String name) {
+      this.name = name;
+    }
+    public String getEmail() {
+      return email;
+    }
+    public void setEmail(String email) {
+      this.email = email;
+    }
+    public int getAge() {
+      return age;
+    }
+    public void setAge(int age) {
+      this.age = age;
+    }
+    public double getScore() {
+      return score;
+    }
+    public void setScore(double score) {
+      this.score = score;
+    }
+    public boolean isActive() {
+      return active;
+    }
+    public void setActive(boolean active) {
+      this.active = active;
+    }
+  }
+
+  public record Measure(String sensor, int count, double min, double max, boolean valid) { }
+  public record Tree(String name, List<Tree> children) { }
+  public record Series(String name, List<Integer> values) { }
+  public record Document(String title, List<String> paragraphs) { }
+  public record Sample(long time, double x, double y, double z) { }
+  public record Samples(List<Sample> samples) { }
+
+  private final Class<?> type;
+
+  Payload(Class<?> type) {
+    this.type = type;
+  }
+
+  /**
+   * Returns the class of the payload.
+   */
+  Class<?> type() {
+    return type;
+  }
+
+  /**
+   * Creates the payload, the random is seeded so the payload is the same for each run.
+   */
+  abstract Object create(Random random);
+
+  /**
+   * Creates a reader that knows how to read the lists and the records of the payloads.
+   */
+  static JSONReader reader() {
+    var reader = new JSONReader();
+    reader.addTypeMatcher(type -> Optional.of(type)
+        .flatMap(t -> t instanceof ParameterizedType parameterizedType ? Optional.of(parameterizedType) : Optional.empty())
+        .filter(t -> t.getRawType() == List.class)
+        .map(t -> JSONReader.Collector.list(t.getActualTypeArguments()[0])));
+    reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.Collector::record));
+    return reader;
+  }
+}
@@ -0,0 +1,73 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodType.methodType;
+
+// java -jar benchmarks/target/benchmarks.jar PropertyAccessBenchmark
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PropertyAccessBenchmark {
+  public record Measure(String sensor, int count, double min, double max, boolean valid) { }
+
+  private final Measure measure = new Measure("temperature", 1_024, -12.5, 37.2, true);
+  private final JSONWriter writer = new JSONWriter();
+  private final JSONWriter codeGenerationWriter = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+
+  private final Method[] getters = Arrays.stream(Measure.class.getRecordComponents())
+      .map(RecordComponent::getAccessor)
+      .toArray(Method[]::new);
+  private final MethodHandle[] accessors = Arrays.stream(getters)
+      .map(getter -> {
+        try {
+          return MethodHandles.lookup().unreflect(getter).asType(methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+          throw new AssertionError(e);
+        }
+      })
+      .toArray(MethodHandle[]::new);
+
+  @Benchmark
+  public void reflectiveGetters(Blackhole blackhole) throws ReflectiveOperationException {
+    for (var getter : getters) {
+      blackhole.consume(getter.invoke(measure));
+    }
+  }
+
+  @Benchmark
+  public void methodHandleGetters(Blackhole blackhole) throws Throwable {
+    for (var accessor : accessors) {
+      blackhole.consume((Object) accessor.invokeExact((Object) measure));
+    }
+  }
+
+  @Benchmark
+  public String toJSON() {
+    return writer.toJSON(measure);
+  }
+
+  @Benchmark
+  public String toJSONCodeGeneration() {
+    return codeGenerationWriter.toJSON(measure);
+  }
+}
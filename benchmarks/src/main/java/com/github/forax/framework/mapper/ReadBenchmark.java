@@ -0,0 +1,52 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// java -jar benchmarks/target/benchmarks.jar ReadBenchmark -prof gc
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ReadBenchmark {
+  @Param
+  private Payload payload;
+
+  private Class<?> type;
+  private String text;
+  private byte[] data;
+  private final JSONReader reader = Payload.reader();
+
+  @Setup
+  public void setup() {
+    var value = payload.create(new Random(0));
+    var writer = new JSONWriter();
+    type = payload.type();
+    text = writer.toJSON(value);
+    data = writer.toBinary(value);
+  }
+
+  @Benchmark
+  public Object parseJSON() {
+    return reader.parseJSON(text, type);
+  }
+
+  @Benchmark
+  public Object parseBinary() {
+    return reader.parseBinary(data, type);
+  }
+}
@@ -0,0 +1,94 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// java -jar benchmarks/target/benchmarks.jar StringEscapeBenchmark
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StringEscapeBenchmark {
+  @Param({"ascii", "escapes"})
+  private String payload;
+
+  private String text;
+
+  @Setup
+  public void setup() {
+    var random = new Random(0);
+    var builder = new StringBuilder();
+    for (var i = 0; i < 4_096; i++) {
+      var escape = switch (payload) {
+        case "ascii" -> random.nextInt(200) == 0;
+        case "escapes" -> random.nextInt(4) == 0;
+        default -> throw new AssertionError();
+      };
+      builder.append(escape ? "\"\\\n\t".charAt(random.nextInt(4)) : (char) ('a' + random.nextInt(26)));
+    }
+    text = builder.toString();
+  }
+
+  // the obvious implementation, character by character
+  private static void naiveAppendString(JSONOutput output, String text) {
+    output.append('"');
+    for (var i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+      switch (c) {
+        case '"' -> output.append('\\').append('"');
+        case '\\' -> output.append('\\').append('\\');
+        case '\n' -> output.append('\\').append('n');
+        case '\r' -> output.append('\\').append('r');
+        case '\t' -> output.append('\\').append('t');
+        case '\b' -> output.append('\\').append('b');
+        case '\f' -> output.append('\\').append('f');
+        default -> {
+          if (c < 0x20) {
+            output.append("\\u%04x".formatted((int) c));
+          } else if (c < 0x80) {
+            output.append(c);
+          } else {
+            output.append(String.valueOf(c));
+          }
+        }
+      }
+    }
+    output.append('"');
+  }
+
+  @Benchmark
+  public byte[] naive() {
+    var output = new JSONOutput();
+    try {
+      naiveAppendString(output, text);
+      return output.toByteArray();
+    } finally {
+      output.release();
+    }
+  }
+
+  @Benchmark
+  public byte[] swar() {
+    var output = new JSONOutput();
+    try {
+      output.appendString(text);
+      return output.toByteArray();
+    } finally {
+      output.release();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.github.forax.framework.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// java -jar benchmarks/target/benchmarks.jar WriteBenchmark -prof gc
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+  @Param
+  private Payload payload;
+
+  private Object value;
+  private final JSONWriter writer = new JSONWriter();
+  private final JSONWriter codeGenerationWriter = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+
+  @Setup
+  public void setup() {
+    value = payload.create(new Random(0));
+  }
+
+  @Benchmark
+  public String toJSON() {
+    return writer.toJSON(value);
+  }
+
+  @Benchmark
+  public String toJSONCodeGeneration() {
+    return codeGenerationWriter.toJSON(value);
+  }
+
+  @Benchmark
+  public byte[] toBinary() {
+    return writer.toBinary(value);
+  }
+}
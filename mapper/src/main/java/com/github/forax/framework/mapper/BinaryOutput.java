@@ -0,0 +1,369 @@
+package com.github.forax.framework.mapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * The sink of the binary encoding of a {@link JSONWriter}, the same values as a JSON text
+ * but encoded as a sequence of tagged values.
+ *
+ * Each value starts with a tag byte,
+ * <ul>
+ *   <li>a small integer between -32 and 31 is encoded in the tag itself,
+ *       a larger integer is followed by its zigzag encoding as a varint (LEB128),
+ *   <li>a float or a double is followed by its bits in little endian,
+ *   <li>a string is followed by its length in bytes as a varint then its UTF-8 bytes,
+ *       the length of a string shorter than 64 bytes is encoded in the tag itself,
+ *   <li>a number that does not fit in a long or a double is followed by its decimal text, like a string,
+ *   <li>an object or an array is followed by its members or its elements and ends with an end tag.
+ * </ul>
+ * In an object, each value is preceded by its key, the first time a key appears it is encoded
+ * like a string and added to a key table, the following times, only its index in the key table
+ * is encoded, in the tag itself if the index is less than 64. So the keys of the objects of a list
+ * are written once.
+ * The buffer is leased from the {@link BufferPool} and returned by {@link #release()}.
+ *
+ * @see BinaryParser
+ */
+final class BinaryOutput {
+  static final int NULL = 0x00, FALSE = 0x01, TRUE = 0x02,
+      INT = 0x03, FLOAT = 0x04, DOUBLE = 0x05, NUMBER = 0x06, STRING = 0x07,
+      START_OBJECT = 0x08, END_OBJECT = 0x09, START_ARRAY = 0x0A, END_ARRAY = 0x0B,
+      KEY = 0x0C, KEY_REFERENCE = 0x0D;
+
+  // the tags that encode a value in their 6 lower bits
+  static final int SMALL_KEY_REFERENCE = 0x40, SMALL_INT = 0x80, SHORT_STRING = 0xC0;
+  static final int SMALL_MASK = 0x3F;
+
+  /**
+   * The maximum number of keys of the key table, the keys that appear after are always written in full.
+   */
+  static final int MAX_KEYS = 1_024;
+
+  private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final OutputStream outputStream;  // or null
+  private byte[] buffer;
+  private int size;
+  private final HashMap<String, Integer> keys = new HashMap<>();
+
+  /**
+   * Creates an output that keeps the bytes in memory.
+   * @see #toByteArray()
+   */
+  BinaryOutput() {
+    this.outputStream = null;
+    this.buffer = BufferPool.leaseBytes();
+  }
+
+  /**
+   * Creates an output that writes the bytes into an output stream.
+   * @see #flush()
+   */
+  BinaryOutput(OutputStream outputStream) {
+    this.outputStream = Objects.requireNonNull(outputStream);
+    this.buffer = BufferPool.leaseBytes();
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length <= buffer.length) {
+      return;
+    }
+    if (outputStream != null) {
+      flush();
+      if (length <= buffer.length) {
+        return;
+      }
+    }
+    var oldBuffer = buffer;
+    buffer = Arrays.copyOf(oldBuffer, Math.max(oldBuffer.length << 1, size + length));
+    BufferPool.release(oldBuffer);
+  }
+
+  /**
+   * Sends the content of the buffer to the underlying output stream.
+   */
+  public void flush() {
+    if (outputStream == null || size == 0) {
+      return;
+    }
+    try {
+      outputStream.write(buffer, 0, size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    size = 0;
+  }
+
+  private void tag(int tag) {
+    ensureCapacity(1);
+    buffer[size++] = (byte) tag;
+  }
+
+  private void varint(long value) {
+    ensureCapacity(10);
+    var buffer = this.buffer;
+    while ((value & ~0x7FL) != 0) {
+      buffer[size++] = (byte) (value | 0x80);
+      value >>>= 7;
+    }
+    buffer[size++] = (byte) value;
+  }
+
+  public BinaryOutput appendNull() {
+    tag(NULL);
+    return this;
+  }
+
+  public BinaryOutput appendBoolean(boolean value) {
+    tag(value? TRUE: FALSE);
+    return this;
+  }
+
+  public BinaryOutput appendInt(int value) {
+    return appendLong(value);
+  }
+
+  public BinaryOutput appendLong(long value) {
+    var zigzag = (value << 1) ^ (value >> 63);
+    if (zigzag <= SMALL_MASK && zigzag >= 0) {
+      tag(SMALL_INT | (int) zigzag);
+      return this;
+    }
+    tag(INT);
+    varint(zigzag);
+    return this;
+  }
+
+  public BinaryOutput appendFloat(float value) {
+    ensureCapacity(5);
+    buffer[size] = FLOAT;
+    INTS.set(buffer, size + 1, Float.floatToRawIntBits(value));
+    size += 5;
+    return this;
+  }
+
+  public BinaryOutput appendDouble(double value) {
+    ensureCapacity(9);
+    buffer[size] = DOUBLE;
+    LONGS.set(buffer, size + 1, Double.doubleToRawLongBits(value));
+    size += 9;
+    return this;
+  }
+
+  /**
+   * Appends a number as its decimal text, used for the numbers that do not fit in a long or a double.
+   * @param text the decimal text of the number, a valid JSON number.
+   * @return this output.
+   */
+  public BinaryOutput appendNumber(String text) {
+    tag(NUMBER);
+    appendText(text);
+    return this;
+  }
+
+  public BinaryOutput appendString(String text) {
+    var length = utf8Length(text);
+    if (length <= SMALL_MASK) {
+      tag(SHORT_STRING | length);
+    } else {
+      tag(STRING);
+      varint(length);
+    }
+    encode(text, length);
+    return this;
+  }
+
+  /**
+   * Appends a key, the first time as a string, then as a reference to the key table.
+   * @param key the key.
+   * @return this output.
+   */
+  public BinaryOutput appendKey(String key) {
+    var index = keys.get(key);
+    if (index != null) {
+      if (index <= SMALL_MASK) {
+        tag(SMALL_KEY_REFERENCE | index);
+      } else {
+        tag(KEY_REFERENCE);
+        varint(index);
+      }
+      return this;
+    }
+    if (keys.size() < MAX_KEYS) {
+      keys.put(key, keys.size());
+    }
+    tag(KEY);
+    appendText(key);
+    return this;
+  }
+
+  public BinaryOutput startObject() {
+    tag(START_OBJECT);
+    return this;
+  }
+
+  public BinaryOutput endObject() {
+    tag(END_OBJECT);
+    return this;
+  }
+
+  public BinaryOutput startArray() {
+    tag(START_ARRAY);
+    return this;
+  }
+
+  public BinaryOutput endArray() {
+    tag(END_ARRAY);
+    return this;
+  }
+
+  /**
+   * Appends a JSON value, by example a fragment returned by a function registered
+   * with {@link JSONWriter#configure(Class, java.util.function.Function)}, as its binary encoding.
+   * The value can be an object, an array or a scalar value like a string or a number.
+   * @param text a JSON value.
+   * @return this output.
+   * @throws IllegalStateException if the text is not a valid JSON value.
+   */
+  public BinaryOutput appendJSON(String text) {
+    ToyJSONParser.parseValue(text, new ToyJSONParser.JSONVisitor() {
+      private void key(String key) {
+        if (key != null) {
+          appendKey(key);
+        }
+      }
+
+      @Override
+      public void value(String key, Object value) {
+        key(key);
+        switch (value) {
+          case null -> appendNull();
+          case Boolean b -> appendBoolean(b);
+          case Integer i -> appendInt(i);
+          case Long l -> appendLong(l);
+          case Double d -> appendDouble(d);
+          case String s -> appendString(s);
+          default -> throw new AssertionError("unknown value " + value);
+        }
+      }
+
+      @Override
+      public void startObject(String key) {
+        key(key);
+        BinaryOutput.this.startObject();
+      }
+
+      @Override
+      public void endObject(String key) {
+        BinaryOutput.this.endObject();
+      }
+
+      @Override
+      public void startArray(String key) {
+        key(key);
+        BinaryOutput.this.startArray();
+      }
+
+      @Override
+      public void endArray(String key) {
+        BinaryOutput.this.endArray();
+      }
+    });
+    return this;
+  }
+
+  private void appendText(String text) {
+    var length = utf8Length(text);
+    varint(length);
+    encode(text, length);
+  }
+
+  /**
+   * Returns the number of bytes of a string encoded in UTF-8,
+   * a lone surrogate is replaced by '?' like {@link String#getBytes(java.nio.charset.Charset)}.
+   */
+  private static int utf8Length(String text) {
+    var length = text.length();
+    var utf8Length = length;
+    for(var i = 0; i < length; i++) {
+      var c = text.charAt(i);
+      if (c < 0x80) {
+        continue;
+      }
+      if (c < 0x800) {
+        utf8Length++;
+        continue;
+      }
+      if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+        utf8Length += 2;  // 4 bytes for 2 chars
+        i++;
+        continue;
+      }
+      if (!Character.isSurrogate(c)) {
+        utf8Length += 2;
+      }
+    }
+    return utf8Length;
+  }
+
+  private void encode(String text, int utf8Length) {
+    ensureCapacity(utf8Length);
+    var buffer = this.buffer;
+    var length = text.length();
+    if (length == utf8Length) {  // only ASCII characters
+      for(var i = 0; i < length; i++) {
+        buffer[size + i] = (byte) text.charAt(i);
+      }
+      size += length;
+      return;
+    }
+    var size = this.size;
+    for(var i = 0; i < length; i++) {
+      var c = text.charAt(i);
+      if (c < 0x80) {
+        buffer[size++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[size++] = (byte) (0xC0 | c >> 6);
+        buffer[size++] = (byte) (0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+        var codePoint = Character.toCodePoint(c, text.charAt(++i));
+        buffer[size++] = (byte) (0xF0 | codePoint >> 18);
+        buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+        buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        buffer[size++] = (byte) (0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(c)) {
+        buffer[size++] = '?';  // lone surrogate
+      } else {
+        buffer[size++] = (byte) (0xE0 | c >> 12);
+        buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+        buffer[size++] = (byte) (0x80 | c & 0x3F);
+      }
+    }
+    this.size = size;
+  }
+
+  /**
+   * Returns the buffer to the {@link BufferPool}, the output can not be used after.
+   */
+  void release() {
+    BufferPool.release(buffer);
+    buffer = null;
+  }
+
+  /**
+   * Returns a copy of the bytes kept in memory.
+   * @return a copy of the bytes kept in memory.
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+}
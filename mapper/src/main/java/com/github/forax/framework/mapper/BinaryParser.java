@@ -0,0 +1,338 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
+import com.github.forax.framework.mapper.ToyJSONParser.KeyedVisitor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.github.forax.framework.mapper.BinaryOutput.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A parser of the binary encoding written by a {@link BinaryOutput}, it calls the same methods
+ * of a {@link JSONVisitor} as the {@link ToyJSONParser} for the equivalent JSON text.
+ *
+ * There is nothing to tokenize, each value is decoded by reading its tag and its length,
+ * and a key that appears several times is decoded once into a string,
+ * a back reference is only an index into the key table.
+ * If the visitor is a {@link KeyedVisitor}, the numbers are passed without being boxed.
+ */
+final class BinaryParser {
+  private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final byte[] input;
+  private final JSONVisitor visitor;
+  private final KeyedVisitor keyedVisitor;  // or null
+  private final ArrayList<String> keys = new ArrayList<>();
+  private int index;
+
+  // for each level of nesting, true if it's an object and the key of the object or the array
+  private boolean[] objects = new boolean[8];
+  private String[] parentKeys = new String[8];
+
+  private BinaryParser(byte[] input, JSONVisitor visitor) {
+    this.input = input;
+    this.visitor = visitor;
+    this.keyedVisitor = visitor instanceof KeyedVisitor keyedVisitor? keyedVisitor: null;
+  }
+
+  /**
+   * Parses an object or an array encoded by a {@link BinaryOutput} and calls the visitor.
+   *
+   * @param input the encoded value.
+   * @param visitor the visitor called for each value, object or array.
+   * @throws IllegalStateException if the input is not a valid encoded object or array.
+   */
+  static void parse(byte[] input, JSONVisitor visitor) {
+    Objects.requireNonNull(input);
+    Objects.requireNonNull(visitor);
+    new BinaryParser(input, visitor).parse();
+  }
+
+  /**
+   * Decodes a value encoded by a {@link BinaryOutput} as a JSON text without any whitespace.
+   *
+   * @param input the encoded value.
+   * @return the JSON text of the value.
+   * @throws IllegalStateException if the input is not a valid encoded value.
+   */
+  static String toJSON(byte[] input) {
+    Objects.requireNonNull(input);
+    var parser = new BinaryParser(input, null);
+    var output = new JSONOutput();
+    try {
+      parser.transcode(parser.tag(), output);
+      if (parser.index != input.length) {
+        throw parser.error("unexpected bytes after the value", parser.index);
+      }
+      return output.toString();
+    } finally {
+      output.release();
+    }
+  }
+
+  private IllegalStateException error(String message, int position) {
+    return new IllegalStateException(message + " at " + position);
+  }
+
+  private void ensureAvailable(int length) {
+    if (length < 0 || length > input.length - index) {
+      throw error("truncated input", input.length);
+    }
+  }
+
+  private int tag() {
+    ensureAvailable(1);
+    return input[index++] & 0xFF;
+  }
+
+  private long varint() {
+    var value = 0L;
+    for(var shift = 0; shift < 64; shift += 7) {
+      var b = tag();
+      value |= (long) (b & 0x7F) << shift;
+      if (b < 0x80) {
+        return value;
+      }
+    }
+    throw error("invalid varint", index);
+  }
+
+  private int length() {
+    var length = varint();
+    if (length > Integer.MAX_VALUE) {
+      throw error("invalid length " + length, index);
+    }
+    return (int) length;
+  }
+
+  private String text(int length) {
+    ensureAvailable(length);
+    var text = new String(input, index, length, UTF_8);
+    index += length;
+    return text;
+  }
+
+  private String key(int tag) {
+    if ((tag & ~SMALL_MASK) == SMALL_KEY_REFERENCE) {
+      return keyReference(tag & SMALL_MASK);
+    }
+    return switch (tag) {
+      case KEY -> {
+        var key = text(length());
+        if (keys.size() < MAX_KEYS) {
+          keys.add(key);
+        }
+        yield key;
+      }
+      case KEY_REFERENCE -> keyReference(length());
+      default -> throw error("expect a key or the end of the object but found tag 0x" + Integer.toHexString(tag), index - 1);
+    };
+  }
+
+  private String keyReference(int keyIndex) {
+    if (keyIndex >= keys.size()) {
+      throw error("unknown key reference " + keyIndex, index);
+    }
+    return keys.get(keyIndex);
+  }
+
+  private void parse() {
+    var depth = 0;
+    do {
+      var tag = tag();
+      String key = null;
+      if (depth != 0) {
+        var object = objects[depth - 1];
+        if (tag == (object? END_OBJECT: END_ARRAY)) {
+          depth--;
+          if (object) {
+            visitor.endObject(parentKeys[depth]);
+          } else {
+            visitor.endArray(parentKeys[depth]);
+          }
+          continue;
+        }
+        if (object) {
+          key = key(tag);
+          tag = tag();
+        }
+        if (keyedVisitor != null && keyedVisitor.rawValue(key)) {
+          visitor.value(key, rawValue(tag));
+          continue;
+        }
+      } else if (tag != START_OBJECT && tag != START_ARRAY) {
+        // like the ToyJSONParser, the root is an object or an array
+        throw error("expect an object or an array but found tag 0x" + Integer.toHexString(tag), index - 1);
+      }
+      if (tag == START_OBJECT || tag == START_ARRAY) {
+        if (depth == objects.length) {
+          objects = Arrays.copyOf(objects, depth << 1);
+          parentKeys = Arrays.copyOf(parentKeys, depth << 1);
+        }
+        var object = tag == START_OBJECT;
+        objects[depth] = object;
+        parentKeys[depth] = key;
+        depth++;
+        if (object) {
+          visitor.startObject(key);
+        } else {
+          visitor.startArray(key);
+        }
+        continue;
+      }
+      value(key, tag);
+    } while (depth != 0);
+    if (index != input.length) {
+      throw error("unexpected bytes after the value", index);
+    }
+  }
+
+  private void value(String key, int tag) {
+    switch (tag & ~SMALL_MASK) {
+      case SMALL_INT -> {
+        longValue(key, zigzag(tag & SMALL_MASK));
+        return;
+      }
+      case SHORT_STRING -> {
+        visitor.value(key, text(tag & SMALL_MASK));
+        return;
+      }
+      default -> {}
+    }
+    switch (tag) {
+      case NULL -> visitor.value(key, null);
+      case FALSE -> visitor.value(key, false);
+      case TRUE -> visitor.value(key, true);
+      case INT -> longValue(key, zigzag(varint()));
+      case FLOAT -> doubleValue(key, readFloat());
+      case DOUBLE -> doubleValue(key, readDouble());
+      case NUMBER -> {
+        var position = index;
+        var text = text(length());
+        visitor.value(key, number(text, position));
+      }
+      case STRING -> visitor.value(key, text(length()));
+      default -> throw error("invalid tag 0x" + Integer.toHexString(tag), index - 1);
+    }
+  }
+
+  /**
+   * Decodes the text of a NUMBER, the text must be exactly one JSON number.
+   */
+  private Object number(String text, int position) {
+    var number = ToyJSONParser.number(text);
+    if (number == null) {
+      throw error("invalid number", position);
+    }
+    return number;
+  }
+
+  private static long zigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private float readFloat() {
+    ensureAvailable(4);
+    var value = Float.intBitsToFloat((int) INTS.get(input, index));
+    index += 4;
+    return value;
+  }
+
+  private double readDouble() {
+    ensureAvailable(8);
+    var value = Double.longBitsToDouble((long) LONGS.get(input, index));
+    index += 8;
+    return value;
+  }
+
+  private void longValue(String key, long value) {
+    if (keyedVisitor != null) {
+      keyedVisitor.longValue(key, value);
+      return;
+    }
+    visitor.value(key, value == (int) value? (Object) (int) value: (Object) value);
+  }
+
+  private void doubleValue(String key, double value) {
+    if (keyedVisitor != null) {
+      keyedVisitor.doubleValue(key, value);
+      return;
+    }
+    visitor.value(key, value);
+  }
+
+  /**
+   * Decodes a value and its content as a JSON text, so it can be accessed as a {@link JSONValue}.
+   */
+  private JSONValue rawValue(int tag) {
+    var output = new JSONOutput();
+    String text;
+    try {
+      transcode(tag, output);
+      text = output.toString();
+    } finally {
+      output.release();
+    }
+    return new JSONValue(text, 0, text.length());
+  }
+
+  private void transcode(int tag, JSONOutput output) {
+    switch (tag & ~SMALL_MASK) {
+      case SMALL_INT -> {
+        output.appendLong(zigzag(tag & SMALL_MASK));
+        return;
+      }
+      case SHORT_STRING -> {
+        output.appendString(text(tag & SMALL_MASK));
+        return;
+      }
+      default -> {}
+    }
+    switch (tag) {
+      case NULL -> output.append("null");
+      case FALSE -> output.append("false");
+      case TRUE -> output.append("true");
+      case INT -> output.appendLong(zigzag(varint()));
+      case FLOAT -> output.appendFloat(readFloat());
+      case DOUBLE -> output.appendDouble(readDouble());
+      case NUMBER -> {
+        var position = index;
+        var text = text(length());
+        number(text, position);  // the text is copied as is, so it must be a number
+        output.append(text);
+      }
+      case STRING -> output.appendString(text(length()));
+      case START_OBJECT -> {
+        output.append('{');
+        var count = 0;
+        for(int next; (next = tag()) != END_OBJECT; count++) {
+          if (count != 0) {
+            output.append(',');
+          }
+          output.appendString(key(next)).append(':');
+          transcode(tag(), output);
+        }
+        output.append('}');
+      }
+      case START_ARRAY -> {
+        output.append('[');
+        var count = 0;
+        for(int next; (next = tag()) != END_ARRAY; count++) {
+          if (count != 0) {
+            output.append(',');
+          }
+          transcode(next, output);
+        }
+        output.append(']');
+      }
+      default -> throw error("invalid tag 0x" + Integer.toHexString(tag), index - 1);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.github.forax.framework.mapper;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of the byte and char buffers used by the {@link JSONWriter}, the {@link JSONReader}
+ * and the parser, so a serialization or a parse does not allocate its buffers.
+ *
+ * A buffer is explicitly leased for the duration of one operation and released at its end,
+ * the pool is shared by all the threads and not attached to a thread, so a virtual thread
+ * retains no buffer between two operations. The pool has a fixed number of slots,
+ * a lease takes a buffer from a slot and a release puts it back in a free slot,
+ * so at most {@link Statistics#maxRetainedBytes()} bytes are retained.
+ * If no buffer is available, a new one is allocated, and if no slot is free or if the buffer
+ * has grown, the released buffer is left to the garbage collector.
+ * A buffer that is not released, by example because an operation is abandoned, is not an error,
+ * it is collected like any other object.
+ *
+ * @see #statistics()
+ */
+public final class BufferPool {
+  private BufferPool() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The length of the pooled buffers.
+   */
+  static final int CAPACITY = 8_192;
+
+  // a lease or a release probes a few slots starting from a slot that depends on the thread
+  private static final int PROBES = 4;
+  private static final int SLOT_COUNT = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+  /**
+   * The counters of the pool.
+   *
+   * @param hits the number of leases that reused a buffer.
+   * @param misses the number of leases that allocated a buffer.
+   * @param discards the number of released buffers that were not retained.
+   * @param maxRetainedBytes the maximum number of bytes retained by the pool.
+   */
+  public record Statistics(long hits, long misses, long discards, long maxRetainedBytes) {
+    /**
+     * Returns the ratio of the leases that reused a buffer.
+     * @return a number between 0 and 1, 0 if there was no lease.
+     */
+    public double hitRate() {
+      var leases = hits + misses;
+      return leases == 0? 0: (double) hits / leases;
+    }
+  }
+
+  private static final class Pool<A> {
+    private final AtomicReferenceArray<A> slots = new AtomicReferenceArray<>(SLOT_COUNT);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    // the thread ids are sequential, so the threads spread over the slots
+    private static int firstSlot() {
+      return (int) Thread.currentThread().threadId();
+    }
+
+    private A lease() {
+      var first = firstSlot();
+      for(var i = 0; i < PROBES; i++) {
+        var buffer = slots.getAndSet((first + i) & (SLOT_COUNT - 1), null);
+        if (buffer != null) {
+          hits.increment();
+          return buffer;
+        }
+      }
+      misses.increment();
+      return null;
+    }
+
+    private void release(A buffer) {
+      var first = firstSlot();
+      for(var i = 0; i < PROBES; i++) {
+        if (slots.compareAndSet((first + i) & (SLOT_COUNT - 1), null, buffer)) {
+          return;
+        }
+      }
+      discards.increment();
+    }
+  }
+
+  private static final Pool<byte[]> BYTES = new Pool<>();
+  private static final Pool<char[]> CHARS = new Pool<>();
+
+  /**
+   * Leases a byte buffer of {@link #CAPACITY} bytes, its content is unspecified.
+   * @return a byte buffer.
+   */
+  static byte[] leaseBytes() {
+    var buffer = BYTES.lease();
+    return buffer != null? buffer: new byte[CAPACITY];
+  }
+
+  /**
+   * Leases a char buffer of {@link #CAPACITY} chars, its content is unspecified.
+   * @return a char buffer.
+   */
+  static char[] leaseChars() {
+    var buffer = CHARS.lease();
+    return buffer != null? buffer: new char[CAPACITY];
+  }
+
+  /**
+   * Releases a byte buffer, the buffer must not be used after.
+   * A buffer that has not the length of the pooled buffers is not retained.
+   * @param buffer a byte buffer.
+   */
+  static void release(byte[] buffer) {
+    if (buffer.length != CAPACITY) {
+      BYTES.discards.increment();
+      return;
+    }
+    BYTES.release(buffer);
+  }
+
+  /**
+   * Releases a char buffer, the buffer must not be used after.
+   * A buffer that has not the length of the pooled buffers is not retained.
+   * @param buffer a char buffer.
+   */
+  static void release(char[] buffer) {
+    if (buffer.length != CAPACITY) {
+      CHARS.discards.increment();
+      return;
+    }
+    CHARS.release(buffer);
+  }
+
+  /**
+   * Returns a snapshot of the counters of the pool, the counters are updated concurrently
+   * so the snapshot may be slightly inconsistent.
+   * @return the counters of the pool.
+   */
+  public static Statistics statistics() {
+    return new Statistics(
+        BYTES.hits.sum() + CHARS.hits.sum(),
+        BYTES.misses.sum() + CHARS.misses.sum(),
+        BYTES.discards.sum() + CHARS.discards.sum(),
+        (long) SLOT_COUNT * CAPACITY * (Byte.BYTES + Character.BYTES));
+  }
+}
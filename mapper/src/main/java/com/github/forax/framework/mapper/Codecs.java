@@ -0,0 +1,45 @@
+package com.github.forax.framework.mapper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The registry of the {@link JSONCodec}s generated at compile time, the codecs are found
+ * using a {@link ServiceLoader} with the context class loader of the first thread that asks for a codec.
+ * The registry is loaded once, the {@link JSONWriter} and the {@link JSONReader} ask for the codec
+ * of a class only once, when its generator or its binding plan is created.
+ */
+final class Codecs {
+  private Codecs() {
+    throw new AssertionError();
+  }
+
+  // initialized lazily, by the class loading of the holder
+  private static final class Registry {
+    private static final Map<Class<?>, JSONCodec<?>> CODECS = load();
+
+    private static Map<Class<?>, JSONCodec<?>> load() {
+      var codecs = new HashMap<Class<?>, JSONCodec<?>>();
+      for(JSONCodec<?> codec: ServiceLoader.load(JSONCodec.class)) {
+        var previous = codecs.putIfAbsent(codec.type(), codec);
+        if (previous != null) {
+          throw new IllegalStateException("two codecs " + previous.getClass().getName() + " and "
+              + codec.getClass().getName() + " for " + codec.type().getName());
+        }
+      }
+      return Map.copyOf(codecs);
+    }
+  }
+
+  /**
+   * Returns the codec of a class.
+   * @param type a class.
+   * @return the codec of the class or null if there is no codec.
+   */
+  @SuppressWarnings("unchecked")
+  static JSONCodec<Object> codec(Class<?> type) {
+    // the codec of a type is registered for exactly that type
+    return (JSONCodec<Object>) Registry.CODECS.get(type);
+  }
+}
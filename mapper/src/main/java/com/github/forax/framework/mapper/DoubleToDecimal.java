@@ -0,0 +1,302 @@
+package com.github.forax.framework.mapper;
+
+import java.math.BigInteger;
+
+import static java.lang.Double.doubleToRawLongBits;
+import static java.lang.Long.numberOfLeadingZeros;
+import static java.lang.Math.multiplyHigh;
+
+/**
+ * Writes the shortest decimal that rounds to a double, directly into a byte array.
+ * The text is the same as the one of {@link Double#toString(double)} since Java 19.
+ *
+ * It's an implementation of the Schubfach algorithm described in
+ * "The Schubfach way to render doubles" by Raffaello Giulietti,
+ * which is also the algorithm used by the JDK.
+ * Unlike the JDK, the table of the powers of ten is computed when the class is initialized.
+ */
+final class DoubleToDecimal {
+  private DoubleToDecimal() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The maximum number of bytes of a double, by example "-2.2250738585072014E-308".
+   */
+  static final int MAX_LENGTH = 24;
+
+  private static final int P = 53;  // precision
+  private static final int Q_MIN = -1074;
+  private static final long C_MIN = 1L << P - 1;
+  private static final int BQ_MASK = 0x7FF;
+  private static final long T_MASK = (1L << P - 1) - 1;
+  private static final long C_TINY = 3;
+  private static final int H = 17;  // maximum number of digits
+  private static final int K_MIN = -324;
+  private static final int K_MAX = 292;
+  private static final long MASK_63 = (1L << 63) - 1;
+  private static final int MASK_28 = (1 << 28) - 1;
+
+  private static final long[] POW10 = new long[H + 1];
+  static {
+    POW10[0] = 1;
+    for (var i = 1; i < POW10.length; i++) {
+      POW10[i] = 10 * POW10[i - 1];
+    }
+  }
+
+  // g = g1 2^63 + g0, with (g - 1) 2^r <= 10^-k < g 2^r and 2^125 <= g < 2^126
+  private static final long[] G = new long[(K_MAX - K_MIN + 1) << 1];
+  static {
+    for (var k = K_MIN; k <= K_MAX; k++) {
+      var r = flog2pow10(-k) - 125;
+      BigInteger g;
+      if (k <= 0) {
+        var pow = BigInteger.TEN.pow(-k);
+        g = r >= 0 ? pow.shiftRight(r) : pow.shiftLeft(-r);
+      } else {
+        g = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+      }
+      g = g.add(BigInteger.ONE);
+      G[k - K_MIN << 1] = g.shiftRight(63).longValue();
+      G[(k - K_MIN << 1) + 1] = g.longValue() & MASK_63;
+    }
+  }
+
+  // floor(log10(2^e))
+  static int flog10pow2(int e) {
+    return (int) (e * 661_971_961_083L >> 41);
+  }
+
+  // floor(log10(3/4 2^e))
+  static int flog10threeQuartersPow2(int e) {
+    return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+  }
+
+  // floor(log2(10^e))
+  static int flog2pow10(int e) {
+    return (int) (e * 913_124_641_741L >> 38);
+  }
+
+  /**
+   * Writes the decimal of a double.
+   *
+   * @param bytes the array where the decimal is written, it should have at least {@link #MAX_LENGTH} free bytes.
+   * @param index the index of the first byte to write.
+   * @param v the double.
+   * @return the index after the last byte written.
+   */
+  static int write(byte[] bytes, int index, double v) {
+    var bits = doubleToRawLongBits(v);
+    var t = bits & T_MASK;
+    var bq = (int) (bits >>> P - 1) & BQ_MASK;
+    if (bq == BQ_MASK) {
+      return ascii(bytes, index, t != 0 ? "NaN" : bits > 0 ? "Infinity" : "-Infinity");
+    }
+    if (bits < 0) {
+      bytes[index++] = '-';
+    }
+    if (bq != 0) {
+      // normal value, mq = -q
+      var mq = -Q_MIN + 1 - bq;
+      var c = C_MIN | t;
+      // fast path for the integers
+      if (0 < mq & mq < P) {
+        var f = c >> mq;
+        if (f << mq == c) {
+          return toChars(bytes, index, f, 0);
+        }
+      }
+      return toDecimal(bytes, index, -mq, c, 0);
+    }
+    if (t != 0) {
+      // subnormal value
+      return t < C_TINY
+          ? toDecimal(bytes, index, Q_MIN, 10 * t, -1)
+          : toDecimal(bytes, index, Q_MIN, t, 0);
+    }
+    return ascii(bytes, index, "0.0");
+  }
+
+  static int ascii(byte[] bytes, int index, String text) {
+    for (var i = 0; i < text.length(); i++) {
+      bytes[index++] = (byte) text.charAt(i);
+    }
+    return index;
+  }
+
+  private static int toDecimal(byte[] bytes, int index, int q, long c, int dk) {
+    var out = (int) c & 0x1;
+    var cb = c << 2;
+    var cbr = cb + 2;
+    long cbl;
+    int k;
+    if (c != C_MIN | q == Q_MIN) {
+      // regular spacing
+      cbl = cb - 2;
+      k = flog10pow2(q);
+    } else {
+      // irregular spacing
+      cbl = cb - 1;
+      k = flog10threeQuartersPow2(q);
+    }
+    var h = q + flog2pow10(-k) + 2;
+
+    var g1 = G[k - K_MIN << 1];
+    var g0 = G[(k - K_MIN << 1) + 1];
+
+    var vb = rop(g1, g0, cb << h);
+    var vbl = rop(g1, g0, cbl << h);
+    var vbr = rop(g1, g0, cbr << h);
+
+    var s = vb >> 2;
+    if (s >= 100) {
+      // sp10 = 10 floor(s / 10), tp10 = sp10 + 10, is one of them the only one in the rounding interval ?
+      var sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+      var tp10 = sp10 + 10;
+      var upin = vbl + out <= sp10 << 2;
+      var wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        return toChars(bytes, index, upin ? sp10 : tp10, k);
+      }
+    }
+
+    // is exactly one of s or t = s + 1 in the rounding interval ?
+    var t = s + 1;
+    var uin = vbl + out <= s << 2;
+    var win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      return toChars(bytes, index, uin ? s : t, k + dk);
+    }
+    // both are, choose the closest, or the even one
+    var cmp = vb - (s + t << 1);
+    return toChars(bytes, index, cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+  }
+
+  /**
+   * Returns the 63 high bits of g for 10^-k, the table is shared with {@link FloatToDecimal}.
+   */
+  static long g1(int k) {
+    return G[k - K_MIN << 1];
+  }
+
+  // round to odd of cp g 2^-127
+  private static long rop(long g1, long g0, long cp) {
+    var x1 = multiplyHigh(g0, cp);
+    var y0 = g1 * cp;
+    var y1 = multiplyHigh(g1, cp);
+    var z = (y0 >>> 1) + x1;
+    var vbp = y1 + (z >>> 63);
+    return vbp | (z & MASK_63) + MASK_63 >>> 63;
+  }
+
+  // writes f 10^e
+  private static int toChars(byte[] bytes, int index, long f, int e) {
+    // 10^(len-1) <= f < 10^len
+    var len = flog10pow2(Long.SIZE - numberOfLeadingZeros(f));
+    if (f >= POW10[len]) {
+      len += 1;
+    }
+    // 10^(H-1) <= f < 10^H and f 10^e = 0.f 10^(e + len)
+    f *= POW10[H - len];
+    e += len;
+
+    // split the 17 digits in h (1 digit), m (8 digits) and l (8 digits)
+    var hm = multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+    var l = (int) (f - 100_000_000L * hm);
+    var h = (int) (hm * 1_441_151_881L >>> 57);
+    var m = (int) (hm - 100_000_000 * h);
+
+    if (0 < e && e <= 7) {
+      // plain format without leading zeroes
+      bytes[index++] = (byte) ('0' + h);
+      var y = y(m);
+      var i = 1;
+      for (; i < e; i++) {
+        var t = 10 * y;
+        bytes[index++] = (byte) ('0' + (t >>> 28));
+        y = t & MASK_28;
+      }
+      bytes[index++] = '.';
+      for (; i <= 8; i++) {
+        var t = 10 * y;
+        bytes[index++] = (byte) ('0' + (t >>> 28));
+        y = t & MASK_28;
+      }
+      return lowDigits(bytes, index, l);
+    }
+    if (-3 < e && e <= 0) {
+      // plain format with leading zeroes
+      bytes[index++] = '0';
+      bytes[index++] = '.';
+      for (; e < 0; e++) {
+        bytes[index++] = '0';
+      }
+      bytes[index++] = (byte) ('0' + h);
+      index = eightDigits(bytes, index, m);
+      return lowDigits(bytes, index, l);
+    }
+    // scientific notation
+    bytes[index++] = (byte) ('0' + h);
+    bytes[index++] = '.';
+    index = eightDigits(bytes, index, m);
+    index = lowDigits(bytes, index, l);
+    return exponent(bytes, index, e - 1);
+  }
+
+  private static int lowDigits(byte[] bytes, int index, int l) {
+    if (l != 0) {
+      index = eightDigits(bytes, index, l);
+    }
+    return removeTrailingZeroes(bytes, index);
+  }
+
+  // remove the trailing zeroes but the one after the dot
+  static int removeTrailingZeroes(byte[] bytes, int index) {
+    while (bytes[index - 1] == '0') {
+      index--;
+    }
+    if (bytes[index - 1] == '.') {
+      index++;
+    }
+    return index;
+  }
+
+  // left-to-right extraction of the 8 digits of m
+  static int eightDigits(byte[] bytes, int index, int m) {
+    var y = y(m);
+    for (var i = 0; i < 8; i++) {
+      var t = 10 * y;
+      bytes[index++] = (byte) ('0' + (t >>> 28));
+      y = t & MASK_28;
+    }
+    return index;
+  }
+
+  // floor((a + 1) 2^28 / 10^8) - 1
+  static int y(int a) {
+    return (int) (multiplyHigh((long) (a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+  }
+
+  static int exponent(byte[] bytes, int index, int e) {
+    bytes[index++] = 'E';
+    if (e < 0) {
+      bytes[index++] = '-';
+      e = -e;
+    }
+    if (e < 10) {
+      bytes[index++] = (byte) ('0' + e);
+      return index;
+    }
+    int d;
+    if (e >= 100) {
+      d = e * 1_311 >>> 17;  // e / 100
+      bytes[index++] = (byte) ('0' + d);
+      e -= 100 * d;
+    }
+    d = e * 103 >>> 10;  // e / 10
+    bytes[index++] = (byte) ('0' + d);
+    bytes[index++] = (byte) ('0' + e - 10 * d);
+    return index;
+  }
+}
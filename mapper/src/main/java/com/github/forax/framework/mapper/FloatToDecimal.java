@@ -0,0 +1,196 @@
+package com.github.forax.framework.mapper;
+
+import static com.github.forax.framework.mapper.DoubleToDecimal.ascii;
+import static com.github.forax.framework.mapper.DoubleToDecimal.eightDigits;
+import static com.github.forax.framework.mapper.DoubleToDecimal.exponent;
+import static com.github.forax.framework.mapper.DoubleToDecimal.flog10pow2;
+import static com.github.forax.framework.mapper.DoubleToDecimal.flog10threeQuartersPow2;
+import static com.github.forax.framework.mapper.DoubleToDecimal.flog2pow10;
+import static com.github.forax.framework.mapper.DoubleToDecimal.g1;
+import static com.github.forax.framework.mapper.DoubleToDecimal.removeTrailingZeroes;
+import static com.github.forax.framework.mapper.DoubleToDecimal.y;
+import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Integer.numberOfLeadingZeros;
+import static java.lang.Math.multiplyHigh;
+
+/**
+ * Writes the shortest decimal that rounds to a float, directly into a byte array.
+ * The text is the same as the one of {@link Float#toString(float)} since Java 19.
+ *
+ * It's the float variant of the Schubfach algorithm of {@link DoubleToDecimal},
+ * the table of the powers of ten is shared with it.
+ */
+final class FloatToDecimal {
+  private FloatToDecimal() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The maximum number of bytes of a float, a sign, 9 digits, a dot and an exponent like "E-38".
+   */
+  static final int MAX_LENGTH = 15;
+
+  private static final int P = 24;  // precision
+  private static final int Q_MIN = -149;
+  private static final int C_MIN = 1 << P - 1;
+  private static final int BQ_MASK = 0xFF;
+  private static final int T_MASK = (1 << P - 1) - 1;
+  private static final int C_TINY = 8;
+  private static final int H = 9;  // maximum number of digits
+  private static final long MASK_32 = (1L << 32) - 1;
+  private static final int MASK_28 = (1 << 28) - 1;
+
+  private static final int[] POW10 = new int[H + 1];
+  static {
+    POW10[0] = 1;
+    for (var i = 1; i < POW10.length; i++) {
+      POW10[i] = 10 * POW10[i - 1];
+    }
+  }
+
+  /**
+   * Writes the decimal of a float.
+   *
+   * @param bytes the array where the decimal is written, it should have at least {@link #MAX_LENGTH} free bytes.
+   * @param index the index of the first byte to write.
+   * @param v the float.
+   * @return the index after the last byte written.
+   */
+  static int write(byte[] bytes, int index, float v) {
+    var bits = floatToRawIntBits(v);
+    var t = bits & T_MASK;
+    var bq = (bits >>> P - 1) & BQ_MASK;
+    if (bq == BQ_MASK) {
+      return ascii(bytes, index, t != 0 ? "NaN" : bits > 0 ? "Infinity" : "-Infinity");
+    }
+    if (bits < 0) {
+      bytes[index++] = '-';
+    }
+    if (bq != 0) {
+      // normal value, mq = -q
+      var mq = -Q_MIN + 1 - bq;
+      var c = C_MIN | t;
+      // fast path for the integers
+      if (0 < mq & mq < P) {
+        var f = c >> mq;
+        if (f << mq == c) {
+          return toChars(bytes, index, f, 0);
+        }
+      }
+      return toDecimal(bytes, index, -mq, c, 0);
+    }
+    if (t != 0) {
+      // subnormal value
+      return t < C_TINY
+          ? toDecimal(bytes, index, Q_MIN, 10 * t, -1)
+          : toDecimal(bytes, index, Q_MIN, t, 0);
+    }
+    return ascii(bytes, index, "0.0");
+  }
+
+  private static int toDecimal(byte[] bytes, int index, int q, int c, int dk) {
+    var out = c & 0x1;
+    long cb = c << 2;
+    var cbr = cb + 2;
+    long cbl;
+    int k;
+    if (c != C_MIN | q == Q_MIN) {
+      // regular spacing
+      cbl = cb - 2;
+      k = flog10pow2(q);
+    } else {
+      // irregular spacing
+      cbl = cb - 1;
+      k = flog10threeQuartersPow2(q);
+    }
+    var h = q + flog2pow10(-k) + 33;
+
+    var g = g1(k) + 1;
+
+    var vb = rop(g, cb << h);
+    var vbl = rop(g, cbl << h);
+    var vbr = rop(g, cbr << h);
+
+    var s = vb >> 2;
+    if (s >= 100) {
+      // sp10 = 10 floor(s / 10), tp10 = sp10 + 10, is one of them the only one in the rounding interval ?
+      var sp10 = 10 * (int) (s * 1_717_986_919L >>> 34);
+      var tp10 = sp10 + 10;
+      var upin = vbl + out <= sp10 << 2;
+      var wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        return toChars(bytes, index, upin ? sp10 : tp10, k);
+      }
+    }
+
+    // is exactly one of s or t = s + 1 in the rounding interval ?
+    var t = s + 1;
+    var uin = vbl + out <= s << 2;
+    var win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      return toChars(bytes, index, uin ? s : t, k + dk);
+    }
+    // both are, choose the closest, or the even one
+    var cmp = vb - (s + t << 1);
+    return toChars(bytes, index, cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+  }
+
+  // round to odd of cp g 2^-95
+  private static int rop(long g, long cp) {
+    var x1 = multiplyHigh(g, cp);
+    var vbp = x1 >>> 31;
+    return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+  }
+
+  // writes f 10^e
+  private static int toChars(byte[] bytes, int index, int f, int e) {
+    // 10^(len-1) <= f < 10^len
+    var len = flog10pow2(Integer.SIZE - numberOfLeadingZeros(f));
+    if (f >= POW10[len]) {
+      len += 1;
+    }
+    // 10^(H-1) <= f < 10^H and f 10^e = 0.f 10^(e + len)
+    f *= POW10[H - len];
+    e += len;
+
+    // split the 9 digits in h (1 digit) and l (8 digits)
+    var h = (int) (f * 1_441_151_881L >>> 57);
+    var l = f - 100_000_000 * h;
+
+    if (0 < e && e <= 7) {
+      // plain format without leading zeroes
+      bytes[index++] = (byte) ('0' + h);
+      var y = y(l);
+      var i = 1;
+      for (; i < e; i++) {
+        var t = 10 * y;
+        bytes[index++] = (byte) ('0' + (t >>> 28));
+        y = t & MASK_28;
+      }
+      bytes[index++] = '.';
+      for (; i <= 8; i++) {
+        var t = 10 * y;
+        bytes[index++] = (byte) ('0' + (t >>> 28));
+        y = t & MASK_28;
+      }
+      return removeTrailingZeroes(bytes, index);
+    }
+    if (-3 < e && e <= 0) {
+      // plain format with leading zeroes
+      bytes[index++] = '0';
+      bytes[index++] = '.';
+      for (; e < 0; e++) {
+        bytes[index++] = '0';
+      }
+      bytes[index++] = (byte) ('0' + h);
+      index = eightDigits(bytes, index, l);
+      return removeTrailingZeroes(bytes, index);
+    }
+    // scientific notation
+    bytes[index++] = (byte) ('0' + h);
+    bytes[index++] = '.';
+    index = eightDigits(bytes, index, l);
+    index = removeTrailingZeroes(bytes, index);
+    return exponent(bytes, index, e - 1);
+  }
+}
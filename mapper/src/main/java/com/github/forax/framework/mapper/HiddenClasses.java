@@ -0,0 +1,297 @@
+package com.github.forax.framework.mapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+import static java.lang.invoke.MethodHandles.Lookup.ClassOption.NESTMATE;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Generates hidden classes implementing a functional interface by calling a sequence of method handles.
+ *
+ * Unlike a lambda that captures the method handles, the method handles are constants of the hidden class
+ * (loaded from the class data with a constant dynamic), so the JIT is able to inline them.
+ */
+final class HiddenClasses {
+  private HiddenClasses() {
+    throw new AssertionError();
+  }
+
+  private static final int CLASS_VERSION = 55;  // Java 11, the first version with constant dynamic
+
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_FINAL = 0x0010;
+  private static final int ACC_SUPER = 0x0020;
+  private static final int REF_INVOKE_STATIC = 6;
+
+  private static final int ALOAD = 0x19;
+  private static final int ILOAD = 0x15;
+  private static final int LLOAD = 0x16;
+  private static final int FLOAD = 0x17;
+  private static final int DLOAD = 0x18;
+  private static final int LDC_W = 0x13;
+  private static final int INVOKEVIRTUAL = 0xb6;
+  private static final int INVOKESPECIAL = 0xb7;
+  private static final int RETURN = 0xb1;
+
+  /**
+   * Returns an instance of the functional interface {@code interfaceType} whose abstract method
+   * calls all the {@code steps} in order with its arguments.
+   *
+   * @param lookup a lookup with the full privilege access, the hidden class is a nestmate of its lookup class.
+   * @param interfaceType a functional interface with a method returning {@code void}.
+   * @param steps the method handles to call, all of them should have the type of the abstract method.
+   * @return an instance of the functional interface.
+   */
+  public static <T> T asSequenceInstance(Lookup lookup, Class<T> interfaceType, List<MethodHandle> steps) {
+    Objects.requireNonNull(lookup);
+    Objects.requireNonNull(interfaceType);
+    steps = List.copyOf(steps);
+    var method = abstractMethod(interfaceType);
+    var methodType = methodType(method.getReturnType(), method.getParameterTypes());
+    if (methodType.returnType() != void.class) {
+      throw new IllegalArgumentException("the method " + method + " should return void");
+    }
+    for (var step : steps) {
+      if (!step.type().equals(methodType)) {
+        throw new IllegalArgumentException("invalid step type " + step.type() + " for " + method);
+      }
+    }
+    var bytecode = generate(lookup.lookupClass(), interfaceType, method.getName(), methodType, steps.size());
+    try {
+      var hiddenLookup = lookup.defineHiddenClassWithClassData(bytecode, steps, true, NESTMATE);
+      var constructor = hiddenLookup.findConstructor(hiddenLookup.lookupClass(), methodType(void.class));
+      return interfaceType.cast(constructor.invoke());
+    } catch (IllegalAccessException | NoSuchMethodException e) {
+      throw (LinkageError) new LinkageError("can not define a hidden class for " + interfaceType.getName()).initCause(e);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private static Method abstractMethod(Class<?> interfaceType) {
+    if (!interfaceType.isInterface()) {
+      throw new IllegalArgumentException(interfaceType.getName() + " is not an interface");
+    }
+    var methods = Arrays.stream(interfaceType.getMethods())
+        .filter(method -> Modifier.isAbstract(method.getModifiers()))
+        .toList();
+    if (methods.size() != 1) {
+      throw new IllegalArgumentException(interfaceType.getName() + " is not a functional interface");
+    }
+    return methods.get(0);
+  }
+
+  private static byte[] generate(Class<?> lookupClass, Class<?> interfaceType, String methodName,
+                                 MethodType methodType, int stepCount) {
+    var pool = new ConstantPool();
+    var className = internalName(lookupClass) + "$$Sequence";
+    var thisClass = pool.classRef(className);
+    var superClass = pool.classRef("java/lang/Object");
+    var interfaceClass = pool.classRef(internalName(interfaceType));
+    var objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+    var initName = pool.utf8("<init>");
+    var initDescriptor = pool.utf8("()V");
+    var descriptor = methodType.toMethodDescriptorString();
+    var name = pool.utf8(methodName);
+    var nameDescriptor = pool.utf8(descriptor);
+    var code = pool.utf8("Code");
+    var invokeExact = pool.methodRef("java/lang/invoke/MethodHandle", "invokeExact", descriptor);
+    var classDataAt = pool.methodHandle(REF_INVOKE_STATIC, pool.methodRef("java/lang/invoke/MethodHandles", "classDataAt",
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;"));
+    var constants = new int[stepCount];
+    for (var i = 0; i < stepCount; i++) {
+      // one bootstrap method per step, in the same order
+      constants[i] = pool.dynamic(i, "_", "Ljava/lang/invoke/MethodHandle;");
+    }
+    var bootstrapArguments = new int[stepCount];
+    for (var i = 0; i < stepCount; i++) {
+      bootstrapArguments[i] = pool.integer(i);
+    }
+    var bootstrapMethods = pool.utf8("BootstrapMethods");
+
+    try {
+      var bytes = new ByteArrayOutputStream();
+      var out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(CLASS_VERSION);
+      pool.writeTo(out);
+      out.writeShort(ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(1);
+      out.writeShort(interfaceClass);
+      out.writeShort(0);  // fields
+      out.writeShort(2);  // methods
+
+      // constructor
+      var init = new ByteArrayOutputStream();
+      init.write(ALOAD); init.write(0);
+      writeInstruction(init, INVOKESPECIAL, objectInit);
+      init.write(RETURN);
+      writeMethod(out, initName, initDescriptor, code, 1, 1, init.toByteArray());
+
+      // implementation of the abstract method
+      var parameterSlots = parameterSlots(methodType);
+      var body = new ByteArrayOutputStream();
+      for (var constant : constants) {
+        writeInstruction(body, LDC_W, constant);
+        var slot = 1;
+        for (var parameterType : methodType.parameterArray()) {
+          body.write(loadOpcode(parameterType));
+          body.write(slot);
+          slot += slotSize(parameterType);
+        }
+        writeInstruction(body, INVOKEVIRTUAL, invokeExact);
+      }
+      body.write(RETURN);
+      writeMethod(out, name, nameDescriptor, code, 1 + parameterSlots, 1 + parameterSlots, body.toByteArray());
+
+      // attributes
+      out.writeShort(1);
+      out.writeShort(bootstrapMethods);
+      out.writeInt(2 + stepCount * 6);
+      out.writeShort(stepCount);
+      for (var argument : bootstrapArguments) {
+        out.writeShort(classDataAt);
+        out.writeShort(1);
+        out.writeShort(argument);
+      }
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String internalName(Class<?> type) {
+    return type.getName().replace('.', '/');
+  }
+
+  private static int slotSize(Class<?> type) {
+    return type == long.class || type == double.class ? 2 : 1;
+  }
+
+  private static int parameterSlots(MethodType methodType) {
+    return methodType.parameterList().stream().mapToInt(HiddenClasses::slotSize).sum();
+  }
+
+  private static int loadOpcode(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return ALOAD;
+    }
+    if (type == long.class) {
+      return LLOAD;
+    }
+    if (type == float.class) {
+      return FLOAD;
+    }
+    if (type == double.class) {
+      return DLOAD;
+    }
+    return ILOAD;
+  }
+
+  private static void writeInstruction(ByteArrayOutputStream code, int opcode, int index) {
+    code.write(opcode);
+    code.write(index >> 8);
+    code.write(index);
+  }
+
+  private static void writeMethod(DataOutputStream out, int name, int descriptor, int code,
+                                  int maxStack, int maxLocals, byte[] instructions) throws IOException {
+    out.writeShort(ACC_PUBLIC);
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(1);
+    out.writeShort(code);
+    out.writeInt(12 + instructions.length);
+    out.writeShort(maxStack);
+    out.writeShort(maxLocals);
+    out.writeInt(instructions.length);
+    out.write(instructions);
+    out.writeShort(0);  // exception table
+    out.writeShort(0);  // attributes
+  }
+
+  private static final class ConstantPool {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final HashMap<List<Object>, Integer> constants = new HashMap<>();
+    private int count = 1;
+
+    private interface Writer {
+      void write(DataOutputStream out) throws IOException;
+    }
+
+    private int constant(List<Object> key, Writer writer) {
+      var index = constants.get(key);
+      if (index != null) {
+        return index;
+      }
+      try {
+        writer.write(out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      constants.put(key, count);
+      return count++;
+    }
+
+    int utf8(String value) {
+      return constant(List.of(1, value), out -> { out.writeByte(1); out.writeUTF(value); });
+    }
+
+    int integer(int value) {
+      return constant(List.of(3, value), out -> { out.writeByte(3); out.writeInt(value); });
+    }
+
+    int classRef(String internalName) {
+      var name = utf8(internalName);
+      return constant(List.of(7, name), out -> { out.writeByte(7); out.writeShort(name); });
+    }
+
+    int nameAndType(String name, String descriptor) {
+      var nameIndex = utf8(name);
+      var descriptorIndex = utf8(descriptor);
+      return constant(List.of(12, nameIndex, descriptorIndex),
+          out -> { out.writeByte(12); out.writeShort(nameIndex); out.writeShort(descriptorIndex); });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+      var ownerIndex = classRef(owner);
+      var nameAndType = nameAndType(name, descriptor);
+      return constant(List.of(10, ownerIndex, nameAndType),
+          out -> { out.writeByte(10); out.writeShort(ownerIndex); out.writeShort(nameAndType); });
+    }
+
+    int methodHandle(int kind, int reference) {
+      return constant(List.of(15, kind, reference),
+          out -> { out.writeByte(15); out.writeByte(kind); out.writeShort(reference); });
+    }
+
+    int dynamic(int bootstrapMethod, String name, String descriptor) {
+      var nameAndType = nameAndType(name, descriptor);
+      return constant(List.of(17, bootstrapMethod, nameAndType),
+          out -> { out.writeByte(17); out.writeShort(bootstrapMethod); out.writeShort(nameAndType); });
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+      output.writeShort(count);
+      bytes.writeTo(output);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes and reads the properties of a type with plain Java code, a codec is generated
+ * at compile time by the {@link JSONCodecProcessor} for each type annotated with {@link JSONSerializable}
+ * and registered as a service, so the {@link JSONWriter} and the {@link JSONReader} use it
+ * instead of discovering the properties by reflection.
+ *
+ * The properties are identified by the index of their key in {@link #keys()},
+ * a key that can only be written has no type and a key that can only be read is never encoded.
+ *
+ * @param <T> the type of the values.
+ */
+public interface JSONCodec<T> {
+  /**
+   * Returns the class of the values.
+   * @return the class of the values.
+   */
+  Class<T> type();
+
+  /**
+   * Returns the keys of the properties.
+   * @return an immutable list of distinct keys.
+   */
+  List<String> keys();
+
+  /**
+   * Returns the type of the value of a key.
+   * @param index the index of the key.
+   * @return the type of the value or null if the key can not be read.
+   */
+  Type type(int index);
+
+  /**
+   * Writes the value of each property that can be written, in the order of the keys.
+   * @param value the value to encode.
+   * @param encoder the encoder that writes each key and its value.
+   */
+  void encode(T value, Encoder encoder);
+
+  /**
+   * Creates the data that will be populated, a bean or a holder of the values of the record components.
+   * @return a new data.
+   */
+  Object newBuilder();
+
+  /**
+   * Sets the value of a key.
+   * @param builder the data created by {@link #newBuilder()}.
+   * @param index the index of the key.
+   * @param value the value decoded by the parser.
+   * @throws IllegalStateException if the key can not be read.
+   */
+  void populate(Object builder, int index, Object value);
+
+  /**
+   * Sets an integer value of a key, a codec overrides this method to not box the value
+   * if the property has a primitive type.
+   * @param builder the data created by {@link #newBuilder()}.
+   * @param index the index of the key.
+   * @param value the value decoded by the parser.
+   * @throws IllegalStateException if the key can not be read.
+   */
+  default void populateLong(Object builder, int index, long value) {
+    populate(builder, index, value == (int) value? (Object) (int) value: (Object) value);
+  }
+
+  /**
+   * Sets a double value of a key, a codec overrides this method to not box the value
+   * if the property has a primitive type.
+   * @param builder the data created by {@link #newBuilder()}.
+   * @param index the index of the key.
+   * @param value the value decoded by the parser.
+   * @throws IllegalStateException if the key can not be read.
+   */
+  default void populateDouble(Object builder, int index, double value) {
+    populate(builder, index, value);
+  }
+
+  /**
+   * Transforms the populated data into a value.
+   * @param builder the data created by {@link #newBuilder()}.
+   * @return the value.
+   */
+  T build(Object builder);
+
+  /**
+   * Writes a key and its value, the JSON text or the binary encoding depending on the implementation.
+   */
+  interface Encoder {
+    void value(int index, Object value);
+    void intValue(int index, int value);
+    void longValue(int index, long value);
+    void floatValue(int index, float value);
+    void doubleValue(int index, double value);
+    void booleanValue(int index, boolean value);
+  }
+
+  /**
+   * Returns the type captured by a type reference, used by the generated codecs
+   * to describe a parameterized type.
+   * @param typeReference an anonymous class implementing {@link JSONReader.TypeReference}.
+   * @return the captured type.
+   */
+  static Type type(JSONReader.TypeReference<?> typeReference) {
+    Objects.requireNonNull(typeReference);
+    return JSONReader.typeArgument(typeReference);
+  }
+}
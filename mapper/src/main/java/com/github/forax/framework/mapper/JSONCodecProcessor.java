@@ -0,0 +1,539 @@
+package com.github.forax.framework.mapper;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An annotation processor that generates a {@link JSONCodec} for each bean class or record
+ * annotated with {@link JSONSerializable} and registers the codecs as services
+ * in {@code META-INF/services}.
+ *
+ * The properties are found with the same rules as the {@link JSONWriter} and the {@link JSONReader},
+ * the accessors of a record, the public getters and setters of a bean sorted by property name,
+ * and the keys are renamed with {@link JSONProperty}.
+ * The codec of {@code Outer.Type} in the package {@code p} is named {@code p.Outer_Type_JSONCodec}.
+ */
+public final class JSONCodecProcessor extends AbstractProcessor {
+  private static final String SERVICE_FILE = "META-INF/services/" + JSONCodec.class.getName();
+
+  // the codecs generated by all the rounds
+  private final TreeSet<String> codecNames = new TreeSet<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Set.of(JSONSerializable.class.getName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+    for(var element: roundEnvironment.getElementsAnnotatedWith(JSONSerializable.class)) {
+      try {
+        generate(element);
+      } catch (InvalidTypeException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+      }
+    }
+    if (roundEnvironment.processingOver() && !codecNames.isEmpty()) {
+      writeServiceFile();
+    }
+    return true;
+  }
+
+  private static final class InvalidTypeException extends Exception {
+    private static final long serialVersionUID = 1;
+
+    private InvalidTypeException(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  /**
+   * A key of the codec, a key can be written if it has a getter and read if it has a setter,
+   * the setter of a record component is the field of the same name of the builder.
+   */
+  private static final class Key {
+    private final String name;
+    private ExecutableElement getter;  // or null
+    private TypeMirror getterType;
+    private String setter;  // or null
+    private TypeMirror setterType;
+
+    private Key(String name) {
+      this.name = name;
+    }
+  }
+
+  private void generate(Element element) throws InvalidTypeException {
+    if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.RECORD) {
+      throw new InvalidTypeException("@JSONSerializable is only supported on a class or a record");
+    }
+    var type = (TypeElement) element;
+    if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+      throw new InvalidTypeException("@JSONSerializable is not supported on an abstract class");
+    }
+    if (!type.getTypeParameters().isEmpty()) {
+      throw new InvalidTypeException("@JSONSerializable is not supported on a generic type");
+    }
+    for(Element enclosing = type; enclosing instanceof TypeElement typeElement; enclosing = enclosing.getEnclosingElement()) {
+      if (typeElement.getNestingKind() == NestingKind.LOCAL || typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+        throw new InvalidTypeException("@JSONSerializable is not supported on a local class");
+      }
+      if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+        throw new InvalidTypeException(typeElement.getSimpleName() + " must not be private");
+      }
+      if (typeElement.getNestingKind() == NestingKind.MEMBER && typeElement.getKind() == ElementKind.CLASS
+          && !typeElement.getModifiers().contains(Modifier.STATIC)) {
+        throw new InvalidTypeException(typeElement.getSimpleName() + " must be static");
+      }
+    }
+    var keys = type.getKind() == ElementKind.RECORD? recordKeys(type): beanKeys(type);
+    var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    var codecName = codecSimpleName(type);
+    var qualifiedName = packageName.isEmpty()? codecName: packageName + "." + codecName;
+    var source = new CodecWriter(type, packageName, codecName, keys).source();
+    try {
+      var file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+      try (var writer = file.openWriter()) {
+        writer.write(source);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    codecNames.add(qualifiedName);
+  }
+
+  private static String codecSimpleName(TypeElement type) {
+    var name = new StringBuilder(type.getSimpleName());
+    for(var enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement typeElement; enclosing = enclosing.getEnclosingElement()) {
+      name.insert(0, typeElement.getSimpleName() + "_");
+    }
+    return name.append("_JSONCodec").toString();
+  }
+
+  private static String keyName(Element element, String name) {
+    var annotation = element.getAnnotation(JSONProperty.class);
+    return annotation != null? annotation.value(): name;
+  }
+
+  private static Key key(LinkedHashMap<String, Key> keys, String name) {
+    return keys.computeIfAbsent(name, Key::new);
+  }
+
+  private static List<Key> recordKeys(TypeElement type) throws InvalidTypeException {
+    var keys = new LinkedHashMap<String, Key>();
+    for(var component: type.getRecordComponents()) {
+      var name = component.getSimpleName().toString();
+      var key = key(keys, keyName(component, name));
+      if (key.getter != null) {
+        throw new InvalidTypeException("duplicate key " + key.name);
+      }
+      key.getter = component.getAccessor();
+      key.getterType = component.asType();
+      key.setter = name;
+      key.setterType = component.asType();
+    }
+    return List.copyOf(keys.values());
+  }
+
+  /**
+   * A property of a bean, the name of the property is computed like {@link java.beans.Introspector}.
+   */
+  private static final class Property {
+    private ExecutableElement getter;
+    private TypeMirror getterType;
+    private ExecutableElement setter;
+    private TypeMirror setterType;
+  }
+
+  private static String decapitalize(String name) {
+    if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+      return name;
+    }
+    return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private List<Key> beanKeys(TypeElement type) throws InvalidTypeException {
+    var types = processingEnv.getTypeUtils();
+    var declaredType = (DeclaredType) type.asType();
+    var properties = new TreeMap<String, Property>();
+    var setters = new ArrayList<ExecutableElement>();
+    for(var method: ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+      if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)
+          || ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+        continue;
+      }
+      var name = method.getSimpleName().toString();
+      var methodType = (ExecutableType) types.asMemberOf(declaredType, method);
+      var returnType = methodType.getReturnType();
+      var parameterCount = method.getParameters().size();
+      if (parameterCount == 0 && name.startsWith("get") && name.length() > 3 && returnType.getKind() != TypeKind.VOID) {
+        var property = properties.computeIfAbsent(decapitalize(name.substring(3)), __ -> new Property());
+        if (property.getter == null) {  // isX() has precedence over getX()
+          property.getter = method;
+          property.getterType = returnType;
+        }
+        continue;
+      }
+      if (parameterCount == 0 && name.startsWith("is") && name.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN) {
+        var property = properties.computeIfAbsent(decapitalize(name.substring(2)), __ -> new Property());
+        property.getter = method;
+        property.getterType = returnType;
+        continue;
+      }
+      if (parameterCount == 1 && name.startsWith("set") && name.length() > 3 && returnType.getKind() == TypeKind.VOID) {
+        setters.add(method);
+      }
+    }
+    // a setter is bound if its parameter has the type of the getter
+    for(var setter: setters) {
+      var property = properties.computeIfAbsent(decapitalize(setter.getSimpleName().toString().substring(3)), __ -> new Property());
+      var parameterType = ((ExecutableType) types.asMemberOf(declaredType, setter)).getParameterTypes().get(0);
+      if (property.setter != null || (property.getter != null && !types.isSameType(property.getterType, parameterType))) {
+        continue;
+      }
+      property.setter = setter;
+      property.setterType = parameterType;
+    }
+    var keys = new LinkedHashMap<String, Key>();
+    for(var entry: properties.entrySet()) {
+      var property = entry.getValue();
+      if (property.getter != null) {
+        var key = key(keys, keyName(property.getter, entry.getKey()));
+        if (key.getter != null) {
+          throw new InvalidTypeException("duplicate key " + key.name);
+        }
+        key.getter = property.getter;
+        key.getterType = property.getterType;
+      }
+      if (property.setter != null) {
+        var key = key(keys, keyName(property.setter, entry.getKey()));
+        if (key.setter != null) {
+          throw new InvalidTypeException("duplicate key " + key.name);
+        }
+        key.setter = property.setter.getSimpleName().toString();
+        key.setterType = property.setterType;
+      }
+    }
+    return List.copyOf(keys.values());
+  }
+
+  /**
+   * Generates the source of a codec.
+   */
+  private final class CodecWriter {
+    private final TypeElement type;
+    private final String packageName;
+    private final String codecName;
+    private final List<Key> keys;
+    private final boolean record;
+    private final String typeName;
+    private final StringBuilder builder = new StringBuilder();
+
+    private CodecWriter(TypeElement type, String packageName, String codecName, List<Key> keys) {
+      this.type = type;
+      this.packageName = packageName;
+      this.codecName = codecName;
+      this.keys = keys;
+      this.record = type.getKind() == ElementKind.RECORD;
+      this.typeName = type.getQualifiedName().toString();
+    }
+
+    private CodecWriter line(String line) {
+      builder.append(line).append('\n');
+      return this;
+    }
+
+    private String source() throws InvalidTypeException {
+      if (!packageName.isEmpty()) {
+        line("package " + packageName + ";").line("");
+      }
+      line("@javax.annotation.processing.Generated(\"" + JSONCodecProcessor.class.getName() + "\")");
+      line("public final class " + codecName + " implements com.github.forax.framework.mapper.JSONCodec<" + typeName + "> {");
+      line("  private static final java.util.List<String> KEYS = java.util.List.of("
+          + keys.stream().map(key -> literal(key.name)).collect(Collectors.joining(", ")) + ");");
+      line("");
+      if (record) {
+        line("  private static final class Builder {");
+        for(var key: keys) {
+          line("    private " + key.setterType + " " + key.setter + ";");
+        }
+        line("  }").line("");
+      }
+      line("  @Override");
+      line("  public Class<" + typeName + "> type() {");
+      line("    return " + typeName + ".class;");
+      line("  }").line("");
+      line("  @Override");
+      line("  public java.util.List<String> keys() {");
+      line("    return KEYS;");
+      line("  }").line("");
+      type();
+      encode();
+      newBuilder();
+      populate();
+      populateNumber("populateLong", "long");
+      populateNumber("populateDouble", "double");
+      build();
+      line("}");
+      return builder.toString();
+    }
+
+    private void type() throws InvalidTypeException {
+      line("  @Override");
+      line("  public java.lang.reflect.Type type(int index) {");
+      line("    return switch (index) {");
+      for(var i = 0; i < keys.size(); i++) {
+        var key = keys.get(i);
+        if (key.setter != null) {
+          line("      case " + i + " -> " + typeExpression(key.setterType) + ";");
+        }
+      }
+      line("      default -> null;");
+      line("    };");
+      line("  }").line("");
+    }
+
+    private void encode() {
+      line("  @Override");
+      line("  public void encode(" + typeName + " value, com.github.forax.framework.mapper.JSONCodec.Encoder encoder) {");
+      for(var i = 0; i < keys.size(); i++) {
+        var key = keys.get(i);
+        if (key.getter != null) {
+          line("    encoder." + encoderMethod(key.getterType) + "(" + i + ", value." + key.getter.getSimpleName() + "());");
+        }
+      }
+      line("  }").line("");
+    }
+
+    private void newBuilder() {
+      line("  @Override");
+      line("  public Object newBuilder() {");
+      if (record) {
+        line("    return new Builder();");
+      } else if (hasPublicDefaultConstructor()) {
+        line("    return new " + typeName + "();");
+      } else {
+        line("    throw new NoSuchMethodError(" + literal("no public default constructor " + binaryName()) + ");");
+      }
+      line("  }").line("");
+    }
+
+    private boolean hasPublicDefaultConstructor() {
+      return ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+          .anyMatch(constructor -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+    }
+
+    private String binaryName() {
+      return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private String data() {
+      return record? "    var data = (Builder) builder;": "    var data = (" + typeName + ") builder;";
+    }
+
+    private String assignment(Key key, String value) {
+      return record? "data." + key.setter + " = " + value: "data." + key.setter + "(" + value + ")";
+    }
+
+    private void populate() {
+      line("  @Override");
+      line("  @SuppressWarnings(\"unchecked\")");
+      line("  public void populate(Object builder, int index, Object value) {");
+      if (keys.stream().anyMatch(key -> key.setter != null)) {
+        line(data());
+      }
+      line("    switch (index) {");
+      for(var i = 0; i < keys.size(); i++) {
+        var key = keys.get(i);
+        if (key.setter != null) {
+          line("      case " + i + " -> " + assignment(key, conversion(key.setterType)) + ";");
+        }
+      }
+      line("      default -> throw new IllegalStateException(\"key \" + KEYS.get(index) + "
+          + literal(" of " + binaryName() + " can not be read") + ");");
+      line("    }");
+      line("  }").line("");
+    }
+
+    /**
+     * Generates populateLong or populateDouble if a key has a primitive numeric type,
+     * the number is converted with a cast like the methods of {@link Number}.
+     */
+    private void populateNumber(String methodName, String valueType) {
+      var numbers = new ArrayList<Integer>();
+      for(var i = 0; i < keys.size(); i++) {
+        var key = keys.get(i);
+        if (key.setter != null && isNumber(key.setterType)) {
+          numbers.add(i);
+        }
+      }
+      if (numbers.isEmpty()) {
+        return;
+      }
+      line("  @Override");
+      line("  public void " + methodName + "(Object builder, int index, " + valueType + " value) {");
+      line(data());
+      line("    switch (index) {");
+      for(var i: numbers) {
+        var key = keys.get(i);
+        var cast = key.setterType.toString().equals(valueType)? "": "(" + key.setterType + ") ";
+        line("      case " + i + " -> " + assignment(key, cast + "value") + ";");
+      }
+      line("      default -> com.github.forax.framework.mapper.JSONCodec.super." + methodName + "(builder, index, value);");
+      line("    }");
+      line("  }").line("");
+    }
+
+    private void build() {
+      line("  @Override");
+      line("  public " + typeName + " build(Object builder) {");
+      if (record) {
+        line("    var data = (Builder) builder;");
+        line("    return new " + typeName + "("
+            + keys.stream().map(key -> "data." + key.setter).collect(Collectors.joining(", ")) + ");");
+      } else {
+        line("    return (" + typeName + ") builder;");
+      }
+      line("  }");
+    }
+  }
+
+  private static boolean isNumber(TypeMirror type) {
+    return type.getKind().isPrimitive() && type.getKind() != TypeKind.BOOLEAN && type.getKind() != TypeKind.CHAR;
+  }
+
+  /**
+   * Returns the method of the encoder used to write a value of a type,
+   * the primitive values are not boxed, short and byte are widened to int.
+   */
+  private static String encoderMethod(TypeMirror type) {
+    return switch (type.getKind()) {
+      case INT, SHORT, BYTE -> "intValue";
+      case LONG -> "longValue";
+      case FLOAT -> "floatValue";
+      case DOUBLE -> "doubleValue";
+      case BOOLEAN -> "booleanValue";
+      default -> "value";
+    };
+  }
+
+  /**
+   * Returns the expression that converts a value decoded by the parser to a type,
+   * the numbers are converted using the methods of {@link Number} like the {@link JSONReader}.
+   */
+  private static String conversion(TypeMirror type) {
+    return switch (type.getKind()) {
+      case BOOLEAN -> "(java.lang.Boolean) value";
+      case CHAR -> "(java.lang.Character) value";
+      case BYTE, SHORT, INT, LONG, FLOAT, DOUBLE -> "((java.lang.Number) value)." + type + "Value()";
+      default -> "(" + type + ") value";
+    };
+  }
+
+  /**
+   * Returns the expression of the {@link java.lang.reflect.Type} of a type, a class literal if the type
+   * is not parameterized, a type reference otherwise.
+   */
+  private String typeExpression(TypeMirror type) throws InvalidTypeException {
+    if (!isParameterized(type)) {
+      return processingEnv.getTypeUtils().erasure(type) + ".class";
+    }
+    return "com.github.forax.framework.mapper.JSONCodec.type(new com.github.forax.framework.mapper.JSONReader.TypeReference<"
+        + type + ">() {})";
+  }
+
+  private static boolean isParameterized(TypeMirror type) throws InvalidTypeException {
+    return switch (type.getKind()) {
+      case DECLARED -> !((DeclaredType) type).getTypeArguments().isEmpty();
+      case ARRAY -> isParameterized(((ArrayType) type).getComponentType());
+      case TYPEVAR -> throw new InvalidTypeException("the type variable " + type + " is not supported");
+      default -> false;
+    };
+  }
+
+  private static String literal(String text) {
+    var builder = new StringBuilder("\"");
+    for(var i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+      switch (c) {
+        case '"' -> builder.append("\\\"");
+        case '\\' -> builder.append("\\\\");
+        case '\n' -> builder.append("\\n");
+        case '\r' -> builder.append("\\r");
+        case '\t' -> builder.append("\\t");
+        default -> {
+          if (c < ' ') {
+            builder.append("\\u%04x".formatted((int) c));
+          } else {
+            builder.append(c);
+          }
+        }
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  /**
+   * Writes the service file, the codecs of a previous compilation whose type still exists are kept,
+   * so an incremental compilation does not unregister them.
+   */
+  private void writeServiceFile() {
+    var filer = processingEnv.getFiler();
+    var names = new TreeSet<>(codecNames);
+    try {
+      var previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+      try (var reader = new BufferedReader(new InputStreamReader(previous.openInputStream(), UTF_8))) {
+        reader.lines()
+            .map(String::strip)
+            .filter(name -> !name.isEmpty() && processingEnv.getElementUtils().getTypeElement(name) != null)
+            .forEach(names::add);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // no previous service file
+    }
+    try {
+      var file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+      try (var writer = new OutputStreamWriter(file.openOutputStream(), UTF_8)) {
+        for(var name: names) {
+          writer.write(name + "\n");
+        }
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "can not write " + SERVICE_FILE + ": " + e.getMessage());
+    }
+  }
+}
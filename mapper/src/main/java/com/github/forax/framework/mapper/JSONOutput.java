@@ -0,0 +1,555 @@
+package com.github.forax.framework.mapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The sink shared by all the generators of a {@link JSONWriter} during one call to {@code toJSON},
+ * nested values are appended in place instead of being built as intermediary strings.
+ *
+ * The JSON text is encoded in UTF-8 into a byte buffer, so the constant parts, like the keys,
+ * can be pre-encoded once and copied with {@link #append(byte[])}.
+ * When the buffer is full, its content is either drained into an output stream or an appendable,
+ * or the buffer grows if the text is collected in memory.
+ * The buffers are leased from the {@link BufferPool} and returned by {@link #release()}.
+ */
+final class JSONOutput {
+  @FunctionalInterface
+  private interface Drain {
+    /**
+     * Sends the first bytes of the buffer to the underlying target.
+     * @return the number of bytes sent, the remaining bytes are kept in the buffer.
+     */
+    int drain(byte[] buffer, int size) throws IOException;
+  }
+
+  private final Drain drain;
+  private byte[] buffer;
+  private int size;
+  private int depth;
+
+  private JSONOutput(Drain drain) {
+    this.drain = drain;
+    this.buffer = BufferPool.leaseBytes();
+  }
+
+  /**
+   * Creates an output that keeps the JSON text in memory.
+   * @see #toString()
+   */
+  JSONOutput() {
+    this((Drain) null);
+  }
+
+  /**
+   * Creates an output that writes the JSON text into an output stream.
+   * @see #flush()
+   */
+  JSONOutput(OutputStream outputStream) {
+    this((buffer, size) -> {
+      outputStream.write(buffer, 0, size);
+      return size;
+    });
+    Objects.requireNonNull(outputStream);
+  }
+
+  /**
+   * Creates an output that decodes and writes the JSON text into an appendable.
+   * @see #flush()
+   */
+  JSONOutput(Appendable appendable) {
+    this((buffer, size) -> {
+      var length = completeLength(buffer, size);
+      appendable.append(new String(buffer, 0, length, UTF_8));
+      return length;
+    });
+    Objects.requireNonNull(appendable);
+  }
+
+  /**
+   * Returns the length of the prefix of the buffer that does not end with an incomplete UTF-8 sequence.
+   */
+  private static int completeLength(byte[] buffer, int size) {
+    for(var i = size - 1; i >= Math.max(0, size - 3); i--) {
+      var b = buffer[i];
+      if ((b & 0xC0) != 0x80) {  // not a continuation byte
+        var length = b >= 0? 1: (b & 0xE0) == 0xC0? 2: (b & 0xF0) == 0xE0? 3: 4;
+        return i + length <= size? size: i;
+      }
+    }
+    return size;
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length <= buffer.length) {
+      return;
+    }
+    if (drain != null) {
+      drainBuffer();
+      if (size + length <= buffer.length) {
+        return;
+      }
+    }
+    var oldBuffer = buffer;
+    buffer = Arrays.copyOf(oldBuffer, Math.max(oldBuffer.length << 1, size + length));
+    BufferPool.release(oldBuffer);
+  }
+
+  private void drainBuffer() {
+    int drained;
+    try {
+      drained = drain.drain(buffer, size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    System.arraycopy(buffer, drained, buffer, 0, size - drained);
+    size -= drained;
+  }
+
+  /**
+   * Sends the content of the buffer to the underlying output stream or appendable.
+   */
+  public void flush() {
+    if (drain != null && size != 0) {
+      drainBuffer();
+    }
+  }
+
+  /**
+   * Appends an ASCII character.
+   * @param c an ASCII character.
+   * @return this output.
+   */
+  public JSONOutput append(char c) {
+    assert c < 0x80;
+    ensureCapacity(1);
+    buffer[size++] = (byte) c;
+    return this;
+  }
+
+  /**
+   * Appends bytes already encoded in UTF-8.
+   * @param bytes the bytes to copy.
+   * @return this output.
+   */
+  public JSONOutput append(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+    return this;
+  }
+
+  /**
+   * Appends a text encoded in UTF-8.
+   * @param text the text.
+   * @return this output.
+   */
+  public JSONOutput append(CharSequence text) {
+    var length = text.length();
+    for(var i = 0; i < length; i++) {
+      var c = text.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+        encodeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+        continue;
+      }
+      encode(c);
+    }
+    return this;
+  }
+
+  private void encode(char c) {
+    ensureCapacity(3);
+    if (c < 0x80) {
+      buffer[size++] = (byte) c;
+      return;
+    }
+    if (c < 0x800) {
+      buffer[size++] = (byte) (0xC0 | c >> 6);
+      buffer[size++] = (byte) (0x80 | c & 0x3F);
+      return;
+    }
+    if (Character.isSurrogate(c)) {
+      buffer[size++] = '?';  // lone surrogate, same replacement as String.getBytes()
+      return;
+    }
+    buffer[size++] = (byte) (0xE0 | c >> 12);
+    buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+    buffer[size++] = (byte) (0x80 | c & 0x3F);
+  }
+
+  private void encodeCodePoint(int codePoint) {
+    ensureCapacity(4);
+    buffer[size++] = (byte) (0xF0 | codePoint >> 18);
+    buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+    buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+    buffer[size++] = (byte) (0x80 | codePoint & 0x3F);
+  }
+
+  // the strings are scanned by chunks copied into scratch arrays
+  private static final int CHUNK = 512;
+  // below that length, scanning the string character by character is faster
+  private static final int SHORT_STRING = 16;
+
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private char[] chars;  // lazily allocated
+  private byte[] bytes;  // lazily allocated
+
+  /**
+   * Appends a string as a JSON string, quoted and escaped.
+   *
+   * The string is copied by chunks, if a chunk is only made of ASCII characters, it is narrowed to bytes
+   * and scanned eight bytes at a time (SWAR, SIMD within a register) to find the characters that need
+   * to be escaped, the runs of clean characters in between are copied in bulk.
+   * Otherwise, the chunk is scanned character by character.
+   *
+   * @param text a string.
+   * @return this output.
+   */
+  public JSONOutput appendString(String text) {
+    append('"');
+    var length = text.length();
+    if (length <= SHORT_STRING) {
+      for(var i = 0; i < length; i++) {
+        var c = text.charAt(i);
+        if (isClean(c)) {
+          ensureCapacity(1);
+          buffer[size++] = (byte) c;
+          continue;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+          encodeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+          continue;
+        }
+        escape(c);
+      }
+      return append('"');
+    }
+    var chars = this.chars;
+    var bytes = this.bytes;
+    if (chars == null) {
+      chars = this.chars = BufferPool.leaseChars();
+      bytes = this.bytes = BufferPool.leaseBytes();
+    }
+    for(var start = 0; start < length;) {
+      var end = Math.min(start + CHUNK, length);
+      if (end < length && Character.isHighSurrogate(text.charAt(end - 1))) {
+        end--;  // do not split a surrogate pair
+      }
+      text.getChars(start, end, chars, 0);
+      if (narrow(chars, bytes, end - start)) {
+        appendASCIIChunk(bytes, end - start);
+      } else {
+        appendChunk(chars, end - start);
+      }
+      start = end;
+    }
+    return append('"');
+  }
+
+  /**
+   * Copies the lower byte of the characters and returns true if all the characters are ASCII.
+   * It's a single counted loop, vectorized by the JIT.
+   */
+  private static boolean narrow(char[] chars, byte[] bytes, int length) {
+    var union = 0;
+    for(var i = 0; i < length; i++) {
+      var c = chars[i];
+      union |= c;
+      bytes[i] = (byte) c;
+    }
+    return union < 0x80;
+  }
+
+  private static final long LOW_BITS = 0x0101_0101_0101_0101L;
+  private static final long HIGH_BITS = 0x8080_8080_8080_8080L;
+  private static final long SPACES = 0x2020_2020_2020_2020L;
+  private static final long QUOTES = 0x2222_2222_2222_2222L;
+  private static final long BACKSLASHES = 0x5C5C_5C5C_5C5C_5C5CL;
+
+  /**
+   * Returns a mask with the high bit of each ASCII byte that needs to be escaped set.
+   * A subtraction may also set the bit of the bytes after an escaped byte (because of the borrow)
+   * but the lowest bit set is always correct.
+   */
+  private static long escapeMask(long lanes) {
+    var controls = (lanes - SPACES) & ~lanes;
+    var quotes = ((lanes ^ QUOTES) - LOW_BITS) & ~(lanes ^ QUOTES);
+    var backslashes = ((lanes ^ BACKSLASHES) - LOW_BITS) & ~(lanes ^ BACKSLASHES);
+    return (controls | quotes | backslashes) & HIGH_BITS;
+  }
+
+  private void appendASCIIChunk(byte[] bytes, int length) {
+    var i = 0;
+    while (i < length) {
+      var j = i;
+      for(;;) {
+        if (j + 8 > length) {
+          while (j < length && isClean((char) bytes[j])) {
+            j++;
+          }
+          break;
+        }
+        var mask = escapeMask((long) LONGS.get(bytes, j));
+        if (mask != 0) {
+          j += Long.numberOfTrailingZeros(mask) >>> 3;
+          break;
+        }
+        j += 8;
+      }
+      if (j != i) {
+        ensureCapacity(j - i);
+        System.arraycopy(bytes, i, buffer, size, j - i);
+        size += j - i;
+      }
+      if (j == length) {
+        return;
+      }
+      escape((char) bytes[j]);
+      i = j + 1;
+    }
+  }
+
+  private void appendChunk(char[] chars, int length) {
+    var i = 0;
+    while (i < length) {
+      var j = i;
+      while (j < length && isClean(chars[j])) {
+        j++;
+      }
+      if (j != i) {
+        copyASCII(chars, i, j);
+      }
+      if (j == length) {
+        return;
+      }
+      var c = chars[j];
+      if (Character.isHighSurrogate(c) && j + 1 < length && Character.isLowSurrogate(chars[j + 1])) {
+        encodeCodePoint(Character.toCodePoint(c, chars[++j]));
+      } else {
+        escape(c);
+      }
+      i = j + 1;
+    }
+  }
+
+  private void copyASCII(char[] chars, int from, int to) {
+    var length = to - from;
+    ensureCapacity(length);
+    var buffer = this.buffer;
+    var offset = size - from;
+    for(var k = from; k < to; k++) {
+      buffer[offset + k] = (byte) chars[k];
+    }
+    size += length;
+  }
+
+  private static boolean isClean(char c) {
+    return c >= 0x20 && c < 0x80 && c != '"' && c != '\\';
+  }
+
+  // the second character of the two characters escape sequences, 0 otherwise
+  private static final byte[] ESCAPES = new byte[0x60];
+  static {
+    ESCAPES['"'] = '"';
+    ESCAPES['\\'] = '\\';
+    ESCAPES['\n'] = 'n';
+    ESCAPES['\r'] = 'r';
+    ESCAPES['\t'] = 't';
+    ESCAPES['\b'] = 'b';
+    ESCAPES['\f'] = 'f';
+  }
+
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(ISO_8859_1);
+
+  private void escape(char c) {
+    if (c >= 0x60) {
+      if (Character.isSurrogate(c)) {
+        // a lone surrogate can not be encoded in UTF-8 but can be escaped
+        unicodeEscape(c);
+        return;
+      }
+      encode(c);
+      return;
+    }
+    ensureCapacity(6);
+    var buffer = this.buffer;
+    var escape = ESCAPES[c];
+    if (escape != 0) {
+      buffer[size] = '\\';
+      buffer[size + 1] = escape;
+      size += 2;
+      return;
+    }
+    if (c < 0x20) {
+      unicodeEscape(c);
+      return;
+    }
+    buffer[size++] = (byte) c;
+  }
+
+  private void unicodeEscape(char c) {
+    ensureCapacity(6);
+    var buffer = this.buffer;
+    buffer[size] = '\\';
+    buffer[size + 1] = 'u';
+    buffer[size + 2] = HEX_DIGITS[c >> 12];
+    buffer[size + 3] = HEX_DIGITS[c >> 8 & 0xF];
+    buffer[size + 4] = HEX_DIGITS[c >> 4 & 0xF];
+    buffer[size + 5] = HEX_DIGITS[c & 0xF];
+    size += 6;
+  }
+
+  // the two digits of the numbers from 0 to 99
+  private static final byte[] DIGITS = new byte[200];
+  static {
+    for(var i = 0; i < 100; i++) {
+      DIGITS[i << 1] = (byte) ('0' + i / 10);
+      DIGITS[(i << 1) + 1] = (byte) ('0' + i % 10);
+    }
+  }
+
+  private static int digitCount(long value) {
+    var count = 1;
+    for(var pow = 10L; count < 19 && value >= pow; pow *= 10) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Appends the decimal digits of an int, without creating a string.
+   * @param value an int.
+   * @return this output.
+   */
+  public JSONOutput appendInt(int value) {
+    return appendLong(value);
+  }
+
+  /**
+   * Appends the decimal digits of a long, without creating a string.
+   * @param value a long.
+   * @return this output.
+   */
+  public JSONOutput appendLong(long value) {
+    ensureCapacity(20);
+    var buffer = this.buffer;
+    if (value < 0) {
+      if (value == Long.MIN_VALUE) {
+        return append("-9223372036854775808");
+      }
+      buffer[size++] = '-';
+      value = -value;
+    }
+    var end = size + digitCount(value);
+    var index = end;
+    while (value >= 100) {
+      var pair = (int) (value % 100) << 1;
+      value /= 100;
+      buffer[--index] = DIGITS[pair + 1];
+      buffer[--index] = DIGITS[pair];
+    }
+    var pair = (int) value << 1;
+    buffer[--index] = DIGITS[pair + 1];
+    if (value >= 10) {
+      buffer[--index] = DIGITS[pair];
+    }
+    size = end;
+    return this;
+  }
+
+  /**
+   * Appends the shortest decimal that rounds to a float, without creating a string.
+   * The text is the same as {@link Float#toString(float)}.
+   * @param value a float.
+   * @return this output.
+   */
+  public JSONOutput appendFloat(float value) {
+    ensureCapacity(FloatToDecimal.MAX_LENGTH);
+    size = FloatToDecimal.write(buffer, size, value);
+    return this;
+  }
+
+  /**
+   * Appends the shortest decimal that rounds to a double, without creating a string.
+   * The text is the same as {@link Double#toString(double)}.
+   * @param value a double.
+   * @return this output.
+   */
+  public JSONOutput appendDouble(double value) {
+    ensureCapacity(DoubleToDecimal.MAX_LENGTH);
+    size = DoubleToDecimal.write(buffer, size, value);
+    return this;
+  }
+
+  /**
+   * Increments the indentation depth used by {@link #newLine()}.
+   * @return this output.
+   */
+  public JSONOutput indent() {
+    depth++;
+    return this;
+  }
+
+  /**
+   * Decrements the indentation depth used by {@link #newLine()}.
+   * @return this output.
+   */
+  public JSONOutput dedent() {
+    depth--;
+    return this;
+  }
+
+  /**
+   * Appends a new line followed by two spaces per level of indentation.
+   * @return this output.
+   */
+  public JSONOutput newLine() {
+    var length = 1 + (depth << 1);
+    ensureCapacity(length);
+    buffer[size] = '\n';
+    Arrays.fill(buffer, size + 1, size + length, (byte) ' ');
+    size += length;
+    return this;
+  }
+
+  /**
+   * Returns the buffers to the {@link BufferPool}, the output can not be used after.
+   */
+  void release() {
+    BufferPool.release(buffer);
+    buffer = null;
+    if (chars != null) {
+      BufferPool.release(chars);
+      BufferPool.release(bytes);
+      chars = null;
+      bytes = null;
+    }
+  }
+
+  /**
+   * Returns a copy of the bytes kept in memory.
+   * @return a copy of the bytes kept in memory.
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * Returns the JSON text kept in memory.
+   * @return the JSON text kept in memory.
+   */
+  @Override
+  public String toString() {
+    return new String(buffer, 0, size, UTF_8);
+  }
+}
@@ -1,7 +1,1049 @@
 package com.github.forax.framework.mapper;
 
+import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
+import com.github.forax.framework.mapper.ToyJSONParser.KeyTable;
+import com.github.forax.framework.mapper.ToyJSONParser.KeyedVisitor;
+import com.github.forax.framework.mapper.ToyJSONParser.PullParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.lang.invoke.MethodType.methodType;
+
 public class JSONReader {
-  public Object parseJSON(String text, Class<?> beanClass) {
-    throw new UnsupportedOperationException("TODO");
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * Describes how to create an object from a JSON object or a JSON array.
+   *
+   * @param qualifier returns the type of the value of a key.
+   * @param supplier creates the data that will be populated.
+   * @param populater inserts a key / value into the data.
+   * @param finisher transforms the data into the resulting object.
+   * @param <B> the type of the data.
+   */
+  public record Collector<B>(Function<? super String, ? extends Type> qualifier,
+                             Supplier<? extends B> supplier, Populater<B> populater, Function<? super B, ?> finisher) {
+    public interface Populater<B> {
+      void populate(B builder, String key, Object value);
+    }
+
+    public Collector {
+      Objects.requireNonNull(qualifier);
+      Objects.requireNonNull(supplier);
+      Objects.requireNonNull(populater);
+      Objects.requireNonNull(finisher);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collector<Object> raw() {
+      return (Collector<Object>) (Collector<?>) this;
+    }
+
+    /**
+     * Returns a collector that creates a Java bean using its default constructor
+     * and calls the setter corresponding to each key.
+     *
+     * @param beanClass the class of the bean.
+     * @return a collector of beans.
+     */
+    public static Collector<Object> bean(Class<?> beanClass) {
+      Objects.requireNonNull(beanClass);
+      var codecCollector = codecCollector(beanClass);
+      if(codecCollector != null){
+        return codecCollector;
+      }
+      var plan = BEAN_PLANS.get(beanClass);
+      return new Collector<>(plan::type, plan::newInstance, plan, Function.identity());
+    }
+
+    /**
+     * Returns a collector that creates an unmodifiable list.
+     *
+     * @param elementType the type of the elements.
+     * @return a collector of lists.
+     */
+    public static Collector<List<Object>> list(Type elementType) {
+      Objects.requireNonNull(elementType);
+      return new Collector<>(key -> elementType, ArrayList::new, (list, key, value) -> list.add(value),
+          Collections::unmodifiableList);
+    }
+
+    /**
+     * Returns a collector that stores the values of the record components in typed slots
+     * and calls the canonical constructor once all the values are known.
+     * The components that have no value are initialized to their default value.
+     *
+     * @param recordClass the class of the record.
+     * @return a collector of records.
+     */
+    public static Collector<Object> record(Class<?> recordClass) {
+      Objects.requireNonNull(recordClass);
+      var codecCollector = codecCollector(recordClass);
+      if(codecCollector != null){
+        return codecCollector;
+      }
+      var plan = RECORD_PLANS.get(recordClass);
+      return new Collector<>(plan::type, plan::newSlots, plan, plan::newInstance);
+    }
+
+    /**
+     * Returns a collector that delegates to the codec generated at compile time for a class.
+     * @return a collector or null if the class has no codec.
+     */
+    private static Collector<Object> codecCollector(Class<?> type) {
+      if(Codecs.codec(type) == null){
+        return null;
+      }
+      var plan = CODEC_PLANS.get(type);
+      return new Collector<>(plan::type, plan.codec::newBuilder, plan, plan.codec::build);
+    }
+  }
+
+  /**
+   * The binding of the keys of a class computed once, a table that associates a key to a slot
+   * and for each slot, its type and how to set its value.
+   * The keys are stored in a {@link KeyTable}, so the parser recognizes them in place
+   * and binding a value costs neither a reflective call nor an allocation.
+   * The integers and the doubles can be bound without being boxed.
+   */
+  private static abstract sealed class BindingPlan implements Collector.Populater<Object> permits BeanPlan, RecordPlan, CodecPlan {
+    private final Class<?> type;
+    final KeyTable keyTable;
+    final Type[] types;
+    final boolean rawValues;  // true if a value is bound as a JSONValue
+
+    private BindingPlan(Class<?> type, List<String> names, Type[] types) {
+      this.type = type;
+      this.types = types;
+      this.rawValues = Arrays.asList(types).contains(JSONValue.class);
+      try {
+        keyTable = new KeyTable(names);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException(e.getMessage() + " in " + type.getName(), e);
+      }
+    }
+
+    /**
+     * Returns the slot of a key.
+     * @throws IllegalStateException if the key is unknown.
+     */
+    final int slot(String key) {
+      var slot = keyTable.slot(key);
+      if(slot == -1){
+        throw new IllegalStateException("unknown key " + key + " for " + type.getName());
+      }
+      return slot;
+    }
+
+    final Type type(String key) {
+      return types[slot(key)];
+    }
+
+    /**
+     * Returns the exception thrown when a value can not be bound to the type of a key,
+     * by example null or a string for a primitive type.
+     */
+    final IllegalStateException invalidValue(String key, Object value) {
+      return new IllegalStateException("invalid value " + value + " for key " + key
+          + " of type " + types[slot(key)].getTypeName() + " for " + type.getName());
+    }
+
+    /**
+     * Binds an integer without boxing it if the type of the slot is a primitive type.
+     */
+    abstract void populateLong(Object data, String key, long value);
+
+    /**
+     * Binds a double without boxing it if the type of the slot is a primitive type.
+     */
+    abstract void populateDouble(Object data, String key, double value);
+  }
+
+  /**
+   * Boxes an integer like the parser does, as an Integer if it fits in 32 bits, as a Long otherwise.
+   */
+  private static Object box(long value) {
+    return value == (int) value? (Object) (int) value: (Object) value;
+  }
+
+  private static final class BeanPlan extends BindingPlan {
+    private final MethodHandle constructor;  // ()Object
+    private final MethodHandle[] setters;  // (Object, Object)void
+    private final MethodHandle[] longSetters;  // (Object, long)void or null
+    private final MethodHandle[] doubleSetters;  // (Object, double)void or null
+
+    private BeanPlan(Class<?> type, List<String> names, Type[] types, MethodHandle constructor,
+                     MethodHandle[] setters, MethodHandle[] longSetters, MethodHandle[] doubleSetters) {
+      super(type, names, types);
+      this.constructor = constructor;
+      this.setters = setters;
+      this.longSetters = longSetters;
+      this.doubleSetters = doubleSetters;
+    }
+
+    Object newInstance() {
+      try {
+        return (Object) constructor.invokeExact();
+      } catch (Throwable t) {
+        throw Utils.rethrow(t);
+      }
+    }
+
+    @Override
+    public void populate(Object bean, String key, Object value) {
+      var slot = slot(key);
+      if(types[slot] instanceof Class<?> parameterType && parameterType.isPrimitive() && !isConvertible(parameterType, value)){
+        throw invalidValue(key, value);
+      }
+      var setter = setters[slot];
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw Utils.rethrow(t);
+      }
+    }
+
+    @Override
+    void populateLong(Object bean, String key, long value) {
+      var setter = longSetters[slot(key)];
+      if(setter == null){
+        populate(bean, key, box(value));
+        return;
+      }
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw Utils.rethrow(t);
+      }
+    }
+
+    @Override
+    void populateDouble(Object bean, String key, double value) {
+      var setter = doubleSetters[slot(key)];
+      if(setter == null){
+        populate(bean, key, value);
+        return;
+      }
+      try {
+        setter.invokeExact(bean, value);
+      } catch (Throwable t) {
+        throw Utils.rethrow(t);
+      }
+    }
+  }
+
+  /**
+   * The values of the components of a record being decoded, the values of the primitive components
+   * are stored in a long, the other values in an Object.
+   */
+  private record Slots(long[] primitives, Object[] references) { }
+
+  private static final class RecordPlan extends BindingPlan {
+    // how the value of a component is stored in the slots
+    private static final byte LONG = 0, DOUBLE = 1, BOOLEAN = 2, REFERENCE = 3;
+
+    private final MethodHandle constructor;  // (long[], Object[])Object
+    private final byte[] sorts;
+    private final int[] positions;  // the index of a component in the primitives or in the references
+    private final int primitiveCount;
+    private final int referenceCount;
+
+    private RecordPlan(Class<?> type, List<String> names, Type[] types, MethodHandle constructor,
+                       byte[] sorts, int[] positions, int primitiveCount, int referenceCount) {
+      super(type, names, types);
+      this.constructor = constructor;
+      this.sorts = sorts;
+      this.positions = positions;
+      this.primitiveCount = primitiveCount;
+      this.referenceCount = referenceCount;
+    }
+
+    Slots newSlots() {
+      // the zero bits are the default value of all primitive types
+      return new Slots(new long[primitiveCount], new Object[referenceCount]);
+    }
+
+    Object newInstance(Object data) {
+      var slots = (Slots) data;
+      try {
+        return (Object) constructor.invokeExact(slots.primitives, slots.references);
+      } catch (Throwable t) {
+        throw Utils.rethrow(t);
+      }
+    }
+
+    @Override
+    public void populate(Object data, String key, Object value) {
+      var slots = (Slots) data;
+      var slot = slot(key);
+      var position = positions[slot];
+      switch (sorts[slot]) {
+        case LONG -> slots.primitives[position] = switch (value) {
+          case Character c -> c;
+          case Number number -> number.longValue();
+          case null, default -> throw invalidValue(key, value);
+        };
+        case DOUBLE -> slots.primitives[position] = switch (value) {
+          case Number number -> Double.doubleToRawLongBits(number.doubleValue());
+          case null, default -> throw invalidValue(key, value);
+        };
+        case BOOLEAN -> slots.primitives[position] = switch (value) {
+          case Boolean b -> b? 1: 0;
+          case null, default -> throw invalidValue(key, value);
+        };
+        default -> slots.references[position] = value;
+      }
+    }
+
+    @Override
+    void populateLong(Object data, String key, long value) {
+      var slots = (Slots) data;
+      var slot = slot(key);
+      switch (sorts[slot]) {
+        case LONG -> slots.primitives[positions[slot]] = value;
+        case DOUBLE -> slots.primitives[positions[slot]] = Double.doubleToRawLongBits(value);
+        default -> populate(data, key, box(value));
+      }
+    }
+
+    @Override
+    void populateDouble(Object data, String key, double value) {
+      var slots = (Slots) data;
+      var slot = slot(key);
+      switch (sorts[slot]) {
+        case LONG -> slots.primitives[positions[slot]] = (long) value;
+        case DOUBLE -> slots.primitives[positions[slot]] = Double.doubleToRawLongBits(value);
+        default -> populate(data, key, value);
+      }
+    }
+
+    private static byte sort(Class<?> type) {
+      if(!type.isPrimitive()){
+        return REFERENCE;
+      }
+      if(type == boolean.class){
+        return BOOLEAN;
+      }
+      if(type == double.class || type == float.class){
+        return DOUBLE;
+      }
+      return LONG;
+    }
+
+    private static boolean isTrue(long value) {
+      return value != 0;
+    }
+
+    private static final MethodHandle LONG_GETTER, REFERENCE_GETTER, LONG_BITS_TO_DOUBLE, IS_TRUE;
+    static {
+      try {
+        LONG_GETTER = MethodHandles.arrayElementGetter(long[].class);
+        REFERENCE_GETTER = MethodHandles.arrayElementGetter(Object[].class);
+        LONG_BITS_TO_DOUBLE = LOOKUP.findStatic(Double.class, "longBitsToDouble", methodType(double.class, long.class));
+        IS_TRUE = LOOKUP.findStatic(RecordPlan.class, "isTrue", methodType(boolean.class, long.class));
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    /**
+     * Returns a method handle that reads the value of a component from the slots.
+     * @return a method handle typed (long[])type or (Object[])type.
+     */
+    private static MethodHandle getter(Class<?> type, byte sort, int position) {
+      return switch (sort) {
+        case LONG -> MethodHandles.explicitCastArguments(MethodHandles.insertArguments(LONG_GETTER, 1, position),
+            methodType(type, long[].class));
+        case DOUBLE -> MethodHandles.explicitCastArguments(
+            MethodHandles.filterReturnValue(MethodHandles.insertArguments(LONG_GETTER, 1, position), LONG_BITS_TO_DOUBLE),
+            methodType(type, long[].class));
+        case BOOLEAN -> MethodHandles.filterReturnValue(MethodHandles.insertArguments(LONG_GETTER, 1, position), IS_TRUE);
+        default -> MethodHandles.insertArguments(REFERENCE_GETTER, 1, position).asType(methodType(type, Object[].class));
+      };
+    }
+  }
+
+  /**
+   * The binding of a class that has a codec generated at compile time, the slots are the keys
+   * of the codec that can be read, each value is set by the codec without reflection.
+   */
+  private static final class CodecPlan extends BindingPlan {
+    private final JSONCodec<Object> codec;
+    private final int[] indexes;  // the index of the key in the codec for each slot
+
+    private CodecPlan(Class<?> type, List<String> names, Type[] types, JSONCodec<Object> codec, int[] indexes) {
+      super(type, names, types);
+      this.codec = codec;
+      this.indexes = indexes;
+    }
+
+    @Override
+    public void populate(Object builder, String key, Object value) {
+      codec.populate(builder, indexes[slot(key)], value);
+    }
+
+    @Override
+    void populateLong(Object builder, String key, long value) {
+      codec.populateLong(builder, indexes[slot(key)], value);
+    }
+
+    @Override
+    void populateDouble(Object builder, String key, double value) {
+      codec.populateDouble(builder, indexes[slot(key)], value);
+    }
+  }
+
+  private static final ClassValue<CodecPlan> CODEC_PLANS = new ClassValue<>() {
+    @Override
+    protected CodecPlan computeValue(Class<?> type) {
+      var codec = Codecs.codec(type);
+      var keys = codec.keys();
+      var names = new ArrayList<String>();
+      var types = new ArrayList<Type>();
+      var indexes = new ArrayList<Integer>();
+      for(var i = 0; i < keys.size(); i++){
+        var keyType = codec.type(i);
+        if(keyType == null){  // the key can only be written
+          continue;
+        }
+        names.add(keys.get(i));
+        types.add(keyType);
+        indexes.add(i);
+      }
+      return new CodecPlan(type, names, types.toArray(Type[]::new), codec,
+          indexes.stream().mapToInt(Integer::intValue).toArray());
+    }
+  };
+
+  private static String keyName(String name, JSONProperty annotation) {
+    if(annotation != null){
+      return annotation.value();
+    }
+    return name;
+  }
+
+  /**
+   * Returns a method handle that converts a value decoded by the parser to a type,
+   * the numbers are converted using the methods of {@link Number}, so an integer can be
+   * assigned to a double or a long.
+   */
+  private static MethodHandle converter(Class<?> type) {
+    if(type.isPrimitive() && type != boolean.class && type != char.class){
+      try {
+        var name = type.getName() + "Value";
+        return LOOKUP.findVirtual(Number.class, name, methodType(type)).asType(methodType(type, Object.class));
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        throw new AssertionError(e);
+      }
+    }
+    return MethodHandles.identity(Object.class).asType(methodType(type, Object.class));
+  }
+
+  /**
+   * Returns true if a value decoded by the parser can be converted to a primitive type
+   * by the method handle returned by {@link #converter(Class)}.
+   */
+  private static boolean isConvertible(Class<?> type, Object value) {
+    if(type == boolean.class){
+      return value instanceof Boolean;
+    }
+    if(type == char.class){
+      return value instanceof Character;
+    }
+    return value instanceof Number;
+  }
+
+  private static final ClassValue<BeanPlan> BEAN_PLANS = new ClassValue<>() {
+    @Override
+    protected BeanPlan computeValue(Class<?> type) {
+      var properties = Arrays.stream(Utils.beanInfo(type).getPropertyDescriptors())
+          .filter(property -> property.getWriteMethod() != null)
+          .toList();
+      var names = new ArrayList<String>();
+      var types = new Type[properties.size()];
+      var setters = new MethodHandle[properties.size()];
+      var longSetters = new MethodHandle[properties.size()];
+      var doubleSetters = new MethodHandle[properties.size()];
+      for(var i = 0; i < properties.size(); i++){
+        var setter = properties.get(i).getWriteMethod();
+        names.add(keyName(properties.get(i).getName(), setter.getAnnotation(JSONProperty.class)));
+        types[i] = setter.getGenericParameterTypes()[0];
+        var mh = Utils.unreflect(LOOKUP, setter);
+        var parameterType = setter.getParameterTypes()[0];
+        setters[i] = MethodHandles.filterArguments(mh, 1, converter(parameterType))
+            .asType(methodType(void.class, Object.class, Object.class));
+        if(parameterType.isPrimitive() && parameterType != boolean.class && parameterType != char.class){
+          // the numbers are converted like with the methods of Number
+          longSetters[i] = MethodHandles.explicitCastArguments(mh, methodType(void.class, Object.class, long.class));
+          doubleSetters[i] = MethodHandles.explicitCastArguments(mh, methodType(void.class, Object.class, double.class));
+        }
+      }
+      var constructor = Utils.unreflectConstructor(LOOKUP, Utils.defaultConstructor(type))
+          .asType(methodType(Object.class));
+      return new BeanPlan(type, names, types, constructor, setters, longSetters, doubleSetters);
+    }
+  };
+
+  private static final ClassValue<RecordPlan> RECORD_PLANS = new ClassValue<>() {
+    @Override
+    protected RecordPlan computeValue(Class<?> type) {
+      var components = type.getRecordComponents();
+      var names = Arrays.stream(components)
+          .map(component -> keyName(component.getName(), component.getAnnotation(JSONProperty.class)))
+          .toList();
+      var types = Arrays.stream(components).map(component -> component.getGenericType()).toArray(Type[]::new);
+      var sorts = new byte[components.length];
+      var positions = new int[components.length];
+      var getters = new MethodHandle[components.length];
+      var reorder = new int[components.length];
+      int primitiveCount = 0, referenceCount = 0;
+      for(var i = 0; i < components.length; i++){
+        var componentType = components[i].getType();
+        var sort = RecordPlan.sort(componentType);
+        sorts[i] = sort;
+        positions[i] = sort == RecordPlan.REFERENCE? referenceCount++: primitiveCount++;
+        getters[i] = RecordPlan.getter(componentType, sort, positions[i]);
+        reorder[i] = sort == RecordPlan.REFERENCE? 1: 0;
+      }
+      // the canonical constructor reads each component from the slots
+      var constructor = Utils.unreflectConstructor(LOOKUP, Utils.canonicalConstructor(type, components));
+      constructor = MethodHandles.filterArguments(constructor, 0, getters);
+      constructor = constructor.asType(constructor.type().changeReturnType(Object.class));
+      constructor = MethodHandles.permuteArguments(constructor,
+          methodType(Object.class, long[].class, Object[].class), reorder);
+      return new RecordPlan(type, names, types, constructor, sorts, positions, primitiveCount, referenceCount);
+    }
+  };
+
+  /**
+   * Recognizes a type and provides the collector to use to decode a value of that type.
+   */
+  @FunctionalInterface
+  public interface TypeMatcher {
+    Optional<Collector<?>> match(Type type);
+  }
+
+  private final ArrayList<TypeMatcher> typeMatchers = new ArrayList<>();
+  private final ConcurrentHashMap<Type, Collector<?>> collectors = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a type matcher, the type matchers are called in reverse order of their insertion.
+   * @param typeMatcher a type matcher.
+   */
+  public void addTypeMatcher(TypeMatcher typeMatcher) {
+    Objects.requireNonNull(typeMatcher);
+    typeMatchers.add(typeMatcher);
+    collectors.clear();
+  }
+
+  /**
+   * Returns the collector of a type, if no type matcher recognizes the type, the type is decoded as a bean.
+   * The collectors are cached, so the type matchers are called once per type.
+   */
+  private Collector<?> findCollector(Type type) {
+    return collectors.computeIfAbsent(type, t -> Utils.reverseList(typeMatchers).stream()
+        .flatMap(typeMatcher -> typeMatcher.match(t).stream())
+        .findFirst()
+        .orElseGet(() -> Collector.bean(Utils.erase(t))));
+  }
+
+  private record Context(Collector<Object> collector, Object data, BindingPlan plan) {
+    private void populate(String key, Object value) {
+      collector.populater().populate(data, key, value);
+    }
+
+    private void populateLong(String key, long value) {
+      if(plan == null){
+        populate(key, box(value));
+        return;
+      }
+      plan.populateLong(data, key, value);
+    }
+
+    private void populateDouble(String key, double value) {
+      if(plan == null){
+        populate(key, value);
+        return;
+      }
+      plan.populateDouble(data, key, value);
+    }
+
+    private Object finish() {
+      return collector.finisher().apply(data);
+    }
+
+    private static Context createContext(Collector<Object> collector) {
+      var plan = collector.populater() instanceof BindingPlan bindingPlan? bindingPlan: null;
+      return new Context(collector, collector.supplier().get(), plan);
+    }
+  }
+
+  /**
+   * A visitor that binds the values using a stack of collectors, the collector of the root value
+   * is provided by a supplier, the collectors of the other values are found using the type matchers.
+   */
+  private class BindingVisitor implements KeyedVisitor {
+    private final ArrayDeque<Context> stack = new ArrayDeque<>();
+    private final Supplier<Collector<Object>> rootCollector;
+    private Object result;
+
+    private BindingVisitor(Supplier<Collector<Object>> rootCollector) {
+      this.rootCollector = rootCollector;
+    }
+
+    @Override
+    public KeyTable keyTable() {
+      var plan = stack.peek().plan;
+      return plan == null? null: plan.keyTable;
+    }
+
+    @Override
+    public boolean rawValue(String key) {
+      var context = stack.peek();
+      return (context.plan == null || context.plan.rawValues)
+          && context.collector.qualifier().apply(key) == JSONValue.class;
+    }
+
+    @Override
+    public void value(String key, Object value) {
+      stack.peek().populate(key, value);
+    }
+
+    @Override
+    public void longValue(String key, long value) {
+      stack.peek().populateLong(key, value);
+    }
+
+    @Override
+    public void doubleValue(String key, double value) {
+      stack.peek().populateDouble(key, value);
+    }
+
+    @Override
+    public void startObject(String key) {
+      start(key);
+    }
+
+    @Override
+    public void endObject(String key) {
+      end(key);
+    }
+
+    @Override
+    public void startArray(String key) {
+      start(key);
+    }
+
+    @Override
+    public void endArray(String key) {
+      end(key);
+    }
+
+    private void start(String key) {
+      var currentContext = stack.peek();
+      var collector = currentContext == null?
+          rootCollector.get():
+          findCollector(currentContext.collector.qualifier().apply(key)).raw();
+      stack.push(Context.createContext(collector));
+    }
+
+    private void end(String key) {
+      var result = stack.pop().finish();
+      if(stack.isEmpty()){
+        this.result = result;
+      }
+      else{
+        stack.peek().populate(key, result);
+      }
+    }
+  }
+
+  public <T> T parseJSON(String text, Class<T> expectedClass) {
+    return expectedClass.cast(parseJSON(text, (Type) expectedClass));
+  }
+
+  public Object parseJSON(String text, Type expectedType) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(expectedType);
+    if(expectedType == JSONValue.class){
+      return JSONValue.parse(text);
+    }
+    var visitor = new BindingVisitor(() -> findCollector(expectedType).raw());
+    ToyJSONParser.parse(text, visitor);
+    return visitor.result;
+  }
+
+  public <T> T parseBinary(byte[] data, Class<T> expectedClass) {
+    return expectedClass.cast(parseBinary(data, (Type) expectedClass));
+  }
+
+  /**
+   * Decodes a value written by {@link JSONWriter#toBinary(Object)}.
+   * The values are bound by the same collectors as the values of {@link #parseJSON(String, Type)},
+   * so the type matchers are used the same way.
+   * Like with {@link #parseJSON(String, Type)}, the value is an object or an array.
+   *
+   * @param data the binary encoding of a value.
+   * @param expectedType the type of the value.
+   * @return the decoded value.
+   * @throws IllegalStateException if the data is not a valid binary encoding of an object or an array.
+   */
+  public Object parseBinary(byte[] data, Type expectedType) {
+    Objects.requireNonNull(data);
+    Objects.requireNonNull(expectedType);
+    if(expectedType == JSONValue.class){
+      return JSONValue.parse(BinaryParser.toJSON(data));
+    }
+    var visitor = new BindingVisitor(() -> findCollector(expectedType).raw());
+    BinaryParser.parse(data, visitor);
+    return visitor.result;
+  }
+
+  /**
+   * Returns a stream of the elements of a JSON array read from an input stream encoded in UTF-8.
+   * @see #streamArray(InputStream, Type)
+   */
+  public <T> Stream<T> streamArray(InputStream input, Class<T> elementClass) {
+    Objects.requireNonNull(elementClass);
+    return streamArray(input, (Type) elementClass).map(elementClass::cast);
+  }
+
+  /**
+   * Returns a stream of the elements of a JSON array read from an input stream encoded in UTF-8.
+   * The input is read by chunks and each element is bound when the stream asks for it,
+   * so neither the whole text nor the whole array is in memory.
+   * The input stream is not closed by the stream.
+   *
+   * @param input an input stream containing a JSON array.
+   * @param elementType the type of the elements.
+   * @return a sequential stream of the elements.
+   * @throws IllegalStateException when the stream is consumed if the text is not a valid JSON array.
+   */
+  public Stream<Object> streamArray(InputStream input, Type elementType) {
+    Objects.requireNonNull(input);
+    Objects.requireNonNull(elementType);
+    return streamArray(visitor -> ToyJSONParser.pullParser(input, visitor), elementType);
+  }
+
+  /**
+   * Returns a stream of the elements of a JSON array read from a reader.
+   * @see #streamArray(Reader, Type)
+   */
+  public <T> Stream<T> streamArray(Reader input, Class<T> elementClass) {
+    Objects.requireNonNull(elementClass);
+    return streamArray(input, (Type) elementClass).map(elementClass::cast);
+  }
+
+  /**
+   * Returns a stream of the elements of a JSON array read from a reader.
+   * The characters are read by chunks and each element is bound when the stream asks for it,
+   * so neither the whole text nor the whole array is in memory.
+   * The reader is not closed by the stream.
+   *
+   * @param input a reader containing a JSON array.
+   * @param elementType the type of the elements.
+   * @return a sequential stream of the elements.
+   * @throws IllegalStateException when the stream is consumed if the text is not a valid JSON array.
+   */
+  public Stream<Object> streamArray(Reader input, Type elementType) {
+    Objects.requireNonNull(input);
+    Objects.requireNonNull(elementType);
+    return streamArray(visitor -> ToyJSONParser.pullParser(input, visitor), elementType);
+  }
+
+  private Stream<Object> streamArray(Function<? super JSONVisitor, ? extends PullParser> parserFactory, Type elementType) {
+    var spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+      private Object element;
+      private boolean hasElement;
+      private boolean done;
+
+      // the root array is not collected, its elements are handed one by one to the spliterator
+      private final Collector<Object> arrayCollector = new Collector<>(key -> elementType, () -> null,
+          (data, key, value) -> {
+            element = value;
+            hasElement = true;
+          },
+          data -> null);
+      private final PullParser parser = parserFactory.apply(new BindingVisitor(() -> arrayCollector) {
+        @Override
+        public void startObject(String key) {
+          if(super.stack.isEmpty()){
+            throw new IllegalStateException("the root of the JSON text is not an array");
+          }
+          super.startObject(key);
+        }
+      });
+
+      @Override
+      public boolean tryAdvance(Consumer<? super Object> action) {
+        while(!hasElement){
+          if(done){
+            return false;
+          }
+          done = !parser.next();
+        }
+        var element = this.element;
+        this.element = null;
+        hasElement = false;
+        action.accept(element);
+        return true;
+      }
+    };
+    return StreamSupport.stream(spliterator, false);
+  }
+
+  /**
+   * Returns a parallel stream of the values of a file in the JSON Lines format.
+   * @see #streamLines(Path, Type)
+   */
+  public <T> Stream<T> streamLines(Path path, Class<T> elementClass) {
+    Objects.requireNonNull(elementClass);
+    return streamLines(path, (Type) elementClass).map(elementClass::cast);
+  }
+
+  /**
+   * Returns a parallel stream of the values of a file in the JSON Lines format,
+   * a JSON object or a JSON array per line, encoded in UTF-8. The blank lines are ignored.
+   * The file is memory mapped and split at newline boundaries, each part being bound by a different thread,
+   * the values are bound like the values of {@link #parseJSON(String, Type)}.
+   * The stream must be closed to close the file.
+   *
+   * <pre>
+   *   try(var stream = reader.streamLines(path, Person.class)) {
+   *     ...
+   *   }
+   * </pre>
+   *
+   * @param path the path of the file.
+   * @param elementType the type of the values.
+   * @return a parallel stream of the values.
+   * @throws UncheckedIOException if the file can not be opened or read.
+   * @throws IllegalStateException when the stream is consumed if a line is not a valid JSON text.
+   */
+  public Stream<Object> streamLines(Path path, Type elementType) {
+    Objects.requireNonNull(path);
+    Objects.requireNonNull(elementType);
+    FileChannel channel;
+    long size;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      size = channel.size();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return StreamSupport.stream(new LineSpliterator(channel, elementType, 0, size), true)
+        .onClose(() -> {
+          try {
+            channel.close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  /**
+   * A spliterator on the lines of a file between two positions, the positions are at the start of a line.
+   * The lines are read from a window of the file mapped in memory and bound one by one.
+   * The spliterator is split at the first newline after the middle of its range.
+   */
+  private final class LineSpliterator implements Spliterator<Object> {
+    private static final int MIN_SPLIT_SIZE = 1 << 16;
+    private static final int WINDOW_SIZE = 1 << 24;
+
+    private final FileChannel channel;
+    private final Type elementType;
+    private long position;
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private LineSpliterator(FileChannel channel, Type elementType, long position, long end) {
+      this.channel = channel;
+      this.elementType = elementType;
+      this.position = position;
+      this.end = end;
+    }
+
+    private void map(long start, long size) {
+      try {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, end - start));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      windowStart = start;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Object> action) {
+      for(;;){
+        if(position >= end){
+          return false;
+        }
+        if(window == null || position >= windowStart + window.limit()){
+          map(position, WINDOW_SIZE);
+        }
+        var window = this.window;
+        var from = (int) (position - windowStart);
+        var newline = indexOfNewline(window, from);
+        if(newline == -1){
+          if(windowStart + window.limit() < end){
+            // the line is longer than the window
+            if(window.limit() == Integer.MAX_VALUE){
+              throw new IllegalStateException("line too long at " + position);
+            }
+            map(position, Math.min(2L * window.limit(), Integer.MAX_VALUE));
+            continue;
+          }
+          newline = window.limit();  // last line without a newline
+        }
+        var lineStart = position;
+        position = windowStart + newline + 1;
+        var line = window.slice(from, newline - from);
+        if(isBlank(line)){
+          continue;
+        }
+        action.accept(bind(line, lineStart));
+        return true;
+      }
+    }
+
+    private static int indexOfNewline(MappedByteBuffer window, int from) {
+      var limit = window.limit();
+      for(var i = from; i < limit; i++){
+        if(window.get(i) == '\n'){
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private static boolean isBlank(ByteBuffer line) {
+      for(var i = 0; i < line.limit(); i++){
+        var b = line.get(i);
+        if(b != ' ' && b != '\t' && b != '\r'){
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Object bind(ByteBuffer line, long lineStart) {
+      var visitor = new BindingVisitor(() -> findCollector(elementType).raw());
+      try {
+        ToyJSONParser.parse(line, visitor);
+      } catch (IllegalStateException e) {
+        throw new IllegalStateException(e.getMessage() + "\n while parsing the line at " + lineStart, e);
+      }
+      return visitor.result;
+    }
+
+    /**
+     * Returns the position after the first newline found from a position, or the end if there is none.
+     */
+    private long nextLine(long from) {
+      var bytes = BufferPool.leaseBytes();
+      try {
+        var buffer = ByteBuffer.wrap(bytes);
+        for(var position = from; position < end;){
+          buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+          int read;
+          try {
+            read = channel.read(buffer, position);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          if(read == -1){
+            return end;
+          }
+          for(var i = 0; i < read; i++){
+            if(bytes[i] == '\n'){
+              return position + i + 1;
+            }
+          }
+          position += read;
+        }
+        return end;
+      } finally {
+        BufferPool.release(bytes);
+      }
+    }
+
+    @Override
+    public Spliterator<Object> trySplit() {
+      var size = end - position;
+      if(size < MIN_SPLIT_SIZE){
+        return null;
+      }
+      var split = nextLine(position + size / 2);
+      if(split >= end){
+        return null;
+      }
+      var prefix = new LineSpliterator(channel, elementType, position, split);
+      position = split;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED;
+    }
+  }
+
+  /**
+   * Captures a type, used as an anonymous class.
+   * <pre>
+   *   var list = reader.parseJSON(text, new TypeReference&lt;List&lt;Integer&gt;&gt;() {});
+   * </pre>
+   *
+   * @param <T> the type to capture.
+   */
+  public interface TypeReference<T> { }
+
+  static Type typeArgument(TypeReference<?> typeReference) {
+    var typeReferenceType = Arrays.stream(typeReference.getClass().getGenericInterfaces())
+        .flatMap(type -> type instanceof ParameterizedType parameterizedType? Stream.of(parameterizedType): Stream.empty())
+        .filter(type -> type.getRawType() == TypeReference.class)
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("invalid type reference " + typeReference.getClass().getName()));
+    return typeReferenceType.getActualTypeArguments()[0];
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T parseJSON(String text, TypeReference<T> typeReference) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(typeReference);
+    return (T) parseJSON(text, typeArgument(typeReference));
   }
 }
@@ -0,0 +1,18 @@
+package com.github.forax.framework.mapper;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Asks the {@link JSONCodecProcessor} to generate at compile time a {@link JSONCodec}
+ * for a bean class or a record, so it is written and read without reflection.
+ * The annotated type must be a top level or a static nested type accessible from its package
+ * and must not be generic.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface JSONSerializable {
+}
@@ -0,0 +1,282 @@
+package com.github.forax.framework.mapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A JSON value decoded on demand, the value is a slice of the original JSON text,
+ * a string or UTF-8 bytes, that is only scanned when a member or an element is accessed.
+ * The positions of the members of an object or the elements of an array are computed
+ * the first time one of them is accessed, a number or a string is decoded the first time
+ * it is accessed, both are then cached.
+ *
+ * A JSON value is created from a JSON text using {@link #parse(String)} or by a {@link JSONReader}
+ * for a property or a record component typed as a JSON value.
+ * The content of a JSON value is not validated before being accessed,
+ * so an accessor may throw an {@link IllegalStateException} if the JSON text is not valid.
+ * A JSON value can be shared between threads, the decoded content may be computed more than once.
+ *
+ * <pre>
+ *   var value = JSONValue.parse(text);
+ *   var name = value.get("name").orElseThrow().asString();
+ * </pre>
+ */
+public final class JSONValue {
+  /**
+   * The kind of a JSON value.
+   */
+  public enum Kind {
+    OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL
+  }
+
+  private final Object source;  // a String or UTF-8 bytes
+  private final int start;
+  private final int end;
+
+  // the decoded content, a Container for an object or an array, a boxed value otherwise
+  private Object content;
+
+  /**
+   * The positions of the members or elements, the JSON values are created on demand.
+   * The keys of a large object are also indexed in a hash map.
+   */
+  private record Container(ToyJSONParser.Members members, JSONValue[] values, HashMap<String, Integer> indexes) { }
+
+  private static final int INDEX_THRESHOLD = 16;
+
+  JSONValue(Object source, int start, int end) {
+    this.source = source;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Returns the object or the array of a JSON text as a JSON value,
+   * only the boundaries of the object or the array are checked.
+   *
+   * @param text a JSON text.
+   * @return a JSON value.
+   * @throws IllegalStateException if the text is not an object or an array.
+   */
+  public static JSONValue parse(String text) {
+    Objects.requireNonNull(text);
+    return ToyJSONParser.lazyValue(text);
+  }
+
+  /**
+   * Returns the object or the array of a JSON text encoded in UTF-8 as a JSON value,
+   * the array is not copied.
+   *
+   * @param text a JSON text encoded in UTF-8.
+   * @return a JSON value.
+   * @throws IllegalStateException if the text is not an object or an array.
+   * @see #parse(String)
+   */
+  public static JSONValue parse(byte[] text) {
+    Objects.requireNonNull(text);
+    return ToyJSONParser.lazyValue(text);
+  }
+
+  private int firstChar() {
+    return source instanceof String string? string.charAt(start): ((byte[]) source)[start];
+  }
+
+  /**
+   * Returns the kind of the value, only its first character is read.
+   * @return the kind of the value.
+   */
+  public Kind kind() {
+    return switch (firstChar()) {
+      case '{' -> Kind.OBJECT;
+      case '[' -> Kind.ARRAY;
+      case '"' -> Kind.STRING;
+      case 't', 'f' -> Kind.BOOLEAN;
+      case 'n' -> Kind.NULL;
+      default -> Kind.NUMBER;
+    };
+  }
+
+  private IllegalStateException notA(Kind kind) {
+    return new IllegalStateException("not " + kind + " but " + kind());
+  }
+
+  private Container container() {
+    if (content instanceof Container container) {
+      return container;
+    }
+    var kind = kind();
+    if (kind != Kind.OBJECT && kind != Kind.ARRAY) {
+      throw new IllegalStateException("not an object or an array but " + kind);
+    }
+    var members = ToyJSONParser.members(source, start);
+    HashMap<String, Integer> indexes = null;
+    if (members.keys() != null && members.keys().length > INDEX_THRESHOLD) {
+      indexes = new HashMap<>();
+      var keys = members.keys();
+      for(var i = 0; i < keys.length; i++) {
+        indexes.put(keys[i], i);  // the last member wins
+      }
+    }
+    var container = new Container(members, new JSONValue[members.starts().length], indexes);
+    content = container;
+    return container;
+  }
+
+  private JSONValue value(Container container, int index) {
+    var value = container.values[index];
+    if (value == null) {
+      var members = container.members;
+      value = container.values[index] = new JSONValue(source, members.starts()[index], members.ends()[index]);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the number of members of an object or the number of elements of an array.
+   * @return the number of members or elements.
+   * @throws IllegalStateException if the value is not an object or an array.
+   */
+  public int size() {
+    return container().members.starts().length;
+  }
+
+  /**
+   * Returns the keys of an object in the order of the JSON text.
+   * @return an unmodifiable list of the keys.
+   * @throws IllegalStateException if the value is not an object.
+   */
+  public List<String> keys() {
+    var keys = container().members.keys();
+    if (keys == null) {
+      throw notA(Kind.OBJECT);
+    }
+    return List.of(keys);
+  }
+
+  /**
+   * Returns the value of a key of an object, if a key appears several times, the last value is returned.
+   * @param key a key.
+   * @return the value of the key or an empty optional if the object has no such key.
+   * @throws IllegalStateException if the value is not an object.
+   */
+  public Optional<JSONValue> get(String key) {
+    Objects.requireNonNull(key);
+    var container = container();
+    var keys = container.members.keys();
+    if (keys == null) {
+      throw notA(Kind.OBJECT);
+    }
+    if (container.indexes != null) {
+      var index = container.indexes.get(key);
+      return index == null? Optional.empty(): Optional.of(value(container, index));
+    }
+    for(var i = keys.length; --i >= 0;) {
+      if (keys[i].equals(key)) {
+        return Optional.of(value(container, i));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the element of an array at an index.
+   * @param index an index.
+   * @return the element at the index.
+   * @throws IllegalStateException if the value is not an array.
+   * @throws IndexOutOfBoundsException if the index is out of bounds.
+   */
+  public JSONValue get(int index) {
+    var container = container();
+    if (container.members.keys() != null) {
+      throw notA(Kind.ARRAY);
+    }
+    Objects.checkIndex(index, container.values.length);
+    return value(container, index);
+  }
+
+  private Object scalar(Kind kind) {
+    if (kind() != kind) {
+      throw notA(kind);
+    }
+    var content = this.content;
+    if (content == null) {
+      content = this.content = ToyJSONParser.scalar(source, start);
+    }
+    return content;
+  }
+
+  /**
+   * Returns true if the value is null.
+   * @return true if the value is null.
+   */
+  public boolean isNull() {
+    return kind() == Kind.NULL;
+  }
+
+  /**
+   * Returns the value of a string.
+   * @return the decoded string.
+   * @throws IllegalStateException if the value is not a string.
+   */
+  public String asString() {
+    return (String) scalar(Kind.STRING);
+  }
+
+  /**
+   * Returns the value of a boolean.
+   * @return the value of the boolean.
+   * @throws IllegalStateException if the value is not a boolean.
+   */
+  public boolean asBoolean() {
+    return (Boolean) scalar(Kind.BOOLEAN);
+  }
+
+  /**
+   * Returns the value of a number as an int.
+   * @return the value of the number.
+   * @throws IllegalStateException if the value is not a number.
+   * @throws ArithmeticException if the value is not an integer or does not fit in an int.
+   */
+  public int asInt() {
+    return Math.toIntExact(asLong());
+  }
+
+  /**
+   * Returns the value of a number as a long.
+   * @return the value of the number.
+   * @throws IllegalStateException if the value is not a number.
+   * @throws ArithmeticException if the value is not an integer.
+   */
+  public long asLong() {
+    var number = (Number) scalar(Kind.NUMBER);
+    if (number instanceof Double) {
+      throw new ArithmeticException("not an integer " + number);
+    }
+    return number.longValue();
+  }
+
+  /**
+   * Returns the value of a number as a double.
+   * @return the value of the number.
+   * @throws IllegalStateException if the value is not a number.
+   */
+  public double asDouble() {
+    return ((Number) scalar(Kind.NUMBER)).doubleValue();
+  }
+
+  /**
+   * Returns the JSON text of the value, as it appears in the original JSON text.
+   * @return the JSON text of the value.
+   */
+  @Override
+  public String toString() {
+    if (source instanceof String string) {
+      return string.substring(start, end);
+    }
+    return new String((byte[]) source, start, end - start, UTF_8);
+  }
+}
@@ -2,17 +2,34 @@ package com.github.forax.framework.mapper;
 
 import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+
+import static java.lang.invoke.MethodType.methodType;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public final class JSONWriter {
 
   private interface Generator {
-    String generate(JSONWriter writer, Object bean);
+    void generate(JSONWriter writer, Object bean, JSONOutput output);
   }
 
   private static List<PropertyDescriptor> beanProperties(Class<?> type) {
@@ -36,68 +53,1047 @@ public final class JSONWriter {
             .toList();
   }
 
-  private static final ClassValue<List<Generator>> PROPERTIES_CLASS_VALUE = new ClassValue<List<Generator>>() {
-    @Override
-    protected List<Generator> computeValue(Class<?> type) {
-      List<PropertyDescriptor> properties;
-      if(type.isRecord()){
-        properties = recordProperties(type);
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * Returns the type used to read and write a value of a property,
+   * the primitive types are kept to avoid boxing, short and byte are widened to int.
+   */
+  private static Class<?> valueType(Class<?> returnType) {
+    if(returnType == short.class || returnType == byte.class){
+      return int.class;
+    }
+    if(returnType == int.class || returnType == long.class || returnType == float.class
+        || returnType == double.class || returnType == boolean.class){
+      return returnType;
+    }
+    return Object.class;
+  }
+
+  /**
+   * Creates a generator that calls the getter through a method handle typed by the return type
+   * of the getter, so the primitive values are written without being boxed.
+   */
+  private static Generator generator(byte[] key, Method getter) {
+    var valueType = valueType(getter.getReturnType());
+    var accessor = Utils.unreflect(LOOKUP, getter).asType(methodType(valueType, Object.class));
+    if(valueType == int.class){
+      return (writer, bean, output) -> {
+        output.append(key);
+        writeInt(getInt(accessor, bean), output);
+      };
+    }
+    if(valueType == long.class){
+      return (writer, bean, output) -> {
+        output.append(key);
+        writeLong(getLong(accessor, bean), output);
+      };
+    }
+    if(valueType == float.class){
+      return (writer, bean, output) -> {
+        output.append(key);
+        writeFloat(getFloat(accessor, bean), output);
+      };
+    }
+    if(valueType == double.class){
+      return (writer, bean, output) -> {
+        output.append(key);
+        writeDouble(getDouble(accessor, bean), output);
+      };
+    }
+    if(valueType == boolean.class){
+      return (writer, bean, output) -> {
+        output.append(key);
+        writeBoolean(getBoolean(accessor, bean), output);
+      };
+    }
+    return (writer, bean, output) -> {
+      output.append(key);
+      writer.write(getObject(accessor, bean), output);
+    };
+  }
+
+  private static int getInt(MethodHandle accessor, Object bean) {
+    try {
+      return (int) accessor.invokeExact(bean);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private static long getLong(MethodHandle accessor, Object bean) {
+    try {
+      return (long) accessor.invokeExact(bean);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private static float getFloat(MethodHandle accessor, Object bean) {
+    try {
+      return (float) accessor.invokeExact(bean);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private static double getDouble(MethodHandle accessor, Object bean) {
+    try {
+      return (double) accessor.invokeExact(bean);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private static boolean getBoolean(MethodHandle accessor, Object bean) {
+    try {
+      return (boolean) accessor.invokeExact(bean);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private static Object getObject(MethodHandle accessor, Object bean) {
+    try {
+      return (Object) accessor.invokeExact(bean);
+    } catch (Throwable t) {
+      throw Utils.rethrow(t);
+    }
+  }
+
+  private record Property(String name, Method getter) { }
+
+  private static List<Property> properties(Class<?> type) {
+    List<PropertyDescriptor> properties;
+    if(type.isRecord()){
+      properties = recordProperties(type);
+    }
+    else{
+      properties = beanProperties(type);
+    }
+    return properties.stream()
+            .filter(property -> !property.getName().equals("class"))
+            .map(property -> {
+              var getter = property.getReadMethod();
+              var annotation = getter.getAnnotation(JSONProperty.class);
+              String keyName;
+              if(annotation != null){
+                keyName = annotation.value();
+              }
+              else{
+                keyName = property.getName();
+              }
+              return new Property(keyName, getter);
+            })
+            .toList();
+  }
+
+  /**
+   * The output modes of a writer, each mode has its own generators, so the mode is resolved
+   * once when the generators of a class are created and not each time a value is written.
+   */
+  private enum Style {
+    STANDARD(", ", ": ", false),
+    COMPACT(",", ":", false),
+    PRETTY_PRINT(",", ": ", true);
+
+    private final byte[] separator;
+    private final byte[] colon;
+    private final boolean indent;
+
+    private final ClassValue<Generator> objectGenerators = new ClassValue<>() {
+      @Override
+      protected Generator computeValue(Class<?> type) {
+        var codec = Codecs.codec(type);
+        return codec != null? codecGenerator(Style.this, codec): objectGenerator(Style.this, type);
+      }
+    };
+
+    private final ClassValue<Generator> codeGenerators = new ClassValue<>() {
+      @Override
+      protected Generator computeValue(Class<?> type) {
+        // a generated codec is already straight-line code
+        var codec = Codecs.codec(type);
+        return codec != null? codecGenerator(Style.this, codec): codeGenerator(Style.this, type);
+      }
+    };
+
+    Style(String separator, String colon, boolean indent) {
+      this.separator = separator.getBytes(UTF_8);
+      this.colon = colon.getBytes(UTF_8);
+      this.indent = indent;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of the prefix followed by the quoted and escaped key and the colon.
+     */
+    private byte[] keyBytes(byte[] prefix, String name) {
+      var output = new JSONOutput();
+      try {
+        return output.append(prefix).appendString(name).append(colon).toByteArray();
+      } finally {
+        output.release();
+      }
+    }
+
+    private void begin(char c, JSONOutput output) {
+      output.append(c);
+      if(indent){
+        output.indent();
+      }
+    }
+
+    private void element(int index, JSONOutput output) {
+      if(index != 0){
+        output.append(separator);
+      }
+      if(indent){
+        output.newLine();
+      }
+    }
+
+    private void end(char c, int count, JSONOutput output) {
+      if(indent){
+        output.dedent();
+        if(count != 0){
+          output.newLine();
+        }
+      }
+      output.append(c);
+    }
+  }
+
+  private static final byte[] NO_BYTES = new byte[0];
+
+  /**
+   * Creates a generator that loops over the generators of the properties, each one writing
+   * its pre-encoded key prefixed by the separator if it is not the first property.
+   */
+  private static Generator objectGenerator(Style style, Class<?> type) {
+    var properties = properties(type);
+    if(properties.isEmpty()){
+      return (writer, bean, output) -> output.append('{').append('}');
+    }
+    var generators = new ArrayList<Generator>();
+    for(var i = 0; i < properties.size(); i++){
+      var property = properties.get(i);
+      if(style.indent){
+        var separator = i == 0? NO_BYTES: style.separator;
+        var generator = generator(style.keyBytes(NO_BYTES, property.name), property.getter);
+        generators.add((writer, bean, output) -> {
+          output.append(separator).newLine();
+          generator.generate(writer, bean, output);
+        });
       }
       else{
-        properties = beanProperties(type);
-      }
-      return properties.stream()
-              .filter(property -> !property.getName().equals("class"))
-              .<Generator>map(property -> {
-                var getter = property.getReadMethod();
-                var annotation = getter.getAnnotation(JSONProperty.class);
-                String keyName;
-                if(annotation != null){
-                  keyName = annotation.value();
-                }
-                else{
-                  keyName = property.getName();
-                }
-                var key = "\"" + keyName + "\": ";
-                return (writer, bean) -> key + writer.toJSON(Utils.invokeMethod(bean, getter));
-              })
-              .toList();
+        generators.add(generator(style.keyBytes(i == 0? NO_BYTES: style.separator, property.name), property.getter));
+      }
+    }
+    var propertyGenerators = List.copyOf(generators);
+    if(style.indent){
+      return (writer, bean, output) -> {
+        output.append('{').indent();
+        for(var generator: propertyGenerators){
+          generator.generate(writer, bean, output);
+        }
+        output.dedent().newLine().append('}');
+      };
+    }
+    return (writer, bean, output) -> {
+      output.append('{');
+      for(var generator: propertyGenerators){
+        generator.generate(writer, bean, output);
+      }
+      output.append('}');
+    };
+  }
+
+  private static final MethodHandle APPEND_BYTES, INDENT, DEDENT, NEW_LINE, WRITE;
+  static {
+    try {
+      APPEND_BYTES = LOOKUP.findVirtual(JSONOutput.class, "append", methodType(JSONOutput.class, byte[].class));
+      INDENT = LOOKUP.findVirtual(JSONOutput.class, "indent", methodType(JSONOutput.class));
+      DEDENT = LOOKUP.findVirtual(JSONOutput.class, "dedent", methodType(JSONOutput.class));
+      NEW_LINE = LOOKUP.findVirtual(JSONOutput.class, "newLine", methodType(JSONOutput.class));
+      WRITE = LOOKUP.findVirtual(JSONWriter.class, "write", methodType(void.class, Object.class, JSONOutput.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Returns a method handle of type (JSONWriter, valueType, JSONOutput)void that writes a value.
+   */
+  private static MethodHandle valueWriter(Class<?> valueType) {
+    if(valueType == Object.class){
+      return WRITE;
+    }
+    var name = "write" + Character.toUpperCase(valueType.getName().charAt(0)) + valueType.getName().substring(1);
+    try {
+      var writer = LOOKUP.findStatic(JSONWriter.class, name, methodType(void.class, valueType, JSONOutput.class));
+      return MethodHandles.dropArguments(writer, 0, JSONWriter.class);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void writeInt(int value, JSONOutput output) {
+    output.appendInt(value);
+  }
+
+  private static void writeLong(long value, JSONOutput output) {
+    output.appendLong(value);
+  }
+
+  private static void writeFloat(float value, JSONOutput output) {
+    output.appendFloat(value);
+  }
+
+  private static void writeDouble(double value, JSONOutput output) {
+    output.appendDouble(value);
+  }
+
+  private static void writeBoolean(boolean value, JSONOutput output) {
+    output.append(value? "true": "false");
+  }
+
+  /**
+   * Returns a method handle of type (JSONOutput)void that appends constant bytes.
+   */
+  private static MethodHandle appender(byte[] bytes) {
+    return MethodHandles.insertArguments(APPEND_BYTES, 1, (Object) bytes)
+        .asType(methodType(void.class, JSONOutput.class));
+  }
+
+  /**
+   * Returns a method handle of type (JSONWriter, Object, JSONOutput)void that appends the prefix
+   * then reads the property and writes its value, the primitive values are not boxed.
+   */
+  private static MethodHandle step(byte[] prefix, Method getter) {
+    var valueType = valueType(getter.getReturnType());
+    var accessor = Utils.unreflect(LOOKUP, getter).asType(methodType(valueType, Object.class));
+    var step = MethodHandles.filterArguments(valueWriter(valueType), 1, accessor);
+    return MethodHandles.foldArguments(step, 2, appender(prefix));
+  }
+
+  /**
+   * Returns a method handle of type (JSONWriter, Object, JSONOutput)void that calls a method of JSONOutput.
+   */
+  private static MethodHandle outputStep(MethodHandle outputMethod) {
+    return MethodHandles.dropArguments(outputMethod.asType(methodType(void.class, JSONOutput.class)),
+        0, JSONWriter.class, Object.class);
+  }
+
+  private static Generator codeGenerator(Style style, Class<?> type) {
+    var properties = properties(type);
+    var steps = new ArrayList<MethodHandle>();
+    if(properties.isEmpty()){
+      steps.add(outputStep(appender("{}".getBytes(UTF_8))));
+      return HiddenClasses.asSequenceInstance(LOOKUP, Generator.class, steps);
+    }
+    if(style.indent){
+      steps.add(outputStep(appender("{".getBytes(UTF_8))));
+      steps.add(outputStep(INDENT));
+    }
+    for(var i = 0; i < properties.size(); i++){
+      var property = properties.get(i);
+      if(style.indent){
+        if(i != 0){
+          steps.add(outputStep(appender(style.separator)));
+        }
+        steps.add(outputStep(NEW_LINE));
+        steps.add(step(style.keyBytes(NO_BYTES, property.name), property.getter));
+      }
+      else{
+        var prefix = i == 0? "{".getBytes(UTF_8): style.separator;
+        steps.add(step(style.keyBytes(prefix, property.name), property.getter));
+      }
+    }
+    if(style.indent){
+      steps.add(outputStep(DEDENT));
+      steps.add(outputStep(NEW_LINE));
+    }
+    steps.add(outputStep(appender("}".getBytes(UTF_8))));
+    return HiddenClasses.asSequenceInstance(LOOKUP, Generator.class, steps);
+  }
+
+  /**
+   * An encoder that writes the properties of a codec as a JSON text, each key is pre-encoded
+   * with its colon and prefixed by the separator if it is not the first property written.
+   */
+  private static final class TextEncoder implements JSONCodec.Encoder {
+    private final Style style;
+    private final byte[][] keys;
+    private final JSONWriter writer;
+    private final JSONOutput output;
+    private int count;
+
+    private TextEncoder(Style style, byte[][] keys, JSONWriter writer, JSONOutput output) {
+      this.style = style;
+      this.keys = keys;
+      this.writer = writer;
+      this.output = output;
+    }
+
+    private void key(int index) {
+      style.element(count++, output);
+      output.append(keys[index]);
+    }
+
+    @Override
+    public void value(int index, Object value) {
+      key(index);
+      writer.write(value, output);
+    }
+
+    @Override
+    public void intValue(int index, int value) {
+      key(index);
+      writeInt(value, output);
+    }
+
+    @Override
+    public void longValue(int index, long value) {
+      key(index);
+      writeLong(value, output);
+    }
+
+    @Override
+    public void floatValue(int index, float value) {
+      key(index);
+      writeFloat(value, output);
+    }
+
+    @Override
+    public void doubleValue(int index, double value) {
+      key(index);
+      writeDouble(value, output);
+    }
+
+    @Override
+    public void booleanValue(int index, boolean value) {
+      key(index);
+      writeBoolean(value, output);
+    }
+  }
+
+  /**
+   * Creates a generator that delegates to a codec generated at compile time,
+   * so neither the properties nor the getters are discovered by reflection.
+   */
+  private static Generator codecGenerator(Style style, JSONCodec<Object> codec) {
+    var keys = codec.keys().stream()
+        .map(key -> style.keyBytes(NO_BYTES, key))
+        .toArray(byte[][]::new);
+    return (writer, bean, output) -> {
+      style.begin('{', output);
+      var encoder = new TextEncoder(style, keys, writer, output);
+      codec.encode(bean, encoder);
+      style.end('}', encoder.count, output);
+    };
+  }
+
+  private interface BinaryGenerator {
+    void generate(JSONWriter writer, Object bean, BinaryOutput output);
+  }
+
+  /**
+   * Creates a binary generator that calls the getter through a method handle typed by the return type
+   * of the getter, like {@link #generator(byte[], Method)}.
+   */
+  private static BinaryGenerator binaryGenerator(String key, Method getter) {
+    var valueType = valueType(getter.getReturnType());
+    var accessor = Utils.unreflect(LOOKUP, getter).asType(methodType(valueType, Object.class));
+    if(valueType == int.class){
+      return (writer, bean, output) -> output.appendKey(key).appendInt(getInt(accessor, bean));
+    }
+    if(valueType == long.class){
+      return (writer, bean, output) -> output.appendKey(key).appendLong(getLong(accessor, bean));
+    }
+    if(valueType == float.class){
+      return (writer, bean, output) -> output.appendKey(key).appendFloat(getFloat(accessor, bean));
+    }
+    if(valueType == double.class){
+      return (writer, bean, output) -> output.appendKey(key).appendDouble(getDouble(accessor, bean));
+    }
+    if(valueType == boolean.class){
+      return (writer, bean, output) -> output.appendKey(key).appendBoolean(getBoolean(accessor, bean));
+    }
+    return (writer, bean, output) -> {
+      output.appendKey(key);
+      writer.writeBinary(getObject(accessor, bean), output);
+    };
+  }
+
+  /**
+   * Creates a binary generator that loops over the binary generators of the properties,
+   * the properties are the same as the ones of the JSON text.
+   */
+  private static BinaryGenerator binaryObjectGenerator(Class<?> type) {
+    var generators = properties(type).stream()
+        .map(property -> binaryGenerator(property.name, property.getter))
+        .toList();
+    return (writer, bean, output) -> {
+      output.startObject();
+      for(var generator: generators){
+        generator.generate(writer, bean, output);
+      }
+      output.endObject();
+    };
+  }
+
+  /**
+   * An encoder that writes the properties of a codec as a binary encoding.
+   */
+  private record BinaryEncoder(String[] keys, JSONWriter writer, BinaryOutput output) implements JSONCodec.Encoder {
+    @Override
+    public void value(int index, Object value) {
+      output.appendKey(keys[index]);
+      writer.writeBinary(value, output);
+    }
+
+    @Override
+    public void intValue(int index, int value) {
+      output.appendKey(keys[index]).appendInt(value);
+    }
+
+    @Override
+    public void longValue(int index, long value) {
+      output.appendKey(keys[index]).appendLong(value);
+    }
+
+    @Override
+    public void floatValue(int index, float value) {
+      output.appendKey(keys[index]).appendFloat(value);
+    }
+
+    @Override
+    public void doubleValue(int index, double value) {
+      output.appendKey(keys[index]).appendDouble(value);
+    }
+
+    @Override
+    public void booleanValue(int index, boolean value) {
+      output.appendKey(keys[index]).appendBoolean(value);
+    }
+  }
+
+  /**
+   * Creates a binary generator that delegates to a codec generated at compile time.
+   */
+  private static BinaryGenerator binaryCodecGenerator(JSONCodec<Object> codec) {
+    var keys = codec.keys().toArray(String[]::new);
+    return (writer, bean, output) -> {
+      output.startObject();
+      codec.encode(bean, new BinaryEncoder(keys, writer, output));
+      output.endObject();
+    };
+  }
+
+  private static final ClassValue<BinaryGenerator> BINARY_OBJECT_GENERATORS = new ClassValue<>() {
+    @Override
+    protected BinaryGenerator computeValue(Class<?> type) {
+      var codec = Codecs.codec(type);
+      return codec != null? binaryCodecGenerator(codec): binaryObjectGenerator(type);
     }
   };
 
+  /**
+   * Options of a {@link JSONWriter}.
+   *
+   * @see #JSONWriter(Option...)
+   */
+  public enum Option {
+    /**
+     * For each bean or record class, generates a hidden class that writes the constant keys and calls
+     * the getters in straight-line code instead of looping over the properties.
+     * It takes more time to serialize an instance of a class the first time, but less time after.
+     */
+    CODE_GENERATION,
+
+    /**
+     * Writes the JSON text without any whitespace, by example {@code {"x":1,"y":2}}.
+     * This option can not be used with {@link #PRETTY_PRINT}.
+     */
+    COMPACT,
+
+    /**
+     * Writes the JSON text with one property or element per line, indented by two spaces.
+     * This option can not be used with {@link #COMPACT}.
+     */
+    PRETTY_PRINT
+  }
+
+  private final Style style;
+  private final ClassValue<Generator> generators;
+
+  /**
+   * Creates a JSON writer.
+   *
+   * @param options the options of the writer.
+   * @throws IllegalArgumentException if both {@link Option#COMPACT} and {@link Option#PRETTY_PRINT} are used.
+   */
+  public JSONWriter(Option... options) {
+    var optionSet = EnumSet.noneOf(Option.class);
+    for(var option: options){
+      optionSet.add(Objects.requireNonNull(option));
+    }
+    if(optionSet.contains(Option.COMPACT) && optionSet.contains(Option.PRETTY_PRINT)){
+      throw new IllegalArgumentException("options COMPACT and PRETTY_PRINT are mutually exclusive");
+    }
+    style = optionSet.contains(Option.COMPACT)? Style.COMPACT:
+        optionSet.contains(Option.PRETTY_PRINT)? Style.PRETTY_PRINT: Style.STANDARD;
+    generators = optionSet.contains(Option.CODE_GENERATION)? style.codeGenerators: style.objectGenerators;
+  }
+
   public String toJSON(Object o) {
-    return switch(o){
-      case null -> "null";
-      case Integer i -> "" + i;
-      case Double d -> "" + d;
-      case Boolean b -> "" + b;
-      case String s -> "\"" + s + "\"";
-      case Object ob -> {
-        var fun = map.get(o.getClass());
+    var output = new JSONOutput();
+    try {
+      write(o, output);
+      return output.toString();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes the JSON text of an object into an appendable.
+   *
+   * @param o the object to convert to JSON
+   * @param appendable the appendable where the JSON text is written
+   * @throws UncheckedIOException if the appendable throws an IOException
+   */
+  public void toJSON(Object o, Appendable appendable) {
+    var output = new JSONOutput(appendable);
+    try {
+      write(o, output);
+      output.flush();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes the JSON text of an object encoded in UTF-8 into an output stream.
+   * The output stream is flushed but not closed.
+   *
+   * @param o the object to convert to JSON
+   * @param outputStream the output stream where the JSON text is written
+   * @throws UncheckedIOException if the output stream throws an IOException
+   */
+  public void toJSON(Object o, OutputStream outputStream) {
+    var output = new JSONOutput(outputStream);
+    try {
+      write(o, output);
+      output.flush();
+    } finally {
+      output.release();
+    }
+    try {
+      outputStream.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the binary encoding of an object, a compact encoding of the same values as the JSON text.
+   * The binary encoding can be decoded with {@link JSONReader#parseBinary(byte[], java.lang.reflect.Type)}.
+   * The options of the writer have no effect on the binary encoding.
+   *
+   * @param o the object to encode
+   * @return the encoded bytes
+   * @see BinaryOutput
+   */
+  public byte[] toBinary(Object o) {
+    var output = new BinaryOutput();
+    try {
+      writeBinary(o, output);
+      return output.toByteArray();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Writes the binary encoding of an object into an output stream.
+   * The output stream is flushed but not closed.
+   *
+   * @param o the object to encode
+   * @param outputStream the output stream where the bytes are written
+   * @throws UncheckedIOException if the output stream throws an IOException
+   * @see #toBinary(Object)
+   */
+  public void toBinary(Object o, OutputStream outputStream) {
+    var output = new BinaryOutput(outputStream);
+    try {
+      writeBinary(o, output);
+      output.flush();
+    } finally {
+      output.release();
+    }
+    try {
+      outputStream.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void write(Object o, JSONOutput output) {
+    switch(o){
+      case null -> output.append("null");
+      case Integer i -> writeInt(i, output);
+      case Long l -> writeLong(l, output);
+      case Short s -> writeInt(s, output);
+      case Byte b -> writeInt(b, output);
+      case Double d -> writeDouble(d, output);
+      case Float f -> writeFloat(f, output);
+      case Boolean b -> writeBoolean(b, output);
+      case BigDecimal d -> output.append(d.toString());
+      case BigInteger i -> output.append(i.toString());
+      case String s -> output.appendString(s);
+      case Object ob -> configuration.generators.get(ob.getClass()).generate(this, ob, output);
+    }
+  }
+
+  private void writeObject(Object o, JSONOutput output) {
+    switch(o){
+      case int[] array -> writeArray(array, output);
+      case long[] array -> writeArray(array, output);
+      case double[] array -> writeArray(array, output);
+      case float[] array -> writeArray(array, output);
+      case short[] array -> writeArray(array, output);
+      case byte[] array -> writeArray(array, output);
+      case boolean[] array -> writeArray(array, output);
+      case char[] array -> output.appendString(new String(array));
+      case Object[] array -> writeArray(array, output);
+      case List<?> list when list instanceof RandomAccess -> writeList(list, output);
+      case Iterable<?> iterable -> writeIterable(iterable, output);
+      case Map<?, ?> map -> writeMap(map, output);
+      default -> generators.get(o.getClass()).generate(this, o, output);
+    }
+  }
+
+  private void writeBinary(Object o, BinaryOutput output) {
+    switch(o){
+      case null -> output.appendNull();
+      case Integer i -> output.appendInt(i);
+      case Long l -> output.appendLong(l);
+      case Short s -> output.appendInt(s);
+      case Byte b -> output.appendInt(b);
+      case Double d -> output.appendDouble(d);
+      case Float f -> output.appendFloat(f);
+      case Boolean b -> output.appendBoolean(b);
+      case BigDecimal d -> output.appendNumber(d.toString());
+      case BigInteger i -> output.appendNumber(i.toString());
+      case String s -> output.appendString(s);
+      case Object ob -> configuration.binaryGenerators.get(ob.getClass()).generate(this, ob, output);
+    }
+  }
+
+  private void writeBinaryObject(Object o, BinaryOutput output) {
+    switch(o){
+      case int[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendInt(value);
+        }
+        output.endArray();
+      }
+      case long[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendLong(value);
+        }
+        output.endArray();
+      }
+      case double[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendDouble(value);
+        }
+        output.endArray();
+      }
+      case float[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendFloat(value);
+        }
+        output.endArray();
+      }
+      case short[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendInt(value);
+        }
+        output.endArray();
+      }
+      case byte[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendInt(value);
+        }
+        output.endArray();
+      }
+      case boolean[] array -> {
+        output.startArray();
+        for(var value: array){
+          output.appendBoolean(value);
+        }
+        output.endArray();
+      }
+      case char[] array -> output.appendString(new String(array));
+      case Object[] array -> {
+        output.startArray();
+        for(var element: array){
+          writeBinary(element, output);
+        }
+        output.endArray();
+      }
+      case List<?> list when list instanceof RandomAccess -> {
+        output.startArray();
+        var size = list.size();
+        for(var i = 0; i < size; i++){
+          writeBinary(list.get(i), output);
+        }
+        output.endArray();
+      }
+      case Iterable<?> iterable -> {
+        output.startArray();
+        for(var element: iterable){
+          writeBinary(element, output);
+        }
+        output.endArray();
+      }
+      case Map<?, ?> map -> {
+        output.startObject();
+        for(var entry: map.entrySet()){
+          output.appendKey(String.valueOf(entry.getKey()));
+          writeBinary(entry.getValue(), output);
+        }
+        output.endObject();
+      }
+      default -> BINARY_OBJECT_GENERATORS.get(o.getClass()).generate(this, o, output);
+    }
+  }
+
+  private void writeArray(int[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      output.appendInt(array[i]);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(long[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      output.appendLong(array[i]);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(double[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      output.appendDouble(array[i]);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(float[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      writeFloat(array[i], output);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(short[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      output.appendInt(array[i]);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(byte[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      output.appendInt(array[i]);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(boolean[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      writeBoolean(array[i], output);
+    }
+    style.end(']', array.length, output);
+  }
+
+  private void writeArray(Object[] array, JSONOutput output) {
+    style.begin('[', output);
+    for(var i = 0; i < array.length; i++){
+      style.element(i, output);
+      write(array[i], output);
+    }
+    style.end(']', array.length, output);
+  }
+
+  /**
+   * Writes a list with an indexed loop, so no iterator is allocated.
+   */
+  private void writeList(List<?> list, JSONOutput output) {
+    style.begin('[', output);
+    var size = list.size();
+    for(var i = 0; i < size; i++){
+      style.element(i, output);
+      write(list.get(i), output);
+    }
+    style.end(']', size, output);
+  }
+
+  private void writeIterable(Iterable<?> iterable, JSONOutput output) {
+    style.begin('[', output);
+    var count = 0;
+    for(var element: iterable){
+      style.element(count++, output);
+      write(element, output);
+    }
+    style.end(']', count, output);
+  }
+
+  /**
+   * Writes a map as a JSON object, the keys are converted to strings using {@link String#valueOf(Object)}.
+   */
+  private void writeMap(Map<?, ?> map, JSONOutput output) {
+    style.begin('{', output);
+    var count = 0;
+    for(var entry: map.entrySet()){
+      style.element(count++, output);
+      output.appendString(String.valueOf(entry.getKey())).append(style.colon);
+      write(entry.getValue(), output);
+    }
+    style.end('}', count, output);
+  }
+
+  /**
+   * An immutable snapshot of the configuration, the functions registered with
+   * {@link #configure(Class, Function)} and two caches that associate a class to its generator,
+   * one for the JSON text and one for the binary encoding.
+   * Each call to configure() publishes a new snapshot, so the readers never take a lock
+   * and after the warm-up, finding how to write an object is a ClassValue lookup.
+   */
+  private record Configuration(Map<Class<?>, Function<Object, String>> functions, ClassValue<Generator> generators,
+                               ClassValue<BinaryGenerator> binaryGenerators) {
+    private Configuration(Map<Class<?>, Function<Object, String>> functions) {
+      this(functions, new ClassValue<>() {
+        @Override
+        protected Generator computeValue(Class<?> type) {
+          var fun = resolve(functions, type);
+          if(fun == null){
+            return DEFAULT_GENERATOR;
+          }
+          return (writer, o, output) -> output.append(fun.apply(o));
+        }
+      }, new ClassValue<>() {
+        @Override
+        protected BinaryGenerator computeValue(Class<?> type) {
+          var fun = resolve(functions, type);
+          if(fun == null){
+            return DEFAULT_BINARY_GENERATOR;
+          }
+          // the JSON fragment is re-encoded
+          return (writer, o, output) -> output.appendJSON(fun.apply(o));
+        }
+      });
+    }
+
+    /**
+     * Finds the function registered for the type or the closest supertype.
+     * The superclasses are visited first, then the interfaces breadth first
+     * and {@code Object} last, so a function registered for an interface is not
+     * hidden by a function registered for {@code Object}.
+     */
+    private static Function<Object, String> resolve(Map<Class<?>, Function<Object, String>> functions, Class<?> type) {
+      if(functions.isEmpty()){
+        return null;
+      }
+      var interfaces = new ArrayDeque<Class<?>>();
+      for(var superclass = type; superclass != null && superclass != Object.class; superclass = superclass.getSuperclass()){
+        var fun = functions.get(superclass);
         if(fun != null){
-          yield fun.apply(ob);
+          return fun;
         }
-        var generators = PROPERTIES_CLASS_VALUE.get(o.getClass());
-        yield generators.stream()
-                .map(generator -> generator.generate(this, ob))
-                .collect(Collectors.joining(", ", "{", "}"));
+        interfaces.addAll(List.of(superclass.getInterfaces()));
       }
-    };
+      var visited = new HashSet<Class<?>>();
+      while(!interfaces.isEmpty()){
+        var anInterface = interfaces.poll();
+        if(!visited.add(anInterface)){
+          continue;
+        }
+        var fun = functions.get(anInterface);
+        if(fun != null){
+          return fun;
+        }
+        interfaces.addAll(List.of(anInterface.getInterfaces()));
+      }
+      return functions.get(Object.class);
+    }
+
+    private Configuration with(Class<?> type, Function<Object, String> fun) {
+      if(functions.containsKey(type)){
+        throw new IllegalStateException("configuration for " + type.getName() + " already exists");
+      }
+      var newFunctions = new HashMap<>(functions);
+      newFunctions.put(type, fun);
+      return new Configuration(Map.copyOf(newFunctions));
+    }
   }
 
-  private static Object extractValue(PropertyDescriptor property, Object obj){
-    var getter = property.getReadMethod();
-    return Utils.invokeMethod(obj, getter);
+  private static final Generator DEFAULT_GENERATOR = (writer, o, output) -> writer.writeObject(o, output);
+  private static final BinaryGenerator DEFAULT_BINARY_GENERATOR = (writer, o, output) -> writer.writeBinaryObject(o, output);
+
+  private static final VarHandle CONFIGURATION;
+  static {
+    try {
+      CONFIGURATION = LOOKUP.findVarHandle(JSONWriter.class, "configuration", Configuration.class);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
   }
 
-  private final HashMap<Class<?>, Function<Object, String>> map = new HashMap<>();
+  private volatile Configuration configuration = new Configuration(Map.of());
 
+  /**
+   * Registers a function that converts an instance of a type to a JSON fragment.
+   * The function is also used for the subtypes of the type, if no function is registered
+   * for a more specific type.
+   * This method can be called concurrently with {@link #toJSON(Object)}, the configuration
+   * is published as a new immutable snapshot (copy-on-write).
+   *
+   * @param type the type of the instances
+   * @param fun the function that converts an instance to JSON
+   * @throws IllegalStateException if a function is already registered for the type
+   */
   public <T> void configure(Class<T> type, Function<T, String> fun){
     Objects.requireNonNull(type);
     Objects.requireNonNull(fun);
-    var result = map.putIfAbsent(type, o -> fun.apply(type.cast(o))); // TODO : use compose or andThen
-    if(result != null){
-      throw new IllegalStateException("configuration for " + type.getName() + "already exists");
-    }
+    Function<Object, String> function = o -> fun.apply(type.cast(o));
+    Configuration current, newConfiguration;
+    do {
+      current = configuration;
+      newConfiguration = current.with(type, function);
+    } while(!CONFIGURATION.compareAndSet(this, current, newConfiguration));
   }
 }
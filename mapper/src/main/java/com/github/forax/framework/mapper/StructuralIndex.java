@@ -0,0 +1,253 @@
+package com.github.forax.framework.mapper;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The structural index of a JSON text encoded in UTF-8, the positions of its tokens computed
+ * in parallel by blocks of bytes.
+ *
+ * The index contains the position of each structural character ({@code { } [ ] : ,}),
+ * the position of the first byte of each number or keyword and for each string, the position
+ * of its opening quote followed by the position of its closing quote, or the complement of that position
+ * if the string contains an escape sequence. The last position of the index is the end of the text.
+ *
+ * A quote can only be classified knowing if the block starts inside a string, so the index is computed
+ * in two phases. The first phase computes for each block its end state for every possible start state
+ * (outside a string, inside a string, after a backslash), the start state of each block is then
+ * propagated sequentially from the first block. The second phase scans each block again
+ * knowing its start state, records the positions and checks the content of the strings.
+ */
+final class StructuralIndex {
+  private StructuralIndex() {
+    throw new AssertionError();
+  }
+
+  private static final int BLOCK_SIZE = 1 << 16;
+
+  // the states of the scanner
+  private static final int OUT = 0, IN = 1, ESCAPE = 2;
+
+  private static int transition(int state, byte b) {
+    return switch (state) {
+      case OUT -> b == '"'? IN: OUT;
+      case IN -> b == '"'? OUT: b == '\\'? ESCAPE: IN;
+      default -> IN;  // the escaped character
+    };
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  private static boolean isStructural(byte b) {
+    return b == '{' || b == '}' || b == '[' || b == ']' || b == ':' || b == ',';
+  }
+
+  /**
+   * The positions found in a block by the second phase.
+   */
+  private static final class Block {
+    private int[] positions;
+    private int size;
+    private boolean hasQuote;  // true if the block contains a quote
+    private boolean tailBackslash;  // true if the block ends inside a string that contains a backslash
+    private String errorMessage;
+    private int errorPosition;
+
+    private Block(int capacity) {
+      positions = new int[capacity];
+    }
+
+    private void add(int position) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size << 1);
+      }
+      positions[size++] = position;
+    }
+
+    private void error(String message, int position) {
+      if (errorMessage == null) {
+        errorMessage = message;
+        errorPosition = position;
+      }
+    }
+  }
+
+  /**
+   * Computes the structural index of the bytes between from and to.
+   *
+   * @param input the JSON text encoded in UTF-8.
+   * @param from the position of the first byte.
+   * @param to the position after the last byte.
+   * @return the positions of the tokens followed by {@code to}.
+   * @throws IllegalStateException if a string is not valid.
+   */
+  static int[] index(byte[] input, int from, int to) {
+    var blockCount = (to - from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+    // phase 1, the end state of each block for each start state
+    var ends = new byte[blockCount * 3];
+    IntStream.range(0, blockCount).parallel().forEach(block -> {
+      var start = from + block * BLOCK_SIZE;
+      endStates(input, start, Math.min(to, start + BLOCK_SIZE), ends, block * 3);
+    });
+    var starts = new int[blockCount];
+    var state = OUT;
+    for(var block = 0; block < blockCount; block++) {
+      starts[block] = state;
+      state = ends[block * 3 + state];
+    }
+
+    // phase 2, the positions of each block
+    var blocks = new Block[blockCount];
+    IntStream.range(0, blockCount).parallel().forEach(block -> {
+      var start = from + block * BLOCK_SIZE;
+      blocks[block] = scan(input, from, to, start, Math.min(to, start + BLOCK_SIZE), starts[block]);
+    });
+    for(var block: blocks) {
+      if (block.errorMessage != null) {
+        throw new IllegalStateException(block.errorMessage + " at " + block.errorPosition);
+      }
+    }
+    if (state != OUT) {
+      throw new IllegalStateException("unterminated string at " + to);
+    }
+
+    // merge the positions, a string that spans several blocks is escaped if one of its parts contains a backslash
+    var length = 1;
+    for(var block: blocks) {
+      length += block.size;
+    }
+    var positions = new int[length];
+    var index = 0;
+    var carry = false;
+    for(var i = 0; i < blockCount; i++) {
+      var block = blocks[i];
+      System.arraycopy(block.positions, 0, positions, index, block.size);
+      if (starts[i] != OUT && block.size != 0 && carry && positions[index] >= 0) {
+        positions[index] = ~positions[index];  // the closing quote of the string
+      }
+      index += block.size;
+      var endsInString = i + 1 < blockCount? starts[i + 1] != OUT: state != OUT;
+      carry = endsInString && (block.tailBackslash || (starts[i] != OUT && !block.hasQuote && carry));
+    }
+    positions[index] = to;
+    return positions;
+  }
+
+  private static void endStates(byte[] input, int start, int end, byte[] ends, int offset) {
+    // the hypotheses outside and inside a string stay complementary, one is outside a string
+    // and the other inside, a quote swaps them, so only the state of the one inside (IN or ESCAPE)
+    // is tracked, they converge after a quote escaped in the one inside, then only one state is tracked
+    var inside = IN;
+    var swapped = false;  // true if the hypothesis that starts outside a string is inside
+    var i = start;
+    for(; i < end; i++) {
+      var b = input[i];
+      if (inside == ESCAPE) {
+        if (b == '"') {
+          break;  // both are inside a string
+        }
+        inside = IN;
+      } else if (b == '"') {
+        swapped = !swapped;
+      } else if (b == '\\') {
+        inside = ESCAPE;
+      }
+    }
+    int out, in;
+    if (i == end) {
+      out = swapped? inside: OUT;
+      in = swapped? OUT: inside;
+    } else {
+      var state = IN;
+      for(i++; i < end; i++) {
+        state = transition(state, input[i]);
+      }
+      out = in = state;
+    }
+    // after a backslash, the first byte is escaped then the scanner is inside a string,
+    // like the hypothesis outside a string after a quote or the hypothesis inside a string
+    // after any other byte but a backslash
+    int escape;
+    switch (input[start]) {
+      case '"' -> escape = out;
+      case '\\' -> {
+        escape = IN;
+        for(var j = start + 1; j < end; j++) {
+          escape = transition(escape, input[j]);
+        }
+      }
+      default -> escape = in;
+    }
+    ends[offset] = (byte) out;
+    ends[offset + 1] = (byte) in;
+    ends[offset + 2] = (byte) escape;
+  }
+
+  private static Block scan(byte[] input, int from, int to, int start, int end, int state) {
+    var block = new Block(Math.max(16, (end - start) >> 3));
+    // a number or a keyword starts after a whitespace, a structural character or a closing quote
+    var separator = start == from ||
+        (state == OUT && (isWhitespace(input[start - 1]) || isStructural(input[start - 1]) || input[start - 1] == '"'));
+    var backslash = false;
+    for(var i = start; i < end; i++) {
+      var b = input[i];
+      switch (state) {
+        case OUT -> {
+          if (b == '"') {
+            block.add(i);
+            block.hasQuote = true;
+            backslash = false;
+            state = IN;
+          } else if (isStructural(b)) {
+            block.add(i);
+            separator = true;
+          } else if (isWhitespace(b)) {
+            separator = true;
+          } else {
+            if (separator) {
+              block.add(i);
+            }
+            separator = false;
+          }
+        }
+        case IN -> {
+          if (b == '"') {
+            block.add(backslash? ~i: i);
+            block.hasQuote = true;
+            separator = true;
+            state = OUT;
+          } else if (b == '\\') {
+            backslash = true;
+            state = ESCAPE;
+          } else if (b >= 0 && b < 0x20) {
+            block.error("control character in string", i);
+          }
+        }
+        default -> {
+          switch (b) {
+            case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> {}
+            case 'u' -> {
+              if (i + 4 >= to) {
+                block.error("invalid unicode escape", i + 1);
+                break;
+              }
+              for(var j = i + 1; j <= i + 4; j++) {
+                if (Character.digit(input[j], 16) == -1) {
+                  block.error("invalid unicode escape", j);
+                  break;
+                }
+              }
+            }
+            default -> block.error("invalid escape '" + (char) (b & 0xFF) + "'", i);
+          }
+          state = IN;
+        }
+      }
+    }
+    block.tailBackslash = state != OUT && backslash;
+    return block;
+  }
+}
@@ -1,21 +1,30 @@
 package com.github.forax.framework.mapper;
 
-import static java.lang.Double.parseDouble;
-import static java.lang.Integer.parseInt;
-import static java.util.regex.Pattern.compile;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.IntStream.rangeClosed;
 import static com.github.forax.framework.mapper.ToyJSONParser.Kind.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CodingErrorAction;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Objects;
 
 /**
- * A Toy JSON parser that do not recognize correctly, unicode characters, escaped strings
- * and i'm sure many more features.
+ * A Toy JSON parser that recognizes the JSON grammar character by character,
+ * without regex, and without allocating an object per token.
+ * The JSON text can be a string or UTF-8 bytes, in that case the bytes are not decoded
+ * to a string first.
  *
  * @see #parse(String, JSONVisitor)
+ * @see #parse(InputStream, JSONVisitor)
+ * @see PushParser
  */
 class ToyJSONParser {
   private ToyJSONParser() {
@@ -23,196 +32,2123 @@ class ToyJSONParser {
   }
 
   enum Kind {
-    NULL("(null)"),
-    TRUE("(true)"),
-    FALSE("(false)"),
-    DOUBLE("([0-9]*\\.[0-9]*)"),
-    INTEGER("([0-9]+)"),
-    STRING("\"([^\\\"]*)\""),
-    LEFT_CURLY("(\\{)"),
-    RIGHT_CURLY("(\\})"),
-    LEFT_BRACKET("(\\[)"),
-    RIGHT_BRACKET("(\\])"),
-    COLON("(\\:)"),
-    COMMA("(\\,)"),
-    BLANK("([ \t]+)")
-    ;
+    NULL,
+    TRUE,
+    FALSE,
+    DOUBLE,
+    INTEGER,
+    STRING,
+    LEFT_CURLY,
+    RIGHT_CURLY,
+    LEFT_BRACKET,
+    RIGHT_BRACKET,
+    COLON,
+    COMMA,
+    EOF,
+    /**
+     * A string used as a key, only returned by a {@link Cursor}.
+     */
+    KEY
+  }
+
+  private static IllegalStateException error(Kind kind, int location, Kind... expectedKinds) {
+    return new IllegalStateException("expect " + Arrays.stream(expectedKinds).map(Kind::name).collect(joining(", ")) + " but recognized " + kind + " at " + location);
+  }
+
+  /**
+   * The state shared by the lexers, the current token is not an object but the state
+   * of the lexer, its kind, its location and its value.
+   * Only the strings are allocated, the numbers are decoded in place.
+   */
+  private static abstract sealed class Lexer permits CharLexer, ByteLexer {
+    Kind kind;
+    int location;
+    long longValue;
+    double doubleValue;
+
+    // the characters of a string are only decoded on demand
+    int textStart;
+    int textEnd;
+    boolean escaped;
+    private String text;
+
+    /**
+     * Recognizes the next token.
+     * @return the kind of the token.
+     */
+    abstract Kind next();
+
+    /**
+     * Returns the text of a number, only used when the number can not be decoded in place.
+     */
+    abstract String numberText(int start, int end);
+
+    /**
+     * Decodes the characters of the current string between {@link #textStart} and {@link #textEnd}.
+     */
+    abstract String decodeText();
+
+    /**
+     * Returns the position in the input of an index of the current token.
+     */
+    abstract int position(int index);
+
+    /**
+     * Returns the character at an index of the current string if it can be read in place,
+     * -1 otherwise (a byte that is not ASCII).
+     */
+    abstract int rawChar(int index);
+
+    /**
+     * Returns the buffers leased from the {@link BufferPool}, the lexer then only recognizes
+     * the end of the input.
+     */
+    void release() {
+      // empty
+    }
+
+    /**
+     * Skips the content of the current object or array up to its closing curly or bracket
+     * that becomes the current token. Only the quotes and the brackets are recognized,
+     * the content is not validated.
+     */
+    abstract void skipContainer();
+
+    /**
+     * Returns the position after the current token.
+     */
+    abstract int tokenEnd();
+
+    /**
+     * Returns the value that starts at the current token, a number, a keyword, a string,
+     * an object or an array, as a {@link JSONValue} that is not decoded. The content of an object
+     * or an array is skipped like with {@link #skipContainer()}, the closing curly or bracket
+     * becomes the current token.
+     */
+    abstract JSONValue rawValue();
+
+    /**
+     * Records the location of the characters of a string, the string is not decoded.
+     */
+    final Kind string(int textStart, int textEnd, boolean escaped) {
+      this.textStart = textStart;
+      this.textEnd = textEnd;
+      this.escaped = escaped;
+      text = null;
+      return STRING;
+    }
+
+    /**
+     * Returns the character of a one character escape sequence.
+     */
+    static char unescape(int escape) {
+      return switch (escape) {
+        case 'b' -> '\b';
+        case 'f' -> '\f';
+        case 'n' -> '\n';
+        case 'r' -> '\r';
+        case 't' -> '\t';
+        default -> (char) escape;  // '"', '\\' or '/'
+      };
+    }
+
+    /**
+     * Returns the value of an ASCII hexadecimal digit of a unicode escape sequence or -1,
+     * unlike {@link Character#digit(int, int)}, the other Unicode digits are not accepted,
+     * so a string and its UTF-8 bytes are accepted the same way.
+     */
+    static int hexDigit(int c) {
+      if (c >= '0' && c <= '9') {
+        return c - '0';
+      }
+      if (c >= 'a' && c <= 'f') {
+        return c - 'a' + 10;
+      }
+      if (c >= 'A' && c <= 'F') {
+        return c - 'A' + 10;
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the decoded characters of the current string.
+     */
+    final String text() {
+      if (text == null) {
+        text = decodeText();
+      }
+      return text;
+    }
+
+    /**
+     * Returns the key of the table equal to the current string, the characters are compared
+     * in place so no string is allocated. If the string is not a key of the table or
+     * can not be read in place, the string is decoded.
+     *
+     * @param table the expected keys or null.
+     */
+    final String key(KeyTable table) {
+      if (table == null || escaped) {
+        return text();
+      }
+      var start = textStart;
+      var end = textEnd;
+      var hash = 0;
+      for(var index = start; index < end; index++) {
+        var c = rawChar(index);
+        if (c == -1) {
+          return text();
+        }
+        hash = 31 * hash + c;
+      }
+      var key = table.find(this, hash, end - start);
+      if (key == null) {
+        return text();
+      }
+      return text = key;
+    }
+
+    private boolean textEquals(String key) {
+      var start = textStart;
+      for(var i = 0; i < key.length(); i++) {
+        if (rawChar(start + i) != key.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    final IllegalStateException error(Kind... expectedKinds) {
+      return ToyJSONParser.error(kind, location, expectedKinds);
+    }
+
+    static IllegalStateException syntaxError(String message, int position) {
+      return new IllegalStateException(message + " at " + position);
+    }
+
+    final void expect(Kind kind) {
+      if (this.kind != kind) {
+        throw error(kind);
+      }
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Computes the value of a number from the digits accumulated by the lexer.
+     * The integers are kept in a long, the decimals that have at most 15 significant digits
+     * and a small exponent are computed exactly with one multiplication or division,
+     * the other numbers are delegated to {@link Long#parseLong(String)} or {@link Double#parseDouble(String)}.
+     *
+     * @param mantissa the value of the first 18 digits.
+     * @param digitCount the number of digits before the exponent.
+     * @param fractionCount the number of digits after the dot.
+     * @param exponent the value of the exponent.
+     * @param isDecimal true if the number has a dot or an exponent.
+     */
+    final Kind number(boolean negative, long mantissa, int digitCount, int fractionCount, int exponent, boolean isDecimal,
+                      int start, int end) {
+      if (!isDecimal) {
+        if (digitCount <= 18) {
+          longValue = negative? -mantissa: mantissa;
+          return INTEGER;
+        }
+        var numberText = numberText(start, end);
+        try {
+          longValue = Long.parseLong(numberText);
+          return INTEGER;
+        } catch (NumberFormatException e) {
+          doubleValue = Double.parseDouble(numberText);
+          return DOUBLE;
+        }
+      }
+      var power = exponent - fractionCount;
+      if (digitCount <= 15 && power >= -22 && power <= 22) {
+        var value = power < 0? mantissa / POWERS_OF_TEN[-power]: mantissa * POWERS_OF_TEN[power];
+        doubleValue = negative? -value: value;
+        return DOUBLE;
+      }
+      doubleValue = Double.parseDouble(numberText(start, end));
+      return DOUBLE;
+    }
+
+    /**
+     * Returns the value of the current token boxed,
+     * an integer is an Integer if it fits in 32 bits, a Long otherwise.
+     */
+    final Object value() {
+      return switch (kind) {
+        case NULL -> null;
+        case FALSE -> false;
+        case TRUE -> true;
+        case INTEGER -> longValue == (int) longValue? (Object) (int) longValue: (Object) longValue;
+        case DOUBLE -> doubleValue;
+        case STRING -> text();
+        default -> throw new AssertionError();
+      };
+    }
+  }
+
+  /**
+   * A lexer that reads the characters of a string one by one.
+   */
+  private static final class CharLexer extends Lexer {
+    private final String input;
+    private int index;
+
+    private CharLexer(String input) {
+      this.input = input;
+    }
+
+    private IllegalStateException error(String message) {
+      return syntaxError(message, index);
+    }
+
+    @Override
+    Kind next() {
+      var input = this.input;
+      var length = input.length();
+      var index = this.index;
+      char c;
+      for(;;) {
+        if (index == length) {
+          this.index = index;
+          location = index;
+          return kind = EOF;
+        }
+        c = input.charAt(index);
+        if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+          break;
+        }
+        index++;
+      }
+      location = index;
+      this.index = index + 1;
+      return kind = switch (c) {
+        case '{' -> LEFT_CURLY;
+        case '}' -> RIGHT_CURLY;
+        case '[' -> LEFT_BRACKET;
+        case ']' -> RIGHT_BRACKET;
+        case ':' -> COLON;
+        case ',' -> COMMA;
+        case '"' -> string();
+        case 'n' -> keyword("null", NULL);
+        case 't' -> keyword("true", TRUE);
+        case 'f' -> keyword("false", FALSE);
+        default -> {
+          this.index = index;
+          if (c == '-' || (c >= '0' && c <= '9')) {
+            yield number();
+          }
+          throw error("unexpected character '" + c + "'");
+        }
+      };
+    }
+
+    private Kind keyword(String keyword, Kind kind) {
+      if (!input.startsWith(keyword, location)) {
+        index = location;
+        throw error("unknown keyword");
+      }
+      index = location + keyword.length();
+      return kind;
+    }
+
+    private Kind string() {
+      var input = this.input;
+      var length = input.length();
+      var start = index;
+      // fast path, no escape
+      for(var i = start; i < length; i++) {
+        var c = input.charAt(i);
+        if (c == '"') {
+          index = i + 1;
+          return string(start, i, false);
+        }
+        if (c == '\\' || c < 0x20) {
+          return escapedString(start, i);
+        }
+      }
+      throw error("unterminated string");
+    }
+
+    /**
+     * Checks the escape sequences of a string, the string is decoded later by {@link #decodeText()}.
+     */
+    private Kind escapedString(int start, int index) {
+      var input = this.input;
+      var length = input.length();
+      while (index < length) {
+        var c = input.charAt(index++);
+        if (c == '"') {
+          this.index = index;
+          return string(start, index - 1, true);
+        }
+        if (c < 0x20) {
+          this.index = index - 1;
+          throw error("control character in string");
+        }
+        if (c != '\\') {
+          continue;
+        }
+        if (index == length) {
+          break;
+        }
+        var escape = input.charAt(index++);
+        switch (escape) {
+          case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> {}
+          case 'u' -> {
+            if (index + 4 > length) {
+              this.index = index;
+              throw error("invalid unicode escape");
+            }
+            for(var i = 0; i < 4; i++) {
+              if (hexDigit(input.charAt(index++)) == -1) {
+                this.index = index - 1;
+                throw error("invalid unicode escape");
+              }
+            }
+          }
+          default -> {
+            this.index = index - 1;
+            throw error("invalid escape '" + escape + "'");
+          }
+        }
+      }
+      this.index = index;
+      throw error("unterminated string");
+    }
+
+    @Override
+    int rawChar(int index) {
+      return input.charAt(index);
+    }
+
+    @Override
+    String decodeText() {
+      var input = this.input;
+      if (!escaped) {
+        return input.substring(textStart, textEnd);
+      }
+      var end = textEnd;
+      var builder = new StringBuilder(end - textStart);
+      for(var index = textStart; index < end;) {
+        var c = input.charAt(index++);
+        if (c != '\\') {
+          builder.append(c);
+          continue;
+        }
+        var escape = input.charAt(index++);
+        if (escape == 'u') {
+          var value = 0;
+          for(var i = 0; i < 4; i++) {
+            value = value << 4 | hexDigit(input.charAt(index++));
+          }
+          builder.append((char) value);
+          continue;
+        }
+        builder.append(unescape(escape));
+      }
+      return builder.toString();
+    }
+
+    @Override
+    int position(int index) {
+      return index;
+    }
+
+    @Override
+    void skipContainer() {
+      var input = this.input;
+      var length = input.length();
+      var depth = 1;
+      var index = this.index;
+      while (index < length) {
+        var c = input.charAt(index++);
+        switch (c) {
+          case '"' -> {
+            for(;;) {
+              if (index >= length) {
+                this.index = index;
+                throw error("unterminated string");
+              }
+              var d = input.charAt(index++);
+              if (d == '"') {
+                break;
+              }
+              if (d == '\\') {
+                index++;
+              }
+            }
+          }
+          case '{', '[' -> depth++;
+          case '}', ']' -> {
+            if (--depth == 0) {
+              this.index = index;
+              location = index - 1;
+              kind = c == '}'? RIGHT_CURLY: RIGHT_BRACKET;
+              return;
+            }
+          }
+          default -> {}
+        }
+      }
+      this.index = index;
+      throw error("unterminated object or array");
+    }
+
+    @Override
+    int tokenEnd() {
+      return index;
+    }
+
+    @Override
+    JSONValue rawValue() {
+      var start = location;
+      if (kind == LEFT_CURLY || kind == LEFT_BRACKET) {
+        skipContainer();
+      }
+      return new JSONValue(input, start, index);
+    }
+
+    private Kind number() {
+      var input = this.input;
+      var length = input.length();
+      var start = index;
+      var i = start;
+      var negative = input.charAt(i) == '-';
+      if (negative) {
+        i++;
+      }
+      var mantissa = 0L;
+      var digitCount = 0;
+      var integerStart = i;
+      for(char c; i < length && (c = input.charAt(i)) >= '0' && c <= '9'; i++) {
+        if (digitCount++ < 18) {
+          mantissa = mantissa * 10 + (c - '0');
+        }
+      }
+      if (i == integerStart) {
+        index = i;
+        throw error("invalid number");
+      }
+      if (input.charAt(integerStart) == '0' && i - integerStart > 1) {
+        index = integerStart;
+        throw error("invalid number, leading zero");
+      }
+      var fractionCount = 0;
+      var isDecimal = false;
+      if (i < length && input.charAt(i) == '.') {
+        isDecimal = true;
+        i++;
+        for(char c; i < length && (c = input.charAt(i)) >= '0' && c <= '9'; i++) {
+          if (digitCount++ < 18) {
+            mantissa = mantissa * 10 + (c - '0');
+          }
+          fractionCount++;
+        }
+        if (fractionCount == 0) {
+          index = i;
+          throw error("invalid number, no digit after the dot");
+        }
+      }
+      var exponent = 0;
+      if (i < length && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+        isDecimal = true;
+        i++;
+        var negativeExponent = false;
+        if (i < length && (input.charAt(i) == '+' || input.charAt(i) == '-')) {
+          negativeExponent = input.charAt(i) == '-';
+          i++;
+        }
+        var exponentStart = i;
+        for(char c; i < length && (c = input.charAt(i)) >= '0' && c <= '9'; i++) {
+          if (exponent < 10_000) {
+            exponent = exponent * 10 + (c - '0');
+          }
+        }
+        if (i == exponentStart) {
+          index = i;
+          throw error("invalid number, no digit in the exponent");
+        }
+        if (negativeExponent) {
+          exponent = -exponent;
+        }
+      }
+      index = i;
+      return number(negative, mantissa, digitCount, fractionCount, exponent, isDecimal, start, i);
+    }
+
+    @Override
+    String numberText(int start, int end) {
+      return input.substring(start, end);
+    }
+  }
+
+  /**
+   * A lexer that reads UTF-8 bytes one by one, the strings are decoded only when a string token
+   * is recognized, the numbers and the keywords are never decoded.
+   *
+   * The bytes are read from a window, if a token is not complete at the end of the window,
+   * the window is refilled from the source, keeping the beginning of the token, and the token is
+   * recognized again from its start, but the scan of a string or a number resumes
+   * where it has stopped, so a long token read by small chunks is scanned only once.
+   */
+  private static final class ByteLexer extends Lexer {
+    @FunctionalInterface
+    private interface Source {
+      /**
+       * Reads bytes into the buffer.
+       * @return the number of bytes read or -1 if there is no more bytes.
+       */
+      int read(byte[] buffer, int offset, int length) throws IOException;
+
+      /**
+       * Returns the buffers of the source to the {@link BufferPool}.
+       */
+      default void release() {
+        // empty
+      }
+    }
+
+    private static final int CAPACITY = BufferPool.CAPACITY;
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final Source source;
+    private byte[] buffer;
+    private int index;
+    private int limit;
+    private int offset;  // the position of the first byte of the buffer, minus the first index
+    private int start;  // the index of the first byte of the current token
+    private int resume;  // where the scan of an incomplete token resumes, relative to start, 0 if none
+    private boolean resumeEscaped;  // true if the incomplete string contains an escape
+    private boolean eof;
+    private int[] structurals;  // the positions of the tokens, null if the tokens are not indexed
+    private int structural;  // the index of the position of the next token
+    private boolean pooled;  // true if the buffer is leased from the buffer pool
+
+    private ByteLexer(byte[] buffer, int index, int limit, Source source, boolean eof) {
+      this.buffer = buffer;
+      this.index = index;
+      this.limit = limit;
+      this.offset = -index;
+      this.source = source;
+      this.eof = eof;
+    }
+
+    private static ByteLexer of(byte[] input) {
+      return new ByteLexer(input, 0, input.length, null, true);
+    }
+
+    private static ByteLexer of(ByteBuffer input) {
+      if (input.hasArray()) {
+        var arrayOffset = input.arrayOffset();
+        var lexer = new ByteLexer(input.array(), arrayOffset + input.position(), arrayOffset + input.limit(), null, true);
+        input.position(input.limit());
+        return lexer;
+      }
+      if (input.remaining() <= CAPACITY) {
+        // a small direct buffer is copied at once
+        var bytes = new byte[input.remaining()];
+        input.get(bytes);
+        return of(bytes);
+      }
+      return pooled((buffer, offset, length) -> {
+        var count = Math.min(length, input.remaining());
+        if (count == 0) {
+          return -1;
+        }
+        input.get(buffer, offset, count);
+        return count;
+      });
+    }
+
+    private static ByteLexer of(InputStream input) {
+      return pooled(input::read);
+    }
+
+    /**
+     * Creates a lexer that reads from a source into a buffer leased from the {@link BufferPool}.
+     */
+    private static ByteLexer pooled(Source source) {
+      var lexer = new ByteLexer(BufferPool.leaseBytes(), 0, 0, source, false);
+      lexer.pooled = true;
+      return lexer;
+    }
+
+    /**
+     * Creates a lexer that encodes the characters of the reader to UTF-8 by chunks,
+     * the malformed characters (lone surrogates) are replaced.
+     */
+    private static ByteLexer of(Reader input) {
+      var encoder = UTF_8.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      var chars = CharBuffer.wrap(BufferPool.leaseChars()).flip();
+      var bytes = ByteBuffer.wrap(BufferPool.leaseBytes()).flip();
+      return pooled(new Source() {
+        private boolean endOfInput;
+        private boolean flushed;
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          while (!bytes.hasRemaining()) {
+            if (flushed) {
+              return -1;
+            }
+            chars.compact();
+            if (!endOfInput && chars.hasRemaining() && input.read(chars) == -1) {
+              endOfInput = true;
+            }
+            chars.flip();
+            bytes.clear();
+            var result = encoder.encode(chars, bytes, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+              encoder.flush(bytes);
+              flushed = true;
+            }
+            bytes.flip();
+          }
+          var count = Math.min(length, bytes.remaining());
+          bytes.get(buffer, offset, count);
+          return count;
+        }
+
+        @Override
+        public void release() {
+          BufferPool.release(chars.array());
+          BufferPool.release(bytes.array());
+        }
+      });
+    }
+
+    /**
+     * Creates a lexer that follows the structural index of the input computed in parallel,
+     * so the whitespaces and the content of the strings are not scanned again.
+     * @see StructuralIndex
+     */
+    private static ByteLexer indexed(byte[] input) {
+      var lexer = of(input);
+      lexer.structurals = StructuralIndex.index(input, 0, input.length);
+      return lexer;
+    }
+
+    /**
+     * Creates a lexer with no source, the bytes are pushed with {@link #feed(ByteBuffer)}
+     * and {@link #next()} returns null if the bytes of the next token have not been pushed yet.
+     */
+    private static ByteLexer push() {
+      var lexer = new ByteLexer(BufferPool.leaseBytes(), 0, 0, null, false);
+      lexer.pooled = true;
+      return lexer;
+    }
+
+    @Override
+    void release() {
+      if (!pooled) {
+        return;
+      }
+      pooled = false;
+      BufferPool.release(buffer);
+      if (source != null) {
+        source.release();
+      }
+      buffer = NO_BYTES;
+      offset += index;
+      index = limit = start = resume = 0;
+      eof = true;
+    }
+
+    private IllegalStateException error(String message, int index) {
+      return syntaxError(message, offset + index);
+    }
+
+    /**
+     * Discards the bytes before the current token and makes room for at least length bytes.
+     */
+    private void compact(int length) {
+      if (start != 0) {
+        System.arraycopy(buffer, start, buffer, 0, limit - start);
+        offset += start;
+        index -= start;
+        limit -= start;
+        start = 0;
+      }
+      if (limit + length > buffer.length) {
+        var oldBuffer = buffer;
+        buffer = Arrays.copyOf(oldBuffer, Math.max(oldBuffer.length << 1, limit + length));
+        if (pooled) {
+          BufferPool.release(oldBuffer);
+        }
+      }
+    }
 
-    private final String regex;
+    /**
+     * Discards the bytes before the current token and reads more bytes,
+     * like with {@link #feed(ByteBuffer)}, the scan of an incomplete string or number
+     * then resumes where it has stopped.
+     * @return false if there is no more bytes or if the bytes are pushed.
+     */
+    private boolean refill() {
+      if (eof || source == null) {
+        return false;
+      }
+      compact(1);
+      int read;
+      try {
+        read = source.read(buffer, limit, buffer.length - limit);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (read == -1) {
+        eof = true;
+        return false;
+      }
+      limit += read;
+      return true;
+    }
+
+    /**
+     * Pushes the remaining bytes of the buffer.
+     */
+    private void feed(ByteBuffer input) {
+      if (eof) {
+        throw new IllegalStateException("the end of the input has already been signaled");
+      }
+      var length = input.remaining();
+      compact(length);
+      input.get(buffer, limit, length);
+      limit += length;
+    }
+
+    /**
+     * Signals that there is no more bytes to push.
+     */
+    private void end() {
+      eof = true;
+    }
+
+    /**
+     * Returns null if the token is not complete and more bytes can be read.
+     */
+    private Kind incomplete(String message, int index) {
+      if (!eof) {
+        return null;
+      }
+      throw error(message, index);
+    }
+
+    /**
+     * Returns null if the string or the number is not complete and more bytes can be read,
+     * the scan resumes at the index resume once the bytes are read.
+     */
+    private Kind incomplete(String message, int index, int resume, boolean escaped) {
+      this.resume = resume - start;
+      resumeEscaped = escaped;
+      return incomplete(message, index);
+    }
+
+    @Override
+    Kind next() {
+      if (structurals != null) {
+        return nextIndexed();
+      }
+      for(;;) {
+        var buffer = this.buffer;
+        var limit = this.limit;
+        var index = this.index;
+        while (index < limit) {
+          var b = buffer[index];
+          if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+            break;
+          }
+          index++;
+        }
+        start = index;
+        this.index = index;
+        if (index == limit) {
+          if (refill()) {
+            continue;
+          }
+          if (!eof) {
+            return null;
+          }
+          location = offset + index;
+          return kind = EOF;
+        }
+        location = offset + index;
+        var kind = token(buffer[index]);
+        if (kind != null) {
+          return this.kind = kind;
+        }
+        this.index = start;
+        if (!refill() && !eof) {
+          return null;
+        }
+      }
+    }
+
+    private Kind nextIndexed() {
+      var position = structurals[structural];
+      start = position;
+      location = offset + position;
+      if (position == limit) {
+        index = limit;
+        return kind = EOF;
+      }
+      structural++;
+      var b = buffer[position];
+      switch (b) {
+        case '{', '}', '[', ']', ':', ',' -> {
+          return kind = token(b);
+        }
+        case '"' -> {
+          var end = structurals[structural++];
+          var escaped = end < 0;
+          if (escaped) {
+            end = ~end;
+          }
+          index = end + 1;
+          return kind = string(position + 1, end, escaped);
+        }
+        default -> {
+          var kind = token(b);
+          // only whitespaces between a number or a keyword and the next token
+          var next = structurals[structural];
+          for(var i = index; i < next; i++) {
+            var c = buffer[i];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+              throw error(c >= 0? "unexpected character '" + (char) c + "'": "unexpected byte " + (c & 0xFF), i);
+            }
+          }
+          return this.kind = kind;
+        }
+      }
+    }
+
+    private Kind token(byte b) {
+      var index = start;
+      this.index = index + 1;
+      return switch (b) {
+        case '{' -> LEFT_CURLY;
+        case '}' -> RIGHT_CURLY;
+        case '[' -> LEFT_BRACKET;
+        case ']' -> RIGHT_BRACKET;
+        case ':' -> COLON;
+        case ',' -> COMMA;
+        case '"' -> string();
+        case 'n' -> keyword(NULL_BYTES, NULL);
+        case 't' -> keyword(TRUE_BYTES, TRUE);
+        case 'f' -> keyword(FALSE_BYTES, FALSE);
+        default -> {
+          if (b == '-' || (b >= '0' && b <= '9')) {
+            yield number();
+          }
+          throw error(b >= 0? "unexpected character '" + (char) b + "'": "unexpected byte " + (b & 0xFF), index);
+        }
+      };
+    }
+
+    private static final byte[] NULL_BYTES = "null".getBytes(UTF_8),
+        TRUE_BYTES = "true".getBytes(UTF_8), FALSE_BYTES = "false".getBytes(UTF_8);
+
+    private Kind keyword(byte[] keyword, Kind kind) {
+      var end = start + keyword.length;
+      if (end > limit) {
+        return incomplete("unknown keyword", start);
+      }
+      if (!Arrays.equals(buffer, start, end, keyword, 0, keyword.length)) {
+        throw error("unknown keyword", start);
+      }
+      index = end;
+      return kind;
+    }
+
+    private Kind string() {
+      var buffer = this.buffer;
+      var limit = this.limit;
+      var begin = start + 1;
+      var from = begin;
+      if (resume != 0) {
+        from = start + resume;
+        resume = 0;
+        if (resumeEscaped) {
+          return escapedString(begin, from);
+        }
+      }
+      // fast path, no escape
+      for(var i = from; i < limit; i++) {
+        var b = buffer[i];
+        if (b == '"') {
+          index = i + 1;
+          return string(begin, i, false);
+        }
+        if (b == '\\' || (b >= 0 && b < 0x20)) {
+          return escapedString(begin, i);
+        }
+      }
+      return incomplete("unterminated string", limit, limit, false);
+    }
+
+    /**
+     * Checks the escape sequences of a string, the string is decoded later by {@link #decodeText()}.
+     */
+    private Kind escapedString(int begin, int index) {
+      var buffer = this.buffer;
+      var limit = this.limit;
+      while (index < limit) {
+        var b = buffer[index++];
+        if (b == '"') {
+          this.index = index;
+          return string(begin, index - 1, true);
+        }
+        if (b >= 0 && b < 0x20) {
+          throw error("control character in string", index - 1);
+        }
+        if (b != '\\') {
+          continue;
+        }
+        if (index == limit) {
+          // the escape sequence is scanned again from the backslash
+          return incomplete("unterminated string", index, index - 1, true);
+        }
+        var escape = buffer[index++];
+        switch (escape) {
+          case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> {}
+          case 'u' -> {
+            if (index + 4 > limit) {
+              return incomplete("invalid unicode escape", limit, index - 2, true);
+            }
+            for(var i = 0; i < 4; i++) {
+              if (hexDigit(buffer[index]) == -1) {
+                throw error("invalid unicode escape", index);
+              }
+              index++;
+            }
+          }
+          default -> throw error("invalid escape '" + (char) (escape & 0xFF) + "'", index - 1);
+        }
+      }
+      return incomplete("unterminated string", index, index, true);
+    }
+
+    private void skipIndexed(boolean keep) {
+      var depth = 1;
+      for(;;) {
+        var position = structurals[structural];
+        if (position == limit) {
+          throw error("unterminated object or array", limit);
+        }
+        structural++;
+        switch (buffer[position]) {
+          case '"' -> structural++;  // the closing quote
+          case '{', '[' -> depth++;
+          case '}', ']' -> {
+            if (--depth == 0) {
+              if (!keep) {
+                start = position;
+              }
+              index = position + 1;
+              location = offset + position;
+              kind = buffer[position] == '}'? RIGHT_CURLY: RIGHT_BRACKET;
+              return;
+            }
+          }
+          default -> {}
+        }
+      }
+    }
+
+    @Override
+    int tokenEnd() {
+      return offset + index;
+    }
+
+    @Override
+    JSONValue rawValue() {
+      if (source == null && !eof) {
+        throw new IllegalStateException("a value can not be kept by a push parser");
+      }
+      if (kind == LEFT_CURLY || kind == LEFT_BRACKET) {
+        skip(true);
+      }
+      if (source == null && !pooled) {
+        // the buffer is the whole input
+        return new JSONValue(buffer, start, index);
+      }
+      // the buffer is reused, by the lexer or by the buffer pool
+      return new JSONValue(Arrays.copyOfRange(buffer, start, index), 0, index - start);
+    }
+
+    @Override
+    int rawChar(int index) {
+      var b = buffer[index];
+      return b < 0? -1: b;
+    }
+
+    @Override
+    String decodeText() {
+      var buffer = this.buffer;
+      if (!escaped) {
+        return new String(buffer, textStart, textEnd - textStart, UTF_8);
+      }
+      var end = textEnd;
+      var builder = new StringBuilder(end - textStart);
+      var index = textStart;
+      for(;;) {
+        // decode the bytes up to the next escape
+        var begin = index;
+        while (index < end && buffer[index] != '\\') {
+          index++;
+        }
+        builder.append(new String(buffer, begin, index - begin, UTF_8));
+        if (index == end) {
+          return builder.toString();
+        }
+        var escape = buffer[index + 1];
+        index += 2;
+        if (escape == 'u') {
+          var value = 0;
+          for(var i = 0; i < 4; i++) {
+            value = value << 4 | hexDigit(buffer[index++]);
+          }
+          builder.append((char) value);
+          continue;
+        }
+        builder.append(unescape(escape));
+      }
+    }
+
+    @Override
+    int position(int index) {
+      return offset + index;
+    }
+
+    @Override
+    void skipContainer() {
+      skip(false);
+    }
+
+    /**
+     * Skips the content of the current object or array.
+     * @param keep true if the bytes of the object or the array are kept in the buffer.
+     */
+    private void skip(boolean keep) {
+      if (structurals != null) {
+        skipIndexed(keep);
+        return;
+      }
+      var depth = 1;
+      var inString = false;
+      var escape = false;
+      for(;;) {
+        var buffer = this.buffer;
+        var limit = this.limit;
+        var i = index;
+        for(; i < limit; i++) {
+          var b = buffer[i];
+          if (inString) {
+            if (escape) {
+              escape = false;
+            } else if (b == '\\') {
+              escape = true;
+            } else if (b == '"') {
+              inString = false;
+            }
+            continue;
+          }
+          switch (b) {
+            case '"' -> inString = true;
+            case '{', '[' -> depth++;
+            case '}', ']' -> {
+              if (--depth == 0) {
+                if (!keep) {
+                  start = i;
+                }
+                index = i + 1;
+                location = offset + i;
+                kind = b == '}'? RIGHT_CURLY: RIGHT_BRACKET;
+                return;
+              }
+            }
+            default -> {}
+          }
+        }
+        // the bytes already skipped are discarded
+        if (!keep) {
+          start = i;
+        }
+        index = i;
+        if (!refill()) {
+          throw error(inString? "unterminated string": "unterminated object or array", i);
+        }
+      }
+    }
+
+    private Kind number() {
+      var buffer = this.buffer;
+      var limit = this.limit;
+      var start = this.start;
+      // the whole number should be in the buffer
+      var end = start + 1;
+      if (resume != 0) {
+        end = start + resume;
+        resume = 0;
+      }
+      for(byte b; end < limit && (((b = buffer[end]) >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-'); end++) {
+        // empty
+      }
+      if (end == limit && !eof) {
+        resume = end - start;
+        return null;
+      }
+      var i = start;
+      var negative = buffer[i] == '-';
+      if (negative) {
+        i++;
+      }
+      var mantissa = 0L;
+      var digitCount = 0;
+      var integerStart = i;
+      for(byte b; i < end && (b = buffer[i]) >= '0' && b <= '9'; i++) {
+        if (digitCount++ < 18) {
+          mantissa = mantissa * 10 + (b - '0');
+        }
+      }
+      if (i == integerStart) {
+        throw error("invalid number", i);
+      }
+      if (buffer[integerStart] == '0' && i - integerStart > 1) {
+        throw error("invalid number, leading zero", integerStart);
+      }
+      var fractionCount = 0;
+      var isDecimal = false;
+      if (i < end && buffer[i] == '.') {
+        isDecimal = true;
+        i++;
+        for(byte b; i < end && (b = buffer[i]) >= '0' && b <= '9'; i++) {
+          if (digitCount++ < 18) {
+            mantissa = mantissa * 10 + (b - '0');
+          }
+          fractionCount++;
+        }
+        if (fractionCount == 0) {
+          throw error("invalid number, no digit after the dot", i);
+        }
+      }
+      var exponent = 0;
+      if (i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+        isDecimal = true;
+        i++;
+        var negativeExponent = false;
+        if (i < end && (buffer[i] == '+' || buffer[i] == '-')) {
+          negativeExponent = buffer[i] == '-';
+          i++;
+        }
+        var exponentStart = i;
+        for(byte b; i < end && (b = buffer[i]) >= '0' && b <= '9'; i++) {
+          if (exponent < 10_000) {
+            exponent = exponent * 10 + (b - '0');
+          }
+        }
+        if (i == exponentStart) {
+          throw error("invalid number, no digit in the exponent", i);
+        }
+        if (negativeExponent) {
+          exponent = -exponent;
+        }
+      }
+      if (i != end) {
+        throw error("invalid number", i);
+      }
+      index = i;
+      return number(negative, mantissa, digitCount, fractionCount, exponent, isDecimal, start, i);
+    }
+
+    @Override
+    String numberText(int start, int end) {
+      return new String(buffer, start, end - start, ISO_8859_1);
+    }
+  }
+
+  /**
+   * A set of keys known in advance, stored in an open addressing table with their hash,
+   * so a key of the JSON text can be recognized without being decoded to a string.
+   * Each key is associated to a slot, its index in the list of keys.
+   */
+  static final class KeyTable {
+    private final String[] keys;
+    private final int[] hashes;
+    private final int[] slots;
+
+    /**
+     * Creates a table from a list of keys.
+     * @param keys the keys, the slot of a key is its index in the list.
+     * @throws IllegalArgumentException if a key appears twice.
+     */
+    KeyTable(List<String> keys) {
+      var capacity = Integer.highestOneBit(Math.max(1, keys.size()) << 1) << 1;  // at most half full
+      this.keys = new String[capacity];
+      hashes = new int[capacity];
+      slots = new int[capacity];
+      for(var slot = 0; slot < keys.size(); slot++) {
+        var key = keys.get(slot);
+        var hash = key.hashCode();
+        var index = spread(hash) & (capacity - 1);
+        while(this.keys[index] != null) {
+          if (this.keys[index].equals(key)) {
+            throw new IllegalArgumentException("duplicate key " + key);
+          }
+          index = (index + 1) & (capacity - 1);
+        }
+        this.keys[index] = key;
+        hashes[index] = hash;
+        slots[index] = slot;
+      }
+    }
+
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the slot of a key or -1 if the key is not in the table.
+     */
+    int slot(String key) {
+      var keys = this.keys;
+      var mask = keys.length - 1;
+      var index = spread(key.hashCode()) & mask;
+      String name;
+      while((name = keys[index]) != null) {
+        if (name == key || name.equals(key)) {
+          return slots[index];
+        }
+        index = (index + 1) & mask;
+      }
+      return -1;
+    }
+
+    private String find(Lexer lexer, int hash, int length) {
+      var keys = this.keys;
+      var mask = keys.length - 1;
+      var index = spread(hash) & mask;
+      String key;
+      while((key = keys[index]) != null) {
+        if (hashes[index] == hash && key.length() == length && lexer.textEquals(key)) {
+          return key;
+        }
+        index = (index + 1) & mask;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Methods called when a JSON text is parsed.
+   * @see #parse(String, JSONVisitor)
+   */
+  public interface JSONVisitor {
+    /**
+     * Called during the parsing or the content of an object or an array.
+     *
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     * @param value the value
+     */
+    void value(String key, Object value);
+
+    /**
+     * Called during the parsing at the beginning of an object.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     *
+     * @see #endObject(String)
+     */
+    void startObject(String key);
+
+    /**
+     * Called during the parsing at the end of an object.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     *
+     * @see #startObject(String)
+     */
+    void endObject(String key);
+
+    /**
+     * Called during the parsing at the beginning of an array.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     *
+     * @see #endArray(String)
+     */
+    void startArray(String key);
+
+    /**
+     * Called during the parsing at the end of an array.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     *
+     * @see #startArray(String)
+     */
+    void endArray(String key);
+  }
+
+  /**
+   * A visitor that knows the keys expected in the current object,
+   * those keys are recognized in place and passed to the visitor as the strings of the table,
+   * the other keys are decoded.
+   */
+  interface KeyedVisitor extends JSONVisitor {
+    /**
+     * Returns the keys expected in the current object, called for each key.
+     * @return the keys of the current object or null if they are not known.
+     */
+    KeyTable keyTable();
+
+    /**
+     * Returns true if the value of a key of the current object, or of an element of the current array,
+     * should be passed to {@link #value(String, Object)} as a {@link JSONValue} that is not decoded.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     */
+    default boolean rawValue(String key) {
+      return false;
+    }
+
+    /**
+     * Called instead of {@link #value(String, Object)} for an integer, so it is not boxed.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     * @param value the value of the integer.
+     */
+    default void longValue(String key, long value) {
+      value(key, value == (int) value? (Object) (int) value: (Object) value);
+    }
+
+    /**
+     * Called instead of {@link #value(String, Object)} for a decimal number, so it is not boxed.
+     * @param key the key of the value if inside an object, {@code null} otherwise.
+     * @param value the value of the number.
+     */
+    default void doubleValue(String key, double value) {
+      value(key, value);
+    }
+  }
+
+  /**
+   * Parse a JSON text and calls the visitor methods when an array, an object or a value is parsed.
+   *
+   * @param input a JSON text
+   * @param visitor the visitor to call when parsing the JSON text
+   */
+  public static void parse(String input, JSONVisitor visitor) {
+    var lexer = new CharLexer(input);
+    try {
+      parse(lexer, visitor);
+    } catch(IllegalStateException e) {
+      throw new IllegalStateException(e.getMessage() + "\n while parsing " + input, e);
+    }
+  }
 
-    Kind(String regex) {
-      this.regex = regex;
+  /**
+   * Parse a JSON value, an object, an array but also a string, a number, a boolean or null,
+   * and calls the visitor methods when an array, an object or a value is parsed.
+   * Unlike {@link #parse(String, JSONVisitor)}, a value at the root is allowed,
+   * by example for a fragment returned by a function registered with
+   * {@link JSONWriter#configure(Class, java.util.function.Function)}.
+   *
+   * @param input a JSON value
+   * @param visitor the visitor to call when parsing the JSON value
+   */
+  static void parseValue(String input, JSONVisitor visitor) {
+    var lexer = new CharLexer(input);
+    var automaton = new Automaton(visitor);
+    automaton.state = Automaton.State.VALUE;
+    try {
+      parse(lexer, automaton);
+    } catch(IllegalStateException e) {
+      throw new IllegalStateException(e.getMessage() + "\n while parsing " + input, e);
     }
+  }
+
+  /**
+   * Parse a JSON text encoded in UTF-8 and calls the visitor methods when an array, an object or a value is parsed.
+   * The bytes are decoded only for the strings.
+   *
+   * @param input a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   */
+  public static void parse(byte[] input, JSONVisitor visitor) {
+    parse(ByteLexer.of(input), visitor);
+  }
+
+  /**
+   * Parse a JSON text encoded in UTF-8 and calls the visitor methods when an array, an object or a value is parsed.
+   * The bytes are read from the position to the limit of the buffer, the position of the buffer
+   * is then set to its limit.
+   *
+   * @param input a buffer containing a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   */
+  public static void parse(ByteBuffer input, JSONVisitor visitor) {
+    parse(ByteLexer.of(input), visitor);
+  }
+
+  /**
+   * Parse a JSON text encoded in UTF-8 and calls the visitor methods when an array, an object or a value is parsed.
+   * The bytes are read by chunks, so the whole text is never in memory, the input stream is not closed.
+   *
+   * @param input an input stream containing a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   * @throws UncheckedIOException if the input stream throws an IOException
+   */
+  public static void parse(InputStream input, JSONVisitor visitor) {
+    parse(ByteLexer.of(input), visitor);
+  }
+
+  /**
+   * Parse a JSON text encoded in UTF-8 in two phases and calls the visitor methods when an array,
+   * an object or a value is parsed. The first phase computes in parallel, by blocks, the positions
+   * of the tokens and checks the strings, the second phase calls the visitor in the current thread,
+   * following those positions.
+   * The visitor methods are called in the same order as {@link #parse(byte[], JSONVisitor)},
+   * this method is only faster for large texts.
+   *
+   * @param input a JSON text encoded in UTF-8
+   * @param visitor the visitor to call when parsing the JSON text
+   */
+  public static void parseParallel(byte[] input, JSONVisitor visitor) {
+    parse(ByteLexer.indexed(input), visitor);
+  }
 
-    private static final Kind[] VALUES = values();
+  private static void parse(Lexer lexer, JSONVisitor visitor) {
+    parse(lexer, new Automaton(visitor));
   }
 
-  private record Token(Kind kind, String text, int location) {
-    private boolean is(Kind kind) {
-      return this.kind == kind;
+  private static void parse(Lexer lexer, Automaton automaton) {
+    try {
+      do {
+        lexer.next();
+      } while(automaton.accept(lexer));
+    } finally {
+      lexer.release();
     }
+  }
 
-    private String expect(Kind kind) {
-      if (this.kind != kind) {
-        throw error(kind);
+  /**
+   * The grammar of JSON as a state machine, the stack of the enclosing objects and arrays is explicit,
+   * so the automaton only needs the current token to advance and can be suspended between two tokens.
+   */
+  private static final class Automaton {
+    private enum State {
+      ROOT, VALUE, OBJECT_FIRST, OBJECT_KEY, OBJECT_COLON, OBJECT_VALUE, OBJECT_NEXT, ARRAY_FIRST, ARRAY_VALUE, ARRAY_NEXT, END, DONE
+    }
+
+    private final JSONVisitor visitor;  // null if the automaton only checks the grammar
+    private final KeyedVisitor keyedVisitor;  // null if the keys are not known in advance
+    private State state = State.ROOT;
+    private String key;
+    private String[] keys = new String[8];  // the keys of the enclosing objects and arrays
+    private boolean[] objects = new boolean[8];  // true if an enclosing value is an object
+    private int depth;
+
+    private Automaton(JSONVisitor visitor) {
+      this.visitor = visitor;
+      this.keyedVisitor = visitor instanceof KeyedVisitor keyedVisitor? keyedVisitor: null;
+    }
+
+    /**
+     * Advances the automaton using the current token of the lexer.
+     * @return false if the token is the end of the input.
+     */
+    private boolean accept(Lexer lexer) {
+      var kind = lexer.kind;
+      switch (state) {
+        case ROOT -> {
+          if (kind != LEFT_CURLY && kind != LEFT_BRACKET) {
+            throw lexer.error(LEFT_CURLY, LEFT_BRACKET);
+          }
+          value(null, lexer, State.END);
+        }
+        case VALUE -> value(null, lexer, State.END);
+        case OBJECT_FIRST -> {
+          if (kind == RIGHT_CURLY) {
+            close();
+            break;
+          }
+          lexer.expect(STRING);
+          key = key(lexer);
+          state = State.OBJECT_COLON;
+        }
+        case OBJECT_KEY -> {
+          lexer.expect(STRING);
+          key = key(lexer);
+          state = State.OBJECT_COLON;
+        }
+        case OBJECT_COLON -> {
+          lexer.expect(COLON);
+          state = State.OBJECT_VALUE;
+        }
+        case OBJECT_VALUE -> value(key, lexer, State.OBJECT_NEXT);
+        case OBJECT_NEXT -> {
+          if (kind == RIGHT_CURLY) {
+            close();
+            break;
+          }
+          lexer.expect(COMMA);
+          state = State.OBJECT_KEY;
+        }
+        case ARRAY_FIRST -> {
+          if (kind == RIGHT_BRACKET) {
+            close();
+            break;
+          }
+          value(null, lexer, State.ARRAY_NEXT);
+        }
+        case ARRAY_VALUE -> value(null, lexer, State.ARRAY_NEXT);
+        case ARRAY_NEXT -> {
+          if (kind == RIGHT_BRACKET) {
+            close();
+            break;
+          }
+          lexer.expect(COMMA);
+          state = State.ARRAY_VALUE;
+        }
+        case END -> {
+          lexer.expect(EOF);
+          state = State.DONE;
+          return false;
+        }
+        case DONE -> throw new IllegalStateException("the parsing is already done");
       }
-      return text;
+      return true;
     }
 
-    public IllegalStateException error(Kind... expectedKinds) {
-      return new IllegalStateException("expect " + Arrays.stream(expectedKinds).map(Kind::name).collect(joining(", ")) + " but recognized " + kind + " at " + location);
+    private void value(String key, Lexer lexer, State next) {
+      if (keyedVisitor != null && state != State.ROOT && state != State.VALUE && keyedVisitor.rawValue(key)) {
+        switch (lexer.kind) {
+          case NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET -> {
+            visitor.value(key, lexer.rawValue());
+            state = next;
+            return;
+          }
+          default -> throw lexer.error(NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET);
+        }
+      }
+      switch (lexer.kind) {
+        case INTEGER, DOUBLE -> {
+          if (keyedVisitor != null) {
+            if (lexer.kind == INTEGER) {
+              keyedVisitor.longValue(key, lexer.longValue);
+            } else {
+              keyedVisitor.doubleValue(key, lexer.doubleValue);
+            }
+          } else if (visitor != null) {
+            visitor.value(key, lexer.value());
+          }
+          state = next;
+        }
+        case NULL, FALSE, TRUE, STRING -> {
+          if (visitor != null) {
+            visitor.value(key, lexer.value());
+          }
+          state = next;
+        }
+        case LEFT_CURLY -> {
+          open(key, true);
+          if (visitor != null) {
+            visitor.startObject(key);
+          }
+          state = State.OBJECT_FIRST;
+        }
+        case LEFT_BRACKET -> {
+          open(key, false);
+          if (visitor != null) {
+            visitor.startArray(key);
+          }
+          state = State.ARRAY_FIRST;
+        }
+        default -> throw lexer.error(NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET);
+      }
+    }
+
+    private String key(Lexer lexer) {
+      if (visitor == null) {
+        // only the grammar is checked, a cursor decodes a key only if it is asked for
+        return null;
+      }
+      return keyedVisitor == null? lexer.text(): lexer.key(keyedVisitor.keyTable());
+    }
+
+    /**
+     * Returns true if the last token accepted is a key.
+     */
+    private boolean afterKey() {
+      return state == State.OBJECT_COLON;
+    }
+
+    private void open(String key, boolean object) {
+      if (depth == keys.length) {
+        keys = Arrays.copyOf(keys, depth << 1);
+        objects = Arrays.copyOf(objects, depth << 1);
+      }
+      keys[depth] = key;
+      objects[depth] = object;
+      depth++;
+    }
+
+    private void close() {
+      depth--;
+      var key = keys[depth];
+      keys[depth] = null;
+      if (visitor != null) {
+        if (objects[depth]) {
+          visitor.endObject(key);
+        } else {
+          visitor.endArray(key);
+        }
+      }
+      state = depth == 0? State.END: objects[depth - 1]? State.OBJECT_NEXT: State.ARRAY_NEXT;
+    }
+  }
+
+  /**
+   * The positions of the values of an object or an array, the value at index i is between
+   * {@code starts[i]} and {@code ends[i]}.
+   *
+   * @param keys the keys of an object or null for an array.
+   */
+  record Members(String[] keys, int[] starts, int[] ends) { }
+
+  /**
+   * Creates a lexer on a string or on UTF-8 bytes positioned at an index.
+   */
+  private static Lexer lexer(Object source, int index) {
+    if (source instanceof String input) {
+      var lexer = new CharLexer(input);
+      lexer.index = index;
+      return lexer;
+    }
+    var lexer = ByteLexer.of((byte[]) source);
+    lexer.index = index;
+    return lexer;
+  }
+
+  /**
+   * Returns the object or the array of a JSON text as a {@link JSONValue}, the content of the
+   * object or the array is skipped, not validated.
+   *
+   * @param source a JSON text as a string or as UTF-8 bytes.
+   * @throws IllegalStateException if the text is not an object or an array.
+   */
+  static JSONValue lazyValue(Object source) {
+    var lexer = lexer(source, 0);
+    var kind = lexer.next();
+    if (kind != LEFT_CURLY && kind != LEFT_BRACKET) {
+      throw lexer.error(LEFT_CURLY, LEFT_BRACKET);
     }
+    var start = lexer.location;
+    lexer.skipContainer();
+    var end = lexer.tokenEnd();
+    lexer.next();
+    lexer.expect(EOF);
+    return new JSONValue(source, start, end);
   }
 
-  private record Lexer(Matcher matcher) {
-    private Token next() {
+  /**
+   * Scans the object or the array that starts at a position, only the keys are decoded,
+   * the values are skipped, the content of the objects and arrays they contain is not validated.
+   *
+   * @param source a JSON text as a string or as UTF-8 bytes.
+   * @param start the position of the opening curly or bracket.
+   * @throws IllegalStateException if the object or the array is not valid.
+   */
+  static Members members(Object source, int start) {
+    var lexer = lexer(source, start);
+    var kind = lexer.next();
+    if (kind != LEFT_CURLY && kind != LEFT_BRACKET) {
+      throw lexer.error(LEFT_CURLY, LEFT_BRACKET);
+    }
+    var object = kind == LEFT_CURLY;
+    var close = object? RIGHT_CURLY: RIGHT_BRACKET;
+    var keys = object? new String[8]: null;
+    var starts = new int[8];
+    var ends = new int[8];
+    var size = 0;
+    if (lexer.next() != close) {
       for(;;) {
-        if (!matcher.find()) {
-          throw new IllegalStateException("no token recognized");
+        if (size == starts.length) {
+          keys = object? Arrays.copyOf(keys, size << 1): null;
+          starts = Arrays.copyOf(starts, size << 1);
+          ends = Arrays.copyOf(ends, size << 1);
         }
-        var index = rangeClosed(1, matcher.groupCount()).filter(i -> matcher.group(i) != null).findFirst().orElseThrow();
-        var kind = Kind.VALUES[index - 1];
-        if (kind != Kind.BLANK) {
-          return new Token(kind, matcher.group(index), matcher.start(index));
+        if (object) {
+          lexer.expect(STRING);
+          keys[size] = lexer.text();
+          lexer.next();
+          lexer.expect(COLON);
+          lexer.next();
         }
+        starts[size] = lexer.location;
+        switch (lexer.kind) {
+          case NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING -> {}
+          case LEFT_CURLY, LEFT_BRACKET -> lexer.skipContainer();
+          default -> throw lexer.error(NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_CURLY, LEFT_BRACKET);
+        }
+        ends[size++] = lexer.tokenEnd();
+        if (lexer.next() == close) {
+          break;
+        }
+        lexer.expect(COMMA);
+        lexer.next();
       }
     }
+    return new Members(object? Arrays.copyOf(keys, size): null, Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
   }
 
   /**
-   * Methods called when a JSON text is parsed.
-   * @see #parse(String, JSONVisitor)
+   * Decodes the number, the keyword or the string that starts at a position.
+   *
+   * @param source a JSON text as a string or as UTF-8 bytes.
+   * @param start the position of the value.
+   * @return the value boxed like the values passed to {@link JSONVisitor#value(String, Object)}.
+   * @throws IllegalStateException if the value is not valid.
    */
-  public interface JSONVisitor {
-    /**
-     * Called during the parsing or the content of an object or an array.
-     *
-     * @param key the key of the value if inside an object, {@code null} otherwise.
-     * @param value the value
-     */
-    void value(String key, Object value);
+  static Object scalar(Object source, int start) {
+    var lexer = lexer(source, start);
+    switch (lexer.next()) {
+      case NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING -> {
+        return lexer.value();
+      }
+      default -> throw lexer.error(NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING);
+    }
+  }
+
+  /**
+   * Decodes a text that must be exactly one JSON number, without any whitespace around it.
+   *
+   * @param text the text of a number.
+   * @return the number boxed like the values passed to {@link JSONVisitor#value(String, Object)}
+   *         or null if the text is not exactly one number.
+   */
+  static Object number(String text) {
+    var lexer = new CharLexer(text);
+    try {
+      var kind = lexer.next();
+      if ((kind != INTEGER && kind != DOUBLE) || lexer.location != 0 || lexer.tokenEnd() != text.length()) {
+        return null;
+      }
+    } catch(IllegalStateException e) {
+      return null;
+    }
+    return lexer.value();
+  }
+
+  /**
+   * A parser that parses one token each time {@link #next()} is called, so the parsing
+   * can be suspended between two calls to the visitor, by example to bind the elements
+   * of a large array one by one. The input is read by chunks.
+   */
+  static final class PullParser {
+    private final Lexer lexer;
+    private final Automaton automaton;
+
+    private PullParser(Lexer lexer, JSONVisitor visitor) {
+      this.lexer = lexer;
+      this.automaton = new Automaton(Objects.requireNonNull(visitor));
+    }
 
     /**
-     * Called during the parsing at the beginning of an object.
-     * @param key the key of the value if inside an object, {@code null} otherwise.
-     *
-     * @see #endObject(String)
+     * Parses the next token and calls the visitor if the token ends a value.
+     * @return false if the end of the JSON text is reached.
+     * @throws IllegalStateException if the JSON text is not valid or if the end has already been reached.
      */
-    void startObject(String key);
+    boolean next() {
+      lexer.next();
+      if (automaton.accept(lexer)) {
+        return true;
+      }
+      lexer.release();
+      return false;
+    }
+  }
+
+  /**
+   * Creates a pull parser on a JSON text encoded in UTF-8 read by chunks from an input stream,
+   * the input stream is not closed.
+   */
+  static PullParser pullParser(InputStream input, JSONVisitor visitor) {
+    return new PullParser(ByteLexer.of(input), visitor);
+  }
+
+  /**
+   * Creates a pull parser on a JSON text read by chunks from a reader, the reader is not closed.
+   */
+  static PullParser pullParser(Reader input, JSONVisitor visitor) {
+    return new PullParser(ByteLexer.of(input), visitor);
+  }
+
+  /**
+   * A parser that receives the JSON text encoded in UTF-8 by chunks and calls the visitor methods
+   * as soon as the bytes of an array, an object or a value have been received.
+   * A token can be split between two chunks, only the bytes of the current token
+   * and the stack of the enclosing objects and arrays are kept between two chunks.
+   *
+   * <pre>
+   * var parser = new PushParser(visitor);
+   * while (channel.read(buffer) != -1) {
+   *   parser.feed(buffer.flip());
+   *   buffer.clear();
+   * }
+   * parser.end();
+   * </pre>
+   */
+  public static final class PushParser {
+    private final ByteLexer lexer = ByteLexer.push();
+    private final Automaton automaton;
 
     /**
-     * Called during the parsing at the end of an object.
-     * @param key the key of the value if inside an object, {@code null} otherwise.
-     *
-     * @see #startObject(String)
+     * Creates a parser that calls the visitor.
+     * @param visitor the visitor to call when parsing the JSON text
      */
-    void endObject(String key);
+    public PushParser(JSONVisitor visitor) {
+      automaton = new Automaton(Objects.requireNonNull(visitor));
+    }
 
     /**
-     * Called during the parsing at the beginning of an array.
-     * @param key the key of the value if inside an object, {@code null} otherwise.
+     * Parses the bytes from the position to the limit of the buffer, the position of the buffer is then
+     * set to its limit.
      *
-     * @see #endArray(String)
+     * @param buffer a chunk of the JSON text encoded in UTF-8
+     * @throws IllegalStateException if the text is not a valid JSON text or if {@link #end()} has been called.
      */
-    void startArray(String key);
+    public void feed(ByteBuffer buffer) {
+      lexer.feed(buffer);
+      advance();
+    }
 
     /**
-     * Called during the parsing at the end of an array.
-     * @param key the key of the value if inside an object, {@code null} otherwise.
-     *
-     * @see #startArray(String)
+     * Signals the end of the JSON text.
+     * @throws IllegalStateException if the text is not a complete JSON text.
      */
-    void endArray(String key);
-  }
+    public void end() {
+      lexer.end();
+      try {
+        advance();
+      } finally {
+        lexer.release();
+      }
+    }
 
-  private static final Pattern PATTERN = compile(Arrays.stream(Kind.VALUES).map(k -> k.regex).collect(joining("|")));
+    private void advance() {
+      while (lexer.next() != null) {
+        if (!automaton.accept(lexer)) {
+          return;
+        }
+      }
+    }
+  }
 
   /**
-   * Parse a JSON text and calls the visitor methods when an array, an object or a value is parsed.
+   * A cursor that reads the tokens of a JSON text one by one, the caller asks for the next token
+   * instead of being called back by a visitor.
+   * The colons and the commas are checked but not returned, a string used as a key is returned as
+   * {@link Kind#KEY}. The values are decoded only if a getter is called.
    *
-   * @param input a JSON text
-   * @param visitor the visitor to call when parsing the JSON text
+   * <pre>
+   * var cursor = ToyJSONParser.cursor(text);
+   * cursor.nextToken();  // LEFT_CURLY
+   * while (cursor.nextToken() == KEY) {
+   *   if (cursor.getString().equals("id")) {
+   *     cursor.nextToken();
+   *     id = cursor.getInt();
+   *   } else {
+   *     cursor.skipValue();
+   *   }
+   * }
+   * </pre>
+   *
+   * @see #cursor(String)
+   * @see #cursor(InputStream)
    */
-  public static void parse(String input, JSONVisitor visitor) {
-    var lexer = new Lexer(PATTERN.matcher(input));
-    try {
-      parse(lexer, visitor);
-    } catch(IllegalStateException e) {
-      throw new IllegalStateException(e.getMessage() + "\n while parsing " + input, e);
+  public static final class Cursor {
+    /**
+     * The location of the characters of a string in the JSON text, the escape sequences are not decoded.
+     *
+     * @param start the position of the first character (or byte) after the opening quote.
+     * @param end the position of the closing quote.
+     * @param escaped true if the string contains escape sequences.
+     */
+    public record StringRange(int start, int end, boolean escaped) { }
+
+    private final Lexer lexer;
+    private final Automaton automaton = new Automaton(null);
+    private Kind kind;
+
+    private Cursor(Lexer lexer) {
+      this.lexer = lexer;
     }
-  }
 
-  private static void parse(Lexer lexer, JSONVisitor visitor) {
-    var token = lexer.next();
-    switch(token.kind) {
-      case LEFT_CURLY -> {
-        visitor.startObject(null);
-        parseObject(null, lexer, visitor);
-      }
-      case LEFT_BRACKET -> {
-        visitor.startArray(null);
-        parseArray(null, lexer, visitor);
-      }
-      default -> throw token.error(LEFT_CURLY, LEFT_BRACKET);
-    }
-  }
-
-  private static void parseValue(String currentKey, Token token, Lexer lexer, JSONVisitor visitor) {
-    switch (token.kind) {
-      case NULL -> visitor.value(currentKey, null);
-      case FALSE -> visitor.value(currentKey, false);
-      case TRUE -> visitor.value(currentKey, true);
-      case INTEGER -> visitor.value(currentKey, parseInt(token.text));
-      case DOUBLE -> visitor.value(currentKey, parseDouble(token.text));
-      case STRING -> visitor.value(currentKey, token.text);
-      case LEFT_CURLY -> {
-        visitor.startObject(currentKey);
-        parseObject(currentKey, lexer, visitor);
-      }
-      case LEFT_BRACKET -> {
-        visitor.startArray(currentKey);
-        parseArray(currentKey, lexer, visitor);
-      }
-      default -> throw token.error(NULL, FALSE, TRUE, INTEGER, DOUBLE, STRING, LEFT_BRACKET, RIGHT_CURLY);
-    }
-  }
-
-  private static void parseObject(String currentKey, Lexer lexer, JSONVisitor visitor) {
-    var token = lexer.next();
-    if (token.is(RIGHT_CURLY)) {
-      visitor.endObject(currentKey);
-      return;
-    }
-    for(;;) {
-      var key = token.expect(STRING);
-      lexer.next().expect(COLON);
-      token = lexer.next();
-      parseValue(key, token, lexer, visitor);
-      token = lexer.next();
-      if (token.is(RIGHT_CURLY)) {
-        visitor.endObject(currentKey);
-        return;
+    /**
+     * Reads the next token.
+     * @return the kind of the token, {@link Kind#EOF} at the end of the JSON text.
+     * @throws IllegalStateException if the JSON text is not valid.
+     */
+    public Kind nextToken() {
+      if (kind == EOF) {
+        return EOF;
+      }
+      for(;;) {
+        var kind = lexer.next();
+        automaton.accept(lexer);
+        switch (kind) {
+          case COLON, COMMA -> {}
+          case STRING -> {
+            return this.kind = automaton.afterKey()? KEY: STRING;
+          }
+          default -> {
+            return this.kind = kind;
+          }
+        }
       }
-      token.expect(COMMA);
-      token = lexer.next();
     }
-  }
 
-  private static void parseArray(String currentKey, Lexer lexer, JSONVisitor visitor) {
-    var token = lexer.next();
-    if (token.is(RIGHT_BRACKET)) {
-      visitor.endArray(currentKey);
-      return;
+    /**
+     * Returns the kind of the current token.
+     * @return the kind of the current token or null if {@link #nextToken()} has not been called.
+     */
+    public Kind currentToken() {
+      return kind;
     }
-    for(;;) {
-      parseValue(null, token, lexer, visitor);
-      token = lexer.next();
-      if (token.is(RIGHT_BRACKET)) {
-        visitor.endArray(currentKey);
-        return;
+
+    /**
+     * Skips the current value.
+     * If the current token is a key, its value is skipped,
+     * if it is the start of an object or an array, the cursor moves to its end,
+     * otherwise the value is already read and nothing is done.
+     * The content of an object or an array is not decoded, only the brackets and the quotes are recognized.
+     */
+    public void skipValue() {
+      switch (kind) {
+        case KEY -> {
+          nextToken();
+          skipValue();
+        }
+        case LEFT_CURLY, LEFT_BRACKET -> {
+          lexer.skipContainer();
+          automaton.accept(lexer);
+          kind = lexer.kind;
+        }
+        default -> {}
+      }
+    }
+
+    private IllegalStateException notA(String type) {
+      return new IllegalStateException("current token " + kind + " at " + lexer.location + " is not " + type);
+    }
+
+    /**
+     * Returns the value of the current token as an int.
+     * @throws IllegalStateException if the current token is not an integer that fits in an int.
+     */
+    public int getInt() {
+      if (kind != INTEGER || lexer.longValue != (int) lexer.longValue) {
+        throw notA("an int");
+      }
+      return (int) lexer.longValue;
+    }
+
+    /**
+     * Returns the value of the current token as a long.
+     * @throws IllegalStateException if the current token is not an integer.
+     */
+    public long getLong() {
+      if (kind != INTEGER) {
+        throw notA("an integer");
+      }
+      return lexer.longValue;
+    }
+
+    /**
+     * Returns the value of the current token as a double.
+     * @throws IllegalStateException if the current token is not a number.
+     */
+    public double getDouble() {
+      return switch (kind) {
+        case INTEGER -> lexer.longValue;
+        case DOUBLE -> lexer.doubleValue;
+        default -> throw notA("a number");
+      };
+    }
+
+    /**
+     * Returns the value of the current token as a boolean.
+     * @throws IllegalStateException if the current token is not true or false.
+     */
+    public boolean getBoolean() {
+      return switch (kind) {
+        case TRUE -> true;
+        case FALSE -> false;
+        default -> throw notA("a boolean");
+      };
+    }
+
+    /**
+     * Returns the decoded characters of the current string or key.
+     * @throws IllegalStateException if the current token is not a string or a key.
+     */
+    public String getString() {
+      if (kind != STRING && kind != KEY) {
+        throw notA("a string");
+      }
+      return lexer.text();
+    }
+
+    /**
+     * Returns the location of the characters of the current string or key in the JSON text,
+     * without decoding them.
+     * @throws IllegalStateException if the current token is not a string or a key.
+     */
+    public StringRange getStringRange() {
+      if (kind != STRING && kind != KEY) {
+        throw notA("a string");
       }
-      token.expect(COMMA);
-      token = lexer.next();
+      return new StringRange(lexer.position(lexer.textStart), lexer.position(lexer.textEnd), lexer.escaped);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Creates a cursor on a JSON text.
+   * @param input a JSON text
+   * @return a new cursor
+   */
+  public static Cursor cursor(String input) {
+    return new Cursor(new CharLexer(input));
+  }
+
+  /**
+   * Creates a cursor on a JSON text encoded in UTF-8.
+   * @param input a JSON text encoded in UTF-8
+   * @return a new cursor
+   */
+  public static Cursor cursor(byte[] input) {
+    return new Cursor(ByteLexer.of(input));
+  }
+
+  /**
+   * Creates a cursor on a JSON text encoded in UTF-8, the position of the buffer is set to its limit.
+   * @param input a buffer containing a JSON text encoded in UTF-8
+   * @return a new cursor
+   */
+  public static Cursor cursor(ByteBuffer input) {
+    return new Cursor(ByteLexer.of(input));
+  }
+
+  /**
+   * Creates a cursor on a JSON text encoded in UTF-8 read by chunks from an input stream.
+   * The positions returned by {@link Cursor#getStringRange()} are positions in the stream.
+   *
+   * @param input an input stream containing a JSON text encoded in UTF-8
+   * @return a new cursor
+   */
+  public static Cursor cursor(InputStream input) {
+    return new Cursor(ByteLexer.of(input));
+  }
+}
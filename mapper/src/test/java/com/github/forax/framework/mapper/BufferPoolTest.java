@@ -0,0 +1,155 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferPoolTest {
+  private static final JSONVisitor EMPTY_VISITOR = new JSONVisitor() {
+    @Override
+    public void value(String key, Object value) { }
+    @Override
+    public void startObject(String key) { }
+    @Override
+    public void endObject(String key) { }
+    @Override
+    public void startArray(String key) { }
+    @Override
+    public void endArray(String key) { }
+  };
+
+  @Test
+  public void leaseAfterReleaseReusesTheBuffer() {
+    var buffer = BufferPool.leaseBytes();
+    BufferPool.release(buffer);
+    var hits = BufferPool.statistics().hits();
+    var buffer2 = BufferPool.leaseBytes();
+    BufferPool.release(buffer2);
+    assertAll(
+        () -> assertSame(buffer, buffer2),
+        () -> assertEquals(hits + 1, BufferPool.statistics().hits())
+    );
+  }
+
+  @Test
+  public void leaseChars() {
+    var buffer = BufferPool.leaseChars();
+    BufferPool.release(buffer);
+    var buffer2 = BufferPool.leaseChars();
+    BufferPool.release(buffer2);
+    assertAll(
+        () -> assertEquals(BufferPool.CAPACITY, buffer.length),
+        () -> assertSame(buffer, buffer2)
+    );
+  }
+
+  @Test
+  public void releaseAGrownBufferDiscardsIt() {
+    var discards = BufferPool.statistics().discards();
+    var buffer = new byte[BufferPool.CAPACITY * 2];
+    BufferPool.release(buffer);
+    var buffer2 = BufferPool.leaseBytes();
+    BufferPool.release(buffer2);
+    assertAll(
+        () -> assertEquals(discards + 1, BufferPool.statistics().discards()),
+        () -> assertNotSame(buffer, buffer2)
+    );
+  }
+
+  @Test
+  public void toJSONReusesTheBuffers() {
+    var writer = new JSONWriter();
+    var text = "a long string with a \" quote that is escaped".repeat(4);
+    writer.toJSON(List.of(text));
+    var statistics = BufferPool.statistics();
+    assertEquals("[" + writer.toJSON(text) + "]", writer.toJSON(List.of(text)));
+    var statistics2 = BufferPool.statistics();
+    assertAll(
+        () -> assertEquals(statistics.misses(), statistics2.misses()),
+        () -> assertTrue(statistics2.hits() > statistics.hits())
+    );
+  }
+
+  @Test
+  public void toBinaryReusesTheBuffer() {
+    var writer = new JSONWriter();
+    var map = Map.of("foo", 1, "bar", List.of(2, 3));
+    var data = writer.toBinary(map);
+    var misses = BufferPool.statistics().misses();
+    assertEquals(BinaryParser.toJSON(data), BinaryParser.toJSON(writer.toBinary(map)));
+    assertEquals(misses, BufferPool.statistics().misses());
+  }
+
+  @Test
+  public void parseReusesTheBuffers() {
+    var text = "{ \"foo\": [1, 2, \"bar\"] }";
+    ToyJSONParser.parse(new ByteArrayInputStream(text.getBytes(UTF_8)), EMPTY_VISITOR);
+    var misses = BufferPool.statistics().misses();
+    ToyJSONParser.parse(new ByteArrayInputStream(text.getBytes(UTF_8)), EMPTY_VISITOR);
+    var parser = new ToyJSONParser.PushParser(EMPTY_VISITOR);
+    parser.feed(ByteBuffer.wrap(text.getBytes(UTF_8)));
+    parser.end();
+    assertEquals(misses, BufferPool.statistics().misses());
+  }
+
+  @Test
+  public void streamArrayReleasesTheBuffersAtTheEnd() {
+    var reader = new JSONReader();
+    var input = "[1, 2, 3]".getBytes(UTF_8);
+    assertEquals(List.of(1, 2, 3), reader.streamArray(new ByteArrayInputStream(input), Integer.class).toList());
+    assertEquals(List.of(1, 2, 3), reader.streamArray(new StringReader("[1, 2, 3]"), Integer.class).toList());
+    var misses = BufferPool.statistics().misses();
+    assertEquals(List.of(1, 2, 3), reader.streamArray(new ByteArrayInputStream(input), Integer.class).toList());
+    assertEquals(List.of(1, 2, 3), reader.streamArray(new StringReader("[1, 2, 3]"), Integer.class).toList());
+    assertEquals(misses, BufferPool.statistics().misses());
+  }
+
+  @Test
+  public void concurrentWritersAndParsers() throws Exception {
+    var writer = new JSONWriter();
+    var executor = Executors.newFixedThreadPool(16);
+    try {
+      var futures = new ArrayList<Future<String>>();
+      for(var i = 0; i < 1_000; i++) {
+        var list = IntStream.range(0, i).boxed().toList();
+        futures.add(executor.submit(() -> {
+          var text = writer.toJSON(list);
+          ToyJSONParser.parse(new ByteArrayInputStream(text.getBytes(UTF_8)), EMPTY_VISITOR);
+          return text;
+        }));
+      }
+      for(var i = 0; i < futures.size(); i++) {
+        assertEquals(writer.toJSON(IntStream.range(0, i).boxed().toList()), futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void statistics() {
+    var statistics = BufferPool.statistics();
+    assertAll(
+        () -> assertTrue(statistics.hitRate() >= 0 && statistics.hitRate() <= 1),
+        () -> assertTrue(statistics.maxRetainedBytes() > 0),
+        () -> assertEquals(0.0, new BufferPool.Statistics(0, 0, 0, 0).hitRate()),
+        () -> assertEquals(0.75, new BufferPool.Statistics(3, 1, 0, 0).hitRate())
+    );
+  }
+}
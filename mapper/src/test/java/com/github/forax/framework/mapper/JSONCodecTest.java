@@ -0,0 +1,304 @@
+package com.github.forax.framework.mapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.lang.reflect.ParameterizedType;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JSONCodecTest {
+  @JSONSerializable
+  public record Point(int x, @JSONProperty("y-coordinate") double y, boolean visible, String label) { }
+  public record ReflectivePoint(int x, @JSONProperty("y-coordinate") double y, boolean visible, String label) { }
+
+  @JSONSerializable
+  public static class Person {
+    private String name;
+    private int age;
+    private String email;
+
+    public String getName() {
+      return name;
+    }
+    public void setName(String name) {
+      this.name = name;
+    }
+    public int getAge() {
+      return age;
+    }
+    public void setAge(int age) {
+      this.age = age;
+    }
+    @JSONProperty("e-mail")
+    public String getEmail() {
+      return email;
+    }
+    @JSONProperty("e-mail")
+    public void setEmail(String email) {
+      this.email = email;
+    }
+    public boolean isAdult() {
+      return age >= 18;
+    }
+  }
+
+  public static class ReflectivePerson {
+    private final Person person = new Person();
+
+    public String getName() {
+      return person.getName();
+    }
+    public int getAge() {
+      return person.getAge();
+    }
+    @JSONProperty("e-mail")
+    public String getEmail() {
+      return person.getEmail();
+    }
+    public boolean isAdult() {
+      return person.isAdult();
+    }
+  }
+
+  private static Person person(String name, int age, String email) {
+    var person = new Person();
+    person.setName(name);
+    person.setAge(age);
+    person.setEmail(email);
+    return person;
+  }
+
+  private static ReflectivePerson reflectivePerson(String name, int age, String email) {
+    var person = new ReflectivePerson();
+    person.person.setName(name);
+    person.person.setAge(age);
+    person.person.setEmail(email);
+    return person;
+  }
+
+  @JSONSerializable
+  public record Numbers(byte b, short s, long l, float f, Double boxed) { }
+
+  @JSONSerializable
+  public record Tree(String name, List<Tree> children) { }
+
+  private static JSONReader listReader() {
+    var reader = new JSONReader();
+    reader.addTypeMatcher(type -> Optional.of(type)
+        .flatMap(t -> t instanceof ParameterizedType parameterizedType? Optional.of(parameterizedType): Optional.empty())
+        .filter(t -> t.getRawType() == List.class)
+        .map(t -> JSONReader.Collector.list(t.getActualTypeArguments()[0])));
+    return reader;
+  }
+
+  @Test
+  public void codecsAreGenerated() {
+    var codec = Codecs.codec(Point.class);
+    assertAll(
+        () -> assertNotNull(codec),
+        () -> assertEquals(JSONCodecTest_Point_JSONCodec.class, codec.getClass()),
+        () -> assertEquals(List.of("x", "y-coordinate", "visible", "label"), codec.keys()),
+        () -> assertEquals(List.of("adult", "age", "e-mail", "name"), Codecs.codec(Person.class).keys()),
+        () -> assertNull(Codecs.codec(ReflectivePoint.class))
+    );
+  }
+
+  @Test
+  public void typesOfTheKeys() {
+    var codec = Codecs.codec(Tree.class);
+    var personCodec = Codecs.codec(Person.class);
+    assertAll(
+        () -> assertEquals(String.class, codec.type(0)),
+        () -> assertEquals(Tree.class, ((ParameterizedType) codec.type(1)).getActualTypeArguments()[0]),
+        () -> assertNull(personCodec.type(0)),  // adult has no setter
+        () -> assertEquals(int.class, personCodec.type(1))
+    );
+  }
+
+  @Test
+  public void toJSONLikeReflection() {
+    for(var options: List.of(new JSONWriter.Option[0], new JSONWriter.Option[] { JSONWriter.Option.COMPACT },
+        new JSONWriter.Option[] { JSONWriter.Option.PRETTY_PRINT }, new JSONWriter.Option[] { JSONWriter.Option.CODE_GENERATION })) {
+      var writer = new JSONWriter(options);
+      assertAll(
+          () -> assertEquals(writer.toJSON(new ReflectivePoint(1, 2.5, true, "a \"point\"")),
+              writer.toJSON(new Point(1, 2.5, true, "a \"point\""))),
+          () -> assertEquals(writer.toJSON(reflectivePerson("Ana", 21, "ana@mail.com")),
+              writer.toJSON(person("Ana", 21, "ana@mail.com"))),
+          () -> assertEquals(writer.toJSON(List.of(new ReflectivePoint(0, 0, false, null))),
+              writer.toJSON(List.of(new Point(0, 0, false, null))))
+      );
+    }
+  }
+
+  @Test
+  public void toJSONRecord() {
+    var writer = new JSONWriter();
+    assertEquals("""
+        {"x": 1, "y-coordinate": 2.5, "visible": true, "label": "point"}\
+        """, writer.toJSON(new Point(1, 2.5, true, "point")));
+  }
+
+  @Test
+  public void toBinaryLikeReflection() {
+    var writer = new JSONWriter();
+    assertAll(
+        () -> assertArrayEquals(writer.toBinary(new ReflectivePoint(-7, 1e100, false, "point")),
+            writer.toBinary(new Point(-7, 1e100, false, "point"))),
+        () -> assertArrayEquals(writer.toBinary(reflectivePerson("Bob", 12, null)),
+            writer.toBinary(person("Bob", 12, null)))
+    );
+  }
+
+  @Test
+  public void parseJSONRecordWithoutTypeMatcher() {
+    var reader = new JSONReader();
+    assertEquals(new Point(3, 4.0, true, "p"), reader.parseJSON("""
+        { "label": "p", "x": 3, "y-coordinate": 4, "visible": true }
+        """, Point.class));
+  }
+
+  @Test
+  public void parseJSONRecordDefaultValues() {
+    var reader = new JSONReader();
+    assertEquals(new Point(0, 0.0, false, null), reader.parseJSON("{}", Point.class));
+  }
+
+  @Test
+  public void parseJSONBean() {
+    var reader = new JSONReader();
+    var person = reader.parseJSON("""
+        { "name": "Ana", "age": 21, "e-mail": "ana@mail.com" }
+        """, Person.class);
+    assertAll(
+        () -> assertEquals("Ana", person.getName()),
+        () -> assertEquals(21, person.getAge()),
+        () -> assertEquals("ana@mail.com", person.getEmail()),
+        () -> assertTrue(person.isAdult())
+    );
+  }
+
+  @Test
+  public void parseJSONBeanKeyWithoutSetter() {
+    var reader = new JSONReader();
+    var e = assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+        { "adult": true }
+        """, Person.class));
+    assertTrue(e.getMessage().contains("unknown key adult"));
+  }
+
+  @Test
+  public void parseJSONNumbersNotBoxed() {
+    var reader = new JSONReader();
+    var writer = new JSONWriter();
+    var numbers = new Numbers((byte) -3, (short) 1_000, 1L << 40, 1.5f, 42.5);
+    assertAll(
+        () -> assertEquals(numbers, reader.parseJSON(writer.toJSON(numbers), Numbers.class)),
+        () -> assertEquals(numbers, reader.parseBinary(writer.toBinary(numbers), Numbers.class)),
+        () -> assertEquals(new Numbers((byte) 0, (short) 2, 3L, 4.0f, null),
+            reader.parseJSON("""
+                { "b": 0.5, "s": 2, "l": 3.0, "f": 4, "boxed": null }
+                """, Numbers.class))
+    );
+  }
+
+  @Test
+  public void roundTripTree() {
+    var reader = listReader();
+    var writer = new JSONWriter();
+    var tree = new Tree("root", List.of(new Tree("left", List.of()), new Tree("right", List.of(new Tree("leaf", List.of())))));
+    assertAll(
+        () -> assertEquals(tree, reader.parseJSON(writer.toJSON(tree), Tree.class)),
+        () -> assertEquals(tree, reader.parseBinary(writer.toBinary(tree), Tree.class))
+    );
+  }
+
+  private static List<String> compile(Path directory, String source) {
+    String classPath;
+    try {
+      classPath = Path.of(JSONCodec.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    } catch (URISyntaxException e) {
+      throw new AssertionError(e);
+    }
+    var compiler = ToolProvider.getSystemJavaCompiler();
+    var file = new SimpleJavaFileObject(URI.create("string:///p/Foo.java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+    var diagnostics = new DiagnosticCollector<JavaFileObject>();
+    var task = compiler.getTask(null, null, diagnostics,
+        List.of("-d", directory.toString(), "-cp", classPath), null, List.of(file));
+    task.setProcessors(List.of(new JSONCodecProcessor()));
+    task.call();
+    return diagnostics.getDiagnostics().stream()
+        .map(diagnostic -> diagnostic.getMessage(null))
+        .toList();
+  }
+
+  @Test
+  public void processorGeneratesACompilableCodec(@TempDir Path directory) {
+    var messages = compile(directory, """
+        package p;
+        import com.github.forax.framework.mapper.*;
+        import java.util.*;
+        public class Foo {
+          @JSONSerializable
+          record Bar(Map<String, List<Integer>> map, int[] values, @JSONProperty("\\"quoted\\"") String text) { }
+        }
+        """);
+    assertAll(
+        () -> assertEquals(List.of(), messages),
+        () -> assertTrue(directory.resolve("p/Foo_Bar_JSONCodec.class").toFile().exists()),
+        () -> assertTrue(Arrays.asList(directory.resolve("META-INF/services").toFile().list())
+            .contains(JSONCodec.class.getName()))
+    );
+  }
+
+  @Test
+  public void processorRejectsAPrivateClass(@TempDir Path directory) {
+    var messages = compile(directory, """
+        package p;
+        import com.github.forax.framework.mapper.*;
+        public class Foo {
+          @JSONSerializable
+          private record Bar(int x) { }
+        }
+        """);
+    assertAll(
+        () -> assertEquals(1, messages.size()),
+        () -> assertTrue(messages.get(0).contains("Bar must not be private")),
+        () -> assertFalse(directory.resolve("p/Foo_Bar_JSONCodec.class").toFile().exists())
+    );
+  }
+
+  @Test
+  public void processorRejectsAGenericClass(@TempDir Path directory) {
+    var messages = compile(directory, """
+        package p;
+        import com.github.forax.framework.mapper.*;
+        @JSONSerializable
+        public record Foo<T>(T value) { }
+        """);
+    assertEquals(List.of("@JSONSerializable is not supported on a generic type"), messages);
+  }
+}
@@ -3,16 +3,32 @@ package com.github.forax.framework.mapper;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.stream.IntStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -22,7 +38,6 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JSONReaderTest {
-  /*
   @Nested
   public class Q1 {
 
@@ -538,5 +553,648 @@ public class JSONReaderTest {
     }
 
   }  // end of Q7
- */
-}
\ No newline at end of file
+
+
+  @Nested
+  public class BindingPlans {
+
+    @SuppressWarnings("unused")
+    public static class RenamedBean {
+      private String firstName;
+
+      @JSONProperty("first-name")
+      public void setFirstName(String firstName) {
+        this.firstName = firstName;
+      }
+    }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONBeanWithJSONProperty() {
+      var reader = new JSONReader();
+      var bean = reader.parseJSON("""
+        { "first-name": "Bob" }
+        """, RenamedBean.class);
+      assertEquals("Bob", bean.firstName);
+    }
+
+    public record RenamedRecord(@JSONProperty("first-name") String firstName, int age) { }
+
+    @Test @Tag("BindingPlans")
+    public void collectorRecordWithJSONProperty() {
+      var collector = JSONReader.Collector.record(RenamedRecord.class);
+      var array = collector.supplier().get();
+      collector.populater().populate(array, "first-name", "Ana");
+      var record = (RenamedRecord) collector.finisher().apply(array);
+      assertEquals(new RenamedRecord("Ana", 0), record);
+    }
+
+    @SuppressWarnings("unused")
+    public static class NumberBean {
+      private long count;
+      private double ratio;
+
+      public void setCount(long count) {
+        this.count = count;
+      }
+      public void setRatio(double ratio) {
+        this.ratio = ratio;
+      }
+    }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONNumberConversions() {
+      var reader = new JSONReader();
+      var bean = reader.parseJSON("""
+        { "count": 3, "ratio": 2 }
+        """, NumberBean.class);
+      assertAll(
+          () -> assertEquals(3L, bean.count),
+          () -> assertEquals(2.0, bean.ratio)
+      );
+    }
+
+    public record Point(double x, long y) { }
+
+    @Test @Tag("BindingPlans")
+    public void collectorRecordNumberConversions() {
+      var collector = JSONReader.Collector.record(Point.class);
+      var array = collector.supplier().get();
+      collector.populater().populate(array, "x", 1);
+      collector.populater().populate(array, "y", 2);
+      assertEquals(new Point(1.0, 2L), collector.finisher().apply(array));
+    }
+
+    @Test @Tag("BindingPlans")
+    public void collectorRecordUnknownKey() {
+      var collector = JSONReader.Collector.record(Point.class);
+      var array = collector.supplier().get();
+      assertThrows(IllegalStateException.class, () -> collector.populater().populate(array, "z", 3));
+    }
+
+    @Test @Tag("BindingPlans")
+    public void collectorBeanManyProperties() {
+      var collector = JSONReader.Collector.bean(NumberBean.class);
+      assertAll(
+          () -> assertEquals(long.class, collector.qualifier().apply("count")),
+          () -> assertEquals(double.class, collector.qualifier().apply("ratio")),
+          () -> assertThrows(IllegalStateException.class, () -> collector.qualifier().apply("unknown"))
+      );
+    }
+
+    private static JSONReader.TypeMatcher recordTypeMatcher() {
+      return type -> Optional.of(type)
+          .flatMap(t -> t instanceof Class<?> clazz && clazz.isRecord()? Optional.of(clazz): Optional.empty())
+          .map(JSONReader.Collector::record);
+    }
+
+    public record Primitives(boolean flag, byte b, short s, char c, int i, long l, float f, double d) { }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONRecordPrimitives() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(recordTypeMatcher());
+      var record = reader.parseJSON("""
+        { "flag": true, "b": 1, "s": 2, "i": 3, "l": 4000000000, "f": 1.5, "d": 7 }
+        """, Primitives.class);
+      assertEquals(new Primitives(true, (byte) 1, (short) 2, '\0', 3, 4_000_000_000L, 1.5f, 7.0), record);
+    }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONRecordPrimitivesDefaultValues() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(recordTypeMatcher());
+      var record = reader.parseJSON("{}", Primitives.class);
+      assertEquals(new Primitives(false, (byte) 0, (short) 0, '\0', 0, 0L, 0f, 0.0), record);
+    }
+
+    @Test @Tag("BindingPlans")
+    public void collectorRecordPrimitivesBoxed() {
+      var collector = JSONReader.Collector.record(Primitives.class);
+      var data = collector.supplier().get();
+      collector.populater().populate(data, "flag", true);
+      collector.populater().populate(data, "c", 'A');
+      collector.populater().populate(data, "d", 2.5);
+      collector.populater().populate(data, "f", 3);
+      assertEquals(new Primitives(true, (byte) 0, (short) 0, 'A', 0, 0L, 3f, 2.5), collector.finisher().apply(data));
+    }
+
+    public record Mixed(String name, int age, double weight, Point point) { }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONRecordMixed() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(recordTypeMatcher());
+      var record = reader.parseJSON("""
+        { "name": "Ana", "age": 31, "weight": 60.5, "point": { "x": 1, "y": 2 } }
+        """, Mixed.class);
+      assertEquals(new Mixed("Ana", 31, 60.5, new Point(1.0, 2L)), record);
+    }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONBeanDoubleToLong() {
+      var reader = new JSONReader();
+      var bean = reader.parseJSON("""
+        { "count": 3.7, "ratio": 4000000000 }
+        """, NumberBean.class);
+      assertAll(
+          () -> assertEquals(3L, bean.count),
+          () -> assertEquals(4_000_000_000.0, bean.ratio)
+      );
+    }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONBeanPrimitiveInvalidValue() {
+      var reader = new JSONReader();
+      var nullValue = assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+        { "count": null }
+        """, NumberBean.class));
+      var wrongType = assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+        { "ratio": "x" }
+        """, NumberBean.class));
+      assertAll(
+          () -> assertTrue(nullValue.getMessage().startsWith("invalid value null for key count of type long for " + NumberBean.class.getName()), nullValue.getMessage()),
+          () -> assertTrue(wrongType.getMessage().startsWith("invalid value x for key ratio of type double for " + NumberBean.class.getName()), wrongType.getMessage())
+      );
+    }
+
+    @Test @Tag("BindingPlans")
+    public void parseJSONRecordPrimitiveInvalidValue() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(recordTypeMatcher());
+      var nullValue = assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+        { "i": null }
+        """, Primitives.class));
+      var wrongType = assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+        { "flag": "x" }
+        """, Primitives.class));
+      assertAll(
+          () -> assertTrue(nullValue.getMessage().startsWith("invalid value null for key i of type int for " + Primitives.class.getName()), nullValue.getMessage()),
+          () -> assertTrue(wrongType.getMessage().startsWith("invalid value x for key flag of type boolean for " + Primitives.class.getName()), wrongType.getMessage()),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+            { "d": true }
+            """, Primitives.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSON("""
+            { "flag": 1 }
+            """, Primitives.class))
+      );
+    }
+
+  }  // end of BindingPlans
+
+
+  @Nested
+  public class StreamArray {
+
+    public record Person(String name, int age) { }
+
+    private static JSONReader recordReader() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.Collector::record));
+      return reader;
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayOfRecords() {
+      var reader = recordReader();
+      var input = new ByteArrayInputStream("""
+        [
+          { "name": "Bob", "age": 23 },
+          { "name": "Ana", "age": 24 }
+        ]
+        """.getBytes(UTF_8));
+      var persons = reader.streamArray(input, Person.class).toList();
+      assertEquals(List.of(new Person("Bob", 23), new Person("Ana", 24)), persons);
+    }
+
+    @SuppressWarnings("unused")
+    public static class Car {
+      private String owner;
+      private List<String> passengers;
+
+      public void setOwner(String owner) {
+        this.owner = owner;
+      }
+      public void setPassengers(List<String> passengers) {
+        this.passengers = passengers;
+      }
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayOfBeansFromAReader() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(type)
+          .flatMap(t -> t instanceof ParameterizedType parameterizedType ? Optional.of(parameterizedType) : Optional.empty())
+          .filter(t -> t.getRawType() == List.class)
+          .map(t -> JSONReader.Collector.list(t.getActualTypeArguments()[0])));
+      var input = new StringReader("""
+        [ { "owner": "\u00e9l\u00e9a", "passengers": ["Bob", "Ana"] }, { "owner": "Lou", "passengers": [] } ]
+        """);
+      var cars = reader.streamArray(input, Car.class).toList();
+      assertAll(
+          () -> assertEquals(2, cars.size()),
+          () -> assertEquals("\u00e9l\u00e9a", cars.get(0).owner),
+          () -> assertEquals(List.of("Bob", "Ana"), cars.get(0).passengers),
+          () -> assertEquals("Lou", cars.get(1).owner),
+          () -> assertEquals(List.of(), cars.get(1).passengers)
+      );
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayOfValues() {
+      var reader = new JSONReader();
+      var values = reader.streamArray(new StringReader("[1, \"foo\", null, 2.5, true]"), Object.class).toList();
+      assertEquals(Arrays.asList(1, "foo", null, 2.5, true), values);
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayOfLongStringsFromAReader() {
+      var reader = new JSONReader();
+      var string = "a\u00e9\u20ac\uD83D\uDE00".repeat(5_000);
+      var values = reader.streamArray(new StringReader("[\"" + string + "\", \"" + string + "\"]"), String.class).toList();
+      assertEquals(List.of(string, string), values);
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayEmpty() {
+      var reader = new JSONReader();
+      assertEquals(0, reader.streamArray(new StringReader("[]"), Object.class).count());
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayIsLazy() {
+      var reader = recordReader();
+      var text = "[" + "{ \"name\": \"Bob\", \"age\": 23 }, ".repeat(100_000) + "{ \"name\": ";
+      var stream = reader.streamArray(new StringReader(text), Person.class);
+      assertEquals(new Person("Bob", 23), stream.findFirst().orElseThrow());
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayLarge() {
+      var reader = recordReader();
+      var text = "[" + "{ \"name\": \"Bob\", \"age\": 23 }, ".repeat(100_000) + "{ \"name\": \"Ana\", \"age\": 24 }]";
+      var input = new ByteArrayInputStream(text.getBytes(UTF_8));
+      assertEquals(100_000 * 23 + 24, reader.streamArray(input, Person.class).mapToInt(Person::age).sum());
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayErrors() {
+      var reader = recordReader();
+      assertAll(
+          () -> assertThrows(IllegalStateException.class,
+              () -> reader.streamArray(new StringReader("{ \"name\": \"Bob\" }"), Person.class).toList()),
+          () -> assertThrows(IllegalStateException.class,
+              () -> reader.streamArray(new StringReader("[{ \"name\": \"Bob\" }"), Person.class).toList()),
+          () -> assertThrows(IllegalStateException.class,
+              () -> reader.streamArray(new StringReader("[{ \"foo\": 3 }]"), Person.class).toList())
+      );
+    }
+
+    @Test @Tag("StreamArray")
+    public void streamArrayPreconditions() {
+      var reader = new JSONReader();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> reader.streamArray((InputStream) null, Object.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.streamArray((Reader) null, Object.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.streamArray(new StringReader("[]"), (Type) null)),
+          () -> assertThrows(NullPointerException.class, () -> reader.streamArray(new StringReader("[]"), (Class<?>) null))
+      );
+    }
+
+  }  // end of StreamArray
+
+
+  @Nested
+  public class StreamLines {
+
+    public record Person(String name, int age) { }
+
+    private static JSONReader recordReader() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.Collector::record));
+      return reader;
+    }
+
+    @Test @Tag("StreamLines")
+    public void streamLines(@TempDir Path directory) throws IOException {
+      var path = Files.writeString(directory.resolve("persons.jsonl"), """
+          { "name": "Bob", "age": 23 }
+          { "name": "Ana", "age": 24 }
+          """);
+      var reader = recordReader();
+      try(var stream = reader.streamLines(path, Person.class)) {
+        assertEquals(List.of(new Person("Bob", 23), new Person("Ana", 24)), stream.toList());
+      }
+    }
+
+    @Test @Tag("StreamLines")
+    public void streamLinesIsParallel(@TempDir Path directory) throws IOException {
+      var path = Files.writeString(directory.resolve("persons.jsonl"),
+          IntStream.range(0, 100_000)
+              .mapToObj(i -> "{ \"name\": \"\u00e9l\u00e8ve " + i + "\", \"age\": " + i + " }\n")
+              .collect(joining()));
+      var reader = recordReader();
+      try(var stream = reader.streamLines(path, Person.class)) {
+        assertTrue(stream.isParallel());
+        var persons = stream.toList();
+        assertAll(
+            () -> assertEquals(100_000, persons.size()),
+            () -> assertTrue(IntStream.range(0, 100_000)
+                .allMatch(i -> persons.get(i).equals(new Person("\u00e9l\u00e8ve " + i, i))))
+        );
+      }
+    }
+
+    @Test @Tag("StreamLines")
+    public void streamLinesBlankLinesAndCRLF(@TempDir Path directory) throws IOException {
+      var path = Files.writeString(directory.resolve("values.jsonl"),
+          "\r\n[1, 2]\r\n\n  \n{ \"name\": \"Bob\", \"age\": 23 }\r\n[3]");
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(JSONReader.Collector.list(Object.class)));
+      try(var stream = reader.streamLines(path, List.class)) {
+        assertEquals(List.of(List.of(1, 2), List.of("Bob", 23), List.of(3)), stream.toList());
+      }
+    }
+
+    @Test @Tag("StreamLines")
+    public void streamLinesEmptyFile(@TempDir Path directory) throws IOException {
+      var path = Files.writeString(directory.resolve("empty.jsonl"), "");
+      var reader = new JSONReader();
+      try(var stream = reader.streamLines(path, Object.class)) {
+        assertEquals(0, stream.count());
+      }
+    }
+
+    @Test @Tag("StreamLines")
+    public void streamLinesInvalidLine(@TempDir Path directory) throws IOException {
+      var path = Files.writeString(directory.resolve("persons.jsonl"), """
+          { "name": "Bob", "age": 23 }
+          { "name": "Ana", "age": }
+          """);
+      var reader = recordReader();
+      try(var stream = reader.streamLines(path, Person.class)) {
+        var e = assertThrows(IllegalStateException.class, stream::toList);
+        assertTrue(e.getMessage().endsWith("while parsing the line at 29"));
+      }
+    }
+
+    @Test @Tag("StreamLines")
+    public void streamLinesPreconditions(@TempDir Path directory) {
+      var reader = new JSONReader();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> reader.streamLines(null, Object.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.streamLines(directory, (Type) null)),
+          () -> assertThrows(UncheckedIOException.class, () -> reader.streamLines(directory.resolve("missing.jsonl"), Object.class))
+      );
+    }
+
+  }  // end of StreamLines
+
+
+  @Nested
+  public class LazyValues {
+
+    @SuppressWarnings("unused")
+    public static class Envelope {
+      private String type;
+      private JSONValue payload;
+
+      public void setType(String type) {
+        this.type = type;
+      }
+      public void setPayload(JSONValue payload) {
+        this.payload = payload;
+      }
+    }
+
+    @Test @Tag("LazyValues")
+    public void parseJSONBeanWithAJSONValue() {
+      var reader = new JSONReader();
+      var envelope = reader.parseJSON("""
+        {
+          "type": "person",
+          "payload": { "name": "Bob", "unknown": [1, 2, {"x": 3}] }
+        }
+        """, Envelope.class);
+      assertAll(
+          () -> assertEquals("person", envelope.type),
+          () -> assertEquals("Bob", envelope.payload.get("name").orElseThrow().asString()),
+          () -> assertEquals("{ \"name\": \"Bob\", \"unknown\": [1, 2, {\"x\": 3}] }", envelope.payload.toString())
+      );
+    }
+
+    public record Event(String type, JSONValue payload, int id) { }
+
+    @Test @Tag("LazyValues")
+    public void parseJSONRecordWithAJSONValue() {
+      var reader = new JSONReader();
+      reader.addTypeMatcher(type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.Collector::record));
+      var event = reader.parseJSON("""
+        { "type": "count", "payload": 42, "id": 7 }
+        """, Event.class);
+      assertAll(
+          () -> assertEquals("count", event.type),
+          () -> assertEquals(42, event.payload.asInt()),
+          () -> assertEquals(7, event.id)
+      );
+    }
+
+    @Test @Tag("LazyValues")
+    public void parseJSONAsAJSONValue() {
+      var reader = new JSONReader();
+      var value = reader.parseJSON("[1, 2, 3]", JSONValue.class);
+      assertEquals(3, value.get(2).asInt());
+    }
+
+    @Test @Tag("LazyValues")
+    public void streamArrayOfJSONValues() {
+      var reader = new JSONReader();
+      var input = new ByteArrayInputStream("""
+        [ { "name": "Bob" }, [1, 2], "foo" ]
+        """.getBytes(UTF_8));
+      var values = reader.streamArray(input, JSONValue.class).map(JSONValue::toString).toList();
+      assertEquals(List.of("{ \"name\": \"Bob\" }", "[1, 2]", "\"foo\""), values);
+    }
+
+    @Test @Tag("LazyValues")
+    public void streamLinesOfBeansWithAJSONValue(@TempDir Path directory) throws IOException {
+      var path = Files.writeString(directory.resolve("events.jsonl"), """
+          { "type": "a", "payload": { "x": 1 } }
+          { "type": "b", "payload": [ "y" ] }
+          """);
+      var reader = new JSONReader();
+      try(var stream = reader.streamLines(path, Envelope.class)) {
+        var payloads = stream.map(envelope -> envelope.type + "=" + envelope.payload).toList();
+        assertEquals(List.of("a={ \"x\": 1 }", "b=[ \"y\" ]"), payloads);
+      }
+    }
+
+  }  // end of LazyValues
+
+
+  @Nested
+  public class BinaryEncoding {
+
+    private static JSONReader.TypeMatcher listTypeMatcher() {
+      return type -> Optional.of(type)
+          .flatMap(t -> t instanceof ParameterizedType parameterizedType? Optional.of(parameterizedType): Optional.empty())
+          .filter(t -> t.getRawType() == List.class)
+          .map(t -> JSONReader.Collector.list(t.getActualTypeArguments()[0]));
+    }
+
+    private static JSONReader.TypeMatcher recordTypeMatcher() {
+      return type -> Optional.of(Utils.erase(type)).filter(Class::isRecord).map(JSONReader.Collector::record);
+    }
+
+    @SuppressWarnings("unused")
+    public static class PersonBean {
+      private String name;
+      private int age;
+      private boolean admin;
+
+      public void setName(String name) {
+        this.name = name;
+      }
+      public void setAge(int age) {
+        this.age = age;
+      }
+      public void setAdmin(boolean admin) {
+        this.admin = admin;
+      }
+      public String getName() {
+        return name;
+      }
+      public int getAge() {
+        return age;
+      }
+      public boolean isAdmin() {
+        return admin;
+      }
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryBean() {
+      var bean = new PersonBean();
+      bean.setName("Ana");
+      bean.setAge(37);
+      bean.setAdmin(true);
+      var data = new JSONWriter().toBinary(bean);
+      var result = new JSONReader().parseBinary(data, PersonBean.class);
+      assertAll(
+          () -> assertEquals("Ana", result.name),
+          () -> assertEquals(37, result.age),
+          () -> assertTrue(result.admin)
+      );
+    }
+
+    public record Measure(String label, long time, double value, float ratio, boolean valid) { }
+    public record Series(String name, List<Measure> measures) { }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryRecords() {
+      var series = new Series("temperatures", IntStream.range(0, 100)
+          .mapToObj(i -> new Measure("m" + i, 1_700_000_000_000L + i, i * 0.5, i / 4f, i % 2 == 0))
+          .toList());
+      var data = new JSONWriter().toBinary(series);
+      var reader = new JSONReader();
+      reader.addTypeMatcher(listTypeMatcher());
+      reader.addTypeMatcher(recordTypeMatcher());
+      assertEquals(series, reader.parseBinary(data, Series.class));
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryList() {
+      var listOfMeasures = Series.class.getRecordComponents()[1].getGenericType();
+      var reader = new JSONReader();
+      reader.addTypeMatcher(listTypeMatcher());
+      assertEquals(List.of(), reader.parseBinary(new JSONWriter().toBinary(List.of()), listOfMeasures));
+    }
+
+    public record Event(String type, JSONValue payload) { }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryWithAJSONValue() {
+      var payload = new LinkedHashMap<String, Object>();
+      payload.put("x", 1);
+      payload.put("tags", Arrays.asList("a", null));
+      var writer = new JSONWriter();
+      var data = writer.toBinary(Map.of("type", "point", "payload", payload));
+      var reader = new JSONReader();
+      reader.addTypeMatcher(recordTypeMatcher());
+      var event = reader.parseBinary(data, Event.class);
+      assertAll(
+          () -> assertEquals("point", event.type),
+          () -> assertEquals("{\"x\":1,\"tags\":[\"a\",null]}", event.payload.toString()),
+          () -> assertEquals(1, event.payload.get("x").orElseThrow().asInt())
+      );
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryAsAJSONValue() {
+      var data = new JSONWriter().toBinary(List.of(1, 2, 3));
+      var value = new JSONReader().parseBinary(data, JSONValue.class);
+      assertEquals(3, value.get(2).asInt());
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryScalarRoot() {
+      var reader = new JSONReader();
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSON(writer.toJSON(42), int.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(writer.toBinary(42), int.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseJSON(writer.toJSON("x"), String.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(writer.toBinary("x"), String.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(writer.toBinary(null), Object.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(writer.toBinary(42), JSONValue.class))
+      );
+    }
+
+    private static byte[] objectWithNumber(String key, String number) {
+      var output = new ByteArrayOutputStream();
+      output.write(BinaryOutput.START_OBJECT);
+      output.write(BinaryOutput.KEY);
+      output.write(key.length());
+      output.writeBytes(key.getBytes(UTF_8));
+      output.write(BinaryOutput.NUMBER);
+      output.write(number.length());
+      output.writeBytes(number.getBytes(UTF_8));
+      output.write(BinaryOutput.END_OBJECT);
+      return output.toByteArray();
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryInvalidNumber() {
+      var reader = new JSONReader();
+      var injection = objectWithNumber("age", "1,\"admin\":true");
+      assertAll(
+          () -> assertEquals("{\"age\":1.5E+400}", BinaryParser.toJSON(objectWithNumber("age", "1.5E+400"))),
+          () -> assertEquals("invalid number at 7",
+              assertThrows(IllegalStateException.class, () -> BinaryParser.toJSON(injection)).getMessage()),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(injection, JSONValue.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(injection, PersonBean.class)),
+          () -> assertEquals("invalid number at 7",
+              assertThrows(IllegalStateException.class, () -> reader.parseBinary(objectWithNumber("age", "12abc"), PersonBean.class)).getMessage()),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(objectWithNumber("age", " 12"), PersonBean.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(objectWithNumber("age", ""), PersonBean.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(objectWithNumber("age", "\"x\""), PersonBean.class))
+      );
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void parseBinaryInvalidData() {
+      var reader = new JSONReader();
+      var bean = new PersonBean();
+      bean.setName("Bob");
+      var data = new JSONWriter().toBinary(bean);
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(new byte[0], PersonBean.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(Arrays.copyOf(data, data.length - 1), PersonBean.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(Arrays.copyOf(data, data.length + 1), PersonBean.class)),
+          () -> assertThrows(IllegalStateException.class, () -> reader.parseBinary(new byte[] { 0x0E }, PersonBean.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.parseBinary(null, PersonBean.class)),
+          () -> assertThrows(NullPointerException.class, () -> reader.parseBinary(data, (Type) null))
+      );
+    }
+
+  }  // end of BinaryEncoding
+}
@@ -0,0 +1,134 @@
+package com.github.forax.framework.mapper;
+
+import com.github.forax.framework.mapper.JSONValue.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JSONValueTest {
+  private static final String TEXT = """
+      {
+        "name": "élève",
+        "age": 23,
+        "height": 1.82,
+        "student": true,
+        "address": null,
+        "escaped": "a\\"b\\u00e9",
+        "friends": [ { "name": "Bob" }, { "name": "Ana", "tags": ["x", [1, {}]] } ],
+        "big": 12345678901
+      }
+      """;
+
+  @Test
+  public void parseObject() {
+    for(var value: List.of(JSONValue.parse(TEXT), JSONValue.parse(TEXT.getBytes(UTF_8)))) {
+      assertAll(
+          () -> assertEquals(Kind.OBJECT, value.kind()),
+          () -> assertEquals(8, value.size()),
+          () -> assertEquals(List.of("name", "age", "height", "student", "address", "escaped", "friends", "big"), value.keys()),
+          () -> assertEquals("élève", value.get("name").orElseThrow().asString()),
+          () -> assertEquals(23, value.get("age").orElseThrow().asInt()),
+          () -> assertEquals(1.82, value.get("height").orElseThrow().asDouble()),
+          () -> assertTrue(value.get("student").orElseThrow().asBoolean()),
+          () -> assertTrue(value.get("address").orElseThrow().isNull()),
+          () -> assertEquals("a\"bé", value.get("escaped").orElseThrow().asString()),
+          () -> assertEquals(12345678901L, value.get("big").orElseThrow().asLong()),
+          () -> assertEquals(Optional.empty(), value.get("phone"))
+      );
+    }
+  }
+
+  @Test
+  public void parseNested() {
+    var friends = JSONValue.parse(TEXT).get("friends").orElseThrow();
+    assertAll(
+        () -> assertEquals(Kind.ARRAY, friends.kind()),
+        () -> assertEquals(2, friends.size()),
+        () -> assertEquals("Bob", friends.get(0).get("name").orElseThrow().asString()),
+        () -> assertEquals(1, friends.get(1).get("tags").orElseThrow().get(1).get(0).asInt()),
+        () -> assertEquals(0, friends.get(1).get("tags").orElseThrow().get(1).get(1).size()),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> friends.get(2))
+    );
+  }
+
+  @Test
+  public void cached() {
+    var value = JSONValue.parse(TEXT);
+    var friends = value.get("friends").orElseThrow();
+    assertAll(
+        () -> assertSame(friends, value.get("friends").orElseThrow()),
+        () -> assertSame(friends.get(0), friends.get(0)),
+        () -> assertSame(value.get("name").orElseThrow().asString(), value.get("name").orElseThrow().asString())
+    );
+  }
+
+  @Test
+  public void toStringIsTheOriginalText() {
+    var value = JSONValue.parse(TEXT);
+    assertAll(
+        () -> assertEquals("{ \"name\": \"Bob\" }", value.get("friends").orElseThrow().get(0).toString()),
+        () -> assertEquals("\"a\\\"b\\u00e9\"", value.get("escaped").orElseThrow().toString()),
+        () -> assertEquals("1.82", JSONValue.parse(TEXT.getBytes(UTF_8)).get("height").orElseThrow().toString())
+    );
+  }
+
+  @Test
+  public void duplicateKeys() {
+    var small = JSONValue.parse("{ \"a\": 1, \"a\": 2 }");
+    var large = JSONValue.parse(IntStream.range(0, 20)
+        .mapToObj(i -> "\"k" + i + "\": " + i)
+        .collect(Collectors.joining(", ", "{", ", \"k3\": 42}")));
+    assertAll(
+        () -> assertEquals(2, small.get("a").orElseThrow().asInt()),
+        () -> assertEquals(42, large.get("k3").orElseThrow().asInt()),
+        () -> assertEquals(19, large.get("k19").orElseThrow().asInt()),
+        () -> assertFalse(large.get("k20").isPresent())
+    );
+  }
+
+  @Test
+  public void lazyValidation() {
+    var value = JSONValue.parse("{ \"a\": [1, 2], \"b\": {\"c\" 3} }");
+    assertAll(
+        () -> assertEquals(2, value.get("a").orElseThrow().get(1).asInt()),
+        () -> assertThrows(IllegalStateException.class, () -> value.get("b").orElseThrow().get("c"))
+    );
+  }
+
+  @Test
+  public void wrongKind() {
+    var value = JSONValue.parse(TEXT);
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> value.get(0)),
+        () -> assertThrows(IllegalStateException.class, value::asString),
+        () -> assertThrows(IllegalStateException.class, () -> value.get("age").orElseThrow().asString()),
+        () -> assertThrows(IllegalStateException.class, () -> value.get("name").orElseThrow().size()),
+        () -> assertThrows(IllegalStateException.class, () -> value.get("friends").orElseThrow().keys()),
+        () -> assertThrows(ArithmeticException.class, () -> value.get("height").orElseThrow().asLong()),
+        () -> assertThrows(ArithmeticException.class, () -> value.get("big").orElseThrow().asInt())
+    );
+  }
+
+  @Test
+  public void parseErrors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> JSONValue.parse("")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONValue.parse("3")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONValue.parse("[1, 2")),
+        () -> assertThrows(IllegalStateException.class, () -> JSONValue.parse("[1] 2")),
+        () -> assertThrows(NullPointerException.class, () -> JSONValue.parse((String) null)),
+        () -> assertThrows(NullPointerException.class, () -> JSONValue.parse((byte[]) null))
+    );
+  }
+}
@@ -4,13 +4,34 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.MonthDay;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -252,4 +273,702 @@ public class JSONWriterTest {
     }
 
   }  // end of Q7
+
+  @Nested
+  public class Streaming {
+    @Test @Tag("Streaming")
+    public void toJSONAppendable() {
+      record Address(String street) { }
+      record Person(String name, Address address) { }
+      var writer = new JSONWriter();
+      var builder = new StringBuilder("json: ");
+      writer.toJSON(new Person("Bob", new Address("21 Jump Street")), builder);
+      assertEquals("""
+          json: {"name": "Bob", "address": {"street": "21 Jump Street"}}\
+          """,
+          builder.toString());
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONOutputStream() {
+      record Person(String name, int age) { }
+      var writer = new JSONWriter();
+      var outputStream = new ByteArrayOutputStream();
+      writer.toJSON(new Person("Zoé", 37), outputStream);
+      assertEquals("""
+          {"name": "Zoé", "age": 37}\
+          """,
+          outputStream.toString(UTF_8));
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONStreamingPreconditions() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> writer.toJSON("foo", (Appendable) null)),
+          () -> assertThrows(NullPointerException.class, () -> writer.toJSON("foo", (ByteArrayOutputStream) null))
+      );
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONAppendableNonASCIIText() {
+      record Message(String text) { }
+      var writer = new JSONWriter();
+      var text = "é€😀".repeat(10_000);
+      var builder = new StringBuilder();
+      writer.toJSON(new Message(text), builder);
+      assertEquals("{\"text\": \"" + text + "\"}", builder.toString());
+    }
+
+    @Test @Tag("Streaming")
+    public void toJSONEscapedKey() {
+      record Quote(@JSONProperty("say \"hello\"") String text) { }
+      var writer = new JSONWriter();
+      assertEquals("""
+          {"say \\"hello\\"": "world"}\
+          """,
+          writer.toJSON(new Quote("world")));
+    }
+
+  }  // end of Streaming
+
+  @Nested
+  public class CodeGeneration {
+    @Test @Tag("CodeGeneration")
+    public void toJSONWithARecord() {
+      record Person(String name, int age, double weight, boolean member) { }
+      var writer = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+      var person = new Person("Ana", 37, 62.5, true);
+      assertEquals("""
+          {"name": "Ana", "age": 37, "weight": 62.5, "member": true}\
+          """,
+          writer.toJSON(person));
+    }
+
+    @Test @Tag("CodeGeneration")
+    public void toJSONWithAClass() {
+      var writer = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+      var person = new Person("Bob", "Hunky");
+      assertEquals("""
+          {"first-name": "Bob", "last-name": "Hunky"}\
+          """,
+          writer.toJSON(person));
+    }
+
+    @Test @Tag("CodeGeneration")
+    public void toJSONEmptyRecord() {
+      record Empty() { }
+      var writer = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+      assertEquals("{}", writer.toJSON(new Empty()));
+    }
+
+    @Test @Tag("CodeGeneration")
+    public void toJSONFullExample() {
+      var writer = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+      writer.configure(MonthDay.class, monthDay -> writer.toJSON(monthDay.getMonth() + "-" + monthDay.getDayOfMonth()));
+      var person = new PersonInfo(MonthDay.of(4, 17), new AddressInfo());
+      assertEquals("""
+          {"birth-day": "APRIL-17", "address": {"international": false}}\
+          """,
+          writer.toJSON(person));
+    }
+
+    @Test @Tag("CodeGeneration")
+    public void toJSONGetterException() {
+      class Failure {
+        public String getMessage() {
+          throw new IllegalStateException("oops");
+        }
+      }
+      var writer = new JSONWriter(JSONWriter.Option.CODE_GENERATION);
+      assertThrows(IllegalStateException.class, () -> writer.toJSON(new Failure()));
+    }
+
+    @Test @Tag("CodeGeneration")
+    public void optionPrecondition() {
+      assertThrows(NullPointerException.class, () -> new JSONWriter((JSONWriter.Option) null));
+    }
+
+  }  // end of CodeGeneration
+
+  @Nested
+  public class Escaping {
+    @Test @Tag("Escaping")
+    public void toJSONEscapedString() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("\"\"", writer.toJSON("")),
+          () -> assertEquals("\"say \\\"hello\\\"\"", writer.toJSON("say \"hello\"")),
+          () -> assertEquals("\"C:\\\\temp\"", writer.toJSON("C:\\temp")),
+          () -> assertEquals("\"a\\nb\\tc\\rd\\be\\ff\"", writer.toJSON("a\nb\tc\rd\be\ff")),
+          () -> assertEquals("\"\\u0000\\u001f\"", writer.toJSON("\u0000\u001f")),
+          () -> assertEquals("\"été 😀\"", writer.toJSON("été 😀"))
+      );
+    }
+
+    private static String escape(String text) {
+      var builder = new StringBuilder("\"");
+      for(var i = 0; i < text.length(); i++) {
+        var c = text.charAt(i);
+        switch (c) {
+          case '"' -> builder.append("\\\"");
+          case '\\' -> builder.append("\\\\");
+          case '\n' -> builder.append("\\n");
+          case '\r' -> builder.append("\\r");
+          case '\t' -> builder.append("\\t");
+          case '\b' -> builder.append("\\b");
+          case '\f' -> builder.append("\\f");
+          default -> {
+            if (c < 0x20) {
+              builder.append("\\u%04x".formatted((int) c));
+            } else {
+              builder.append(c);
+            }
+          }
+        }
+      }
+      return builder.append('"').toString();
+    }
+
+    @Test @Tag("Escaping")
+    public void toJSONEscapedLongStrings() {
+      var alphabet = new String[] { "a", "b", "0", " ", "\"", "\\", "\n", "\u0001", "é", "€", "😀" };
+      var random = new Random(0);
+      var writer = new JSONWriter();
+      for(var length = 0; length < 1_200; length += 7) {
+        var builder = new StringBuilder();
+        for(var i = 0; i < length; i++) {
+          // mostly ASCII to exercise the runs of clean characters
+          builder.append(alphabet[random.nextInt(8) == 0? random.nextInt(alphabet.length): random.nextInt(3)]);
+        }
+        var text = builder.toString();
+        assertEquals(escape(text), writer.toJSON(text), "length " + length);
+      }
+    }
+
+    @Test @Tag("Escaping")
+    public void toJSONSurrogatePairOnChunkBoundary() {
+      var writer = new JSONWriter();
+      for(var prefix = 500; prefix < 520; prefix++) {
+        var text = "a".repeat(prefix) + "😀" + "b".repeat(10);
+        assertEquals('"' + text + '"', writer.toJSON(text));
+      }
+    }
+
+    @Test @Tag("Escaping")
+    public void toJSONLoneSurrogate() {
+      var writer = new JSONWriter();
+      var longText = "a".repeat(100) + "\uDC00" + "b".repeat(100) + "\uD83D";
+      assertAll(
+          () -> assertEquals("\"a\\ud800b\"", writer.toJSON("a\uD800b")),
+          () -> assertEquals("\"\\udfff\"", writer.toJSON("\uDFFF")),
+          () -> assertEquals("\"" + "a".repeat(100) + "\\udc00" + "b".repeat(100) + "\\ud83d\"", writer.toJSON(longText)),
+          () -> assertEquals("a\uD800b", JSONValue.parse(writer.toJSON(List.of("a\uD800b"))).get(0).asString()),
+          () -> assertEquals(longText, JSONValue.parse(writer.toJSON(List.of(longText))).get(0).asString())
+      );
+    }
+
+  }  // end of Escaping
+
+  @Nested
+  public class Numbers {
+    @Test @Tag("Numbers")
+    public void toJSONIntegers() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("0", writer.toJSON(0)),
+          () -> assertEquals("-7", writer.toJSON(-7)),
+          () -> assertEquals("2147483647", writer.toJSON(Integer.MAX_VALUE)),
+          () -> assertEquals("-2147483648", writer.toJSON(Integer.MIN_VALUE)),
+          () -> assertEquals("9223372036854775807", writer.toJSON(Long.MAX_VALUE)),
+          () -> assertEquals("-9223372036854775808", writer.toJSON(Long.MIN_VALUE)),
+          () -> assertEquals("1000000000000", writer.toJSON(1_000_000_000_000L)),
+          () -> assertEquals("-12", writer.toJSON((short) -12)),
+          () -> assertEquals("127", writer.toJSON((byte) 127))
+      );
+    }
+
+    @Test @Tag("Numbers")
+    public void toJSONIntegersDigits() {
+      var writer = new JSONWriter();
+      for(var value = 1L; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+        assertEquals(Long.toString(value), writer.toJSON(value));
+        assertEquals(Long.toString(-value), writer.toJSON(-value));
+      }
+    }
+
+    @Test @Tag("Numbers")
+    public void toJSONDoubles() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("0.0", writer.toJSON(0.0)),
+          () -> assertEquals("-0.0", writer.toJSON(-0.0)),
+          () -> assertEquals("0.1", writer.toJSON(0.1)),
+          () -> assertEquals("144.4", writer.toJSON(144.4)),
+          () -> assertEquals("1.0E7", writer.toJSON(1e7)),
+          () -> assertEquals("0.001", writer.toJSON(0.001)),
+          () -> assertEquals("1.0E-4", writer.toJSON(0.0001)),
+          () -> assertEquals("1.7976931348623157E308", writer.toJSON(Double.MAX_VALUE)),
+          () -> assertEquals("4.9E-324", writer.toJSON(Double.MIN_VALUE)),
+          () -> assertEquals("2.5", writer.toJSON(2.5f))
+      );
+    }
+
+    @Test @Tag("Numbers")
+    public void toJSONRandomDoubles() {
+      var writer = new JSONWriter();
+      var random = new Random(0);
+      for(var i = 0; i < 10_000; i++) {
+        var value = Double.longBitsToDouble(random.nextLong());
+        if (Double.isFinite(value)) {
+          assertEquals(value, Double.parseDouble(writer.toJSON(value)));
+        }
+      }
+    }
+
+    @Test @Tag("Numbers")
+    public void toJSONFloats() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("0.0", writer.toJSON(0.0f)),
+          () -> assertEquals("-0.0", writer.toJSON(-0.0f)),
+          () -> assertEquals("0.1", writer.toJSON(0.1f)),
+          () -> assertEquals("1.0E7", writer.toJSON(1e7f)),
+          () -> assertEquals("1.0E-4", writer.toJSON(1e-4f)),
+          () -> assertEquals("3.4028235E38", writer.toJSON(Float.MAX_VALUE)),
+          () -> assertEquals("1.4E-45", writer.toJSON(Float.MIN_VALUE)),
+          () -> assertEquals("-1.1754944E-38", writer.toJSON(-Float.MIN_NORMAL)),
+          () -> assertEquals("[1.5, -2.0E-5]", writer.toJSON(new float[] { 1.5f, -2e-5f }))
+      );
+    }
+
+    @Test @Tag("Numbers")
+    public void toJSONRandomFloats() {
+      var writer = new JSONWriter();
+      var random = new Random(0);
+      for(var i = 0; i < 100_000; i++) {
+        var value = Float.intBitsToFloat(random.nextInt());
+        assertEquals(Float.toString(value), writer.toJSON(value));
+      }
+    }
+
+    @Test @Tag("Numbers")
+    public void toJSONBigNumbers() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("12.50", writer.toJSON(new BigDecimal("12.50"))),
+          () -> assertEquals("123456789012345678901234567890", writer.toJSON(new BigInteger("123456789012345678901234567890")))
+      );
+    }
+
+    public record Measure(long timestamp, short id, byte flags, float ratio, double value) { }
+
+    @Test @Tag("Numbers")
+    public void toJSONRecordWithPrimitives() {
+      var measure = new Measure(1_625_000_000_000L, (short) 3, (byte) -1, 0.5f, 21.75);
+      var expected = """
+          {"timestamp": 1625000000000, "id": 3, "flags": -1, "ratio": 0.5, "value": 21.75}\
+          """;
+      assertAll(
+          () -> assertEquals(expected, new JSONWriter().toJSON(measure)),
+          () -> assertEquals(expected, new JSONWriter(JSONWriter.Option.CODE_GENERATION).toJSON(measure))
+      );
+    }
+
+  }  // end of Numbers
+
+  @Nested
+  public class Collections {
+    @Test @Tag("Collections")
+    public void toJSONPrimitiveArrays() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("[1, -2, 3]", writer.toJSON(new int[] { 1, -2, 3 })),
+          () -> assertEquals("[10000000000]", writer.toJSON(new long[] { 10_000_000_000L })),
+          () -> assertEquals("[1.5, 2.0]", writer.toJSON(new double[] { 1.5, 2.0 })),
+          () -> assertEquals("[0.25]", writer.toJSON(new float[] { 0.25f })),
+          () -> assertEquals("[7, 8]", writer.toJSON(new short[] { 7, 8 })),
+          () -> assertEquals("[-1]", writer.toJSON(new byte[] { -1 })),
+          () -> assertEquals("[true, false]", writer.toJSON(new boolean[] { true, false })),
+          () -> assertEquals("\"hi\"", writer.toJSON(new char[] { 'h', 'i' })),
+          () -> assertEquals("[]", writer.toJSON(new int[0]))
+      );
+    }
+
+    @Test @Tag("Collections")
+    public void toJSONObjectArray() {
+      var writer = new JSONWriter();
+      assertEquals("""
+          ["foo", 3, null, true]\
+          """, writer.toJSON(new Object[] { "foo", 3, null, true }));
+    }
+
+    @Test @Tag("Collections")
+    public void toJSONLists() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals("[1, 2, 3]", writer.toJSON(List.of(1, 2, 3))),
+          () -> assertEquals("[\"a\", \"b\"]", writer.toJSON(new LinkedList<>(List.of("a", "b")))),
+          () -> assertEquals("[]", writer.toJSON(new ArrayList<>())),
+          () -> assertEquals("[[1], [2, 3]]", writer.toJSON(List.of(List.of(1), new int[] { 2, 3 })))
+      );
+    }
+
+    @Test @Tag("Collections")
+    public void toJSONIterable() {
+      var writer = new JSONWriter();
+      Iterable<String> iterable = () -> List.of("x", "y").iterator();
+      assertAll(
+          () -> assertEquals("[\"x\", \"y\"]", writer.toJSON(iterable)),
+          () -> assertEquals("[42]", writer.toJSON(new TreeSet<>(Set.of(42))))
+      );
+    }
+
+    @Test @Tag("Collections")
+    public void toJSONMaps() {
+      var writer = new JSONWriter();
+      var map = new LinkedHashMap<Object, Object>();
+      map.put("name", "Bob");
+      map.put(2, List.of(true));
+      map.put("nested", Map.of("a", 1));
+      assertAll(
+          () -> assertEquals("""
+              {"name": "Bob", "2": [true], "nested": {"a": 1}}\
+              """, writer.toJSON(map)),
+          () -> assertEquals("{}", writer.toJSON(Map.of()))
+      );
+    }
+
+    public record Point(int x, int y) { }
+
+    @Test @Tag("Collections")
+    public void toJSONListOfRecords() {
+      var points = List.of(new Point(1, 2), new Point(3, 4));
+      var expected = """
+          [{"x": 1, "y": 2}, {"x": 3, "y": 4}]\
+          """;
+      assertAll(
+          () -> assertEquals(expected, new JSONWriter().toJSON(points)),
+          () -> assertEquals(expected, new JSONWriter(JSONWriter.Option.CODE_GENERATION).toJSON(points))
+      );
+    }
+
+    public record Polygon(String name, List<Point> points, double[] weights) { }
+
+    @Test @Tag("Collections")
+    public void toJSONRecordWithCollections() {
+      var polygon = new Polygon("line", List.of(new Point(0, 0), new Point(1, 1)), new double[] { 0.5 });
+      assertEquals("""
+          {"name": "line", "points": [{"x": 0, "y": 0}, {"x": 1, "y": 1}], "weights": [0.5]}\
+          """, new JSONWriter().toJSON(polygon));
+    }
+
+    @Test @Tag("Collections")
+    public void toJSONConfigureTakesPrecedence() {
+      var writer = new JSONWriter();
+      writer.configure(ArrayList.class, list -> "\"list of " + list.size() + "\"");
+      assertEquals("\"list of 2\"", writer.toJSON(new ArrayList<>(List.of(1, 2))));
+    }
+
+  }  // end of Collections
+
+  @Nested
+  public class Concurrency {
+    @Test @Tag("Concurrency")
+    public void configureAfterToJSON() {
+      var writer = new JSONWriter();
+      assertEquals("{}", writer.toJSON(new Object()));
+      writer.configure(Object.class, __ -> "\"object\"");
+      assertEquals("\"object\"", writer.toJSON(new Object()));
+    }
+
+    @Test @Tag("Concurrency")
+    public void configureIsPerWriter() {
+      var writer = new JSONWriter();
+      var writer2 = new JSONWriter();
+      writer.configure(LocalTime.class, __ -> "\"time\"");
+      assertAll(
+          () -> assertEquals("\"time\"", writer.toJSON(LocalTime.NOON)),
+          () -> assertEquals("{}", writer2.toJSON(new Object()))
+      );
+    }
+
+    @Test @Tag("Concurrency")
+    public void configureAndToJSONConcurrently() throws InterruptedException {
+      var writer = new JSONWriter();
+      var values = List.<Object>of(LocalTime.NOON, MonthDay.of(1, 2), Year.of(2021), YearMonth.of(2021, 6),
+          Duration.ofSeconds(3), Period.ofDays(4), Instant.EPOCH, ZoneOffset.UTC);
+      var errors = new ConcurrentLinkedQueue<Throwable>();
+      var threads = new ArrayList<Thread>();
+      for(var value: values) {
+        var thread = new Thread(() -> {
+          try {
+            var type = value.getClass();
+            configure(writer, type);
+            for(var i = 0; i < 1_000; i++) {
+              assertEquals("\"" + type.getSimpleName() + "\"", writer.toJSON(value));
+              assertEquals("[1, \"foo\"]", writer.toJSON(List.of(1, "foo")));
+            }
+          } catch (Throwable t) {
+            errors.add(t);
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      for(var thread: threads) {
+        thread.join();
+      }
+      assertEquals(List.of(), List.copyOf(errors));
+    }
+
+    private static <T> void configure(JSONWriter writer, Class<T> type) {
+      writer.configure(type, __ -> "\"" + type.getSimpleName() + "\"");
+    }
+
+  }  // end of Concurrency
+
+  @Nested
+  public class Subtypes {
+    public sealed interface Shape permits Circle, Square { }
+    public record Circle(int radius) implements Shape { }
+    public record Square(int side) implements Shape { }
+
+    @Test @Tag("Subtypes")
+    public void configureSealedInterface() {
+      var writer = new JSONWriter();
+      writer.configure(Shape.class, shape -> "\"" + shape.getClass().getSimpleName() + "\"");
+      assertEquals("""
+          ["Circle", "Square"]\
+          """, writer.toJSON(List.of(new Circle(1), new Square(2))));
+    }
+
+    @Test @Tag("Subtypes")
+    public void configureMostSpecificType() {
+      var writer = new JSONWriter();
+      writer.configure(Shape.class, __ -> "\"shape\"");
+      writer.configure(Square.class, square -> "\"square " + square.side() + "\"");
+      assertEquals("""
+          ["shape", "square 2"]\
+          """, writer.toJSON(List.of(new Circle(1), new Square(2))));
+    }
+
+    @Test @Tag("Subtypes")
+    public void configureSuperclass() {
+      var writer = new JSONWriter();
+      writer.configure(Timestamp.class, __ -> "\"timestamp\"");
+      writer.configure(java.util.Date.class, __ -> "\"date\"");
+      assertAll(
+          () -> assertEquals("\"date\"", writer.toJSON(new java.sql.Date(0))),
+          () -> assertEquals("\"timestamp\"", writer.toJSON(new Timestamp(0)))
+      );
+    }
+
+    @Test @Tag("Subtypes")
+    public void configureInterfaceBeforeObject() {
+      var writer = new JSONWriter();
+      writer.configure(Object.class, __ -> "\"object\"");
+      writer.configure(CharSequence.class, text -> "\"text " + text.length() + "\"");
+      assertAll(
+          () -> assertEquals("\"text 3\"", writer.toJSON(new StringBuilder("foo"))),
+          () -> assertEquals("\"object\"", writer.toJSON(new Circle(1)))
+      );
+    }
+
+    @Test @Tag("Subtypes")
+    public void configureSuperInterface() {
+      var writer = new JSONWriter();
+      writer.configure(Comparable.class, __ -> "\"comparable\"");
+      assertEquals("\"comparable\"", writer.toJSON(LocalTime.NOON));
+    }
+
+  }  // end of Subtypes
+
+  @Nested
+  public class OutputModes {
+    public record Point(int x, int y) { }
+    public record Empty() { }
+    public record Path(String name, List<Point> points, Map<String, Object> tags, Empty empty) { }
+
+    private static final Path PATH = new Path("p", List.of(new Point(1, 2), new Point(3, 4)),
+        Map.of("closed", true), new Empty());
+
+    @Test @Tag("OutputModes")
+    public void compact() {
+      var expected = """
+          {"name":"p","points":[{"x":1,"y":2},{"x":3,"y":4}],"tags":{"closed":true},"empty":{}}\
+          """;
+      assertAll(
+          () -> assertEquals(expected, new JSONWriter(JSONWriter.Option.COMPACT).toJSON(PATH)),
+          () -> assertEquals(expected, new JSONWriter(JSONWriter.Option.COMPACT, JSONWriter.Option.CODE_GENERATION).toJSON(PATH))
+      );
+    }
+
+    @Test @Tag("OutputModes")
+    public void prettyPrint() {
+      var expected = """
+          {
+            "name": "p",
+            "points": [
+              {
+                "x": 1,
+                "y": 2
+              },
+              {
+                "x": 3,
+                "y": 4
+              }
+            ],
+            "tags": {
+              "closed": true
+            },
+            "empty": {}
+          }\
+          """;
+      assertAll(
+          () -> assertEquals(expected, new JSONWriter(JSONWriter.Option.PRETTY_PRINT).toJSON(PATH)),
+          () -> assertEquals(expected, new JSONWriter(JSONWriter.Option.PRETTY_PRINT, JSONWriter.Option.CODE_GENERATION).toJSON(PATH))
+      );
+    }
+
+    @Test @Tag("OutputModes")
+    public void prettyPrintArrays() {
+      var writer = new JSONWriter(JSONWriter.Option.PRETTY_PRINT);
+      assertAll(
+          () -> assertEquals("[\n  1,\n  2\n]", writer.toJSON(new int[] { 1, 2 })),
+          () -> assertEquals("[]", writer.toJSON(new double[0])),
+          () -> assertEquals("[]", writer.toJSON(List.of())),
+          () -> assertEquals("{}", writer.toJSON(Map.of())),
+          () -> assertEquals("[\n  []\n]", writer.toJSON(List.of(new TreeSet<>())))
+      );
+    }
+
+    @Test @Tag("OutputModes")
+    public void standardIsUnchanged() {
+      assertEquals("""
+          {"name": "p", "points": [{"x": 1, "y": 2}, {"x": 3, "y": 4}], "tags": {"closed": true}, "empty": {}}\
+          """, new JSONWriter().toJSON(PATH));
+    }
+
+    @Test @Tag("OutputModes")
+    public void compactAndPrettyPrintAreExclusive() {
+      assertThrows(IllegalArgumentException.class,
+          () -> new JSONWriter(JSONWriter.Option.COMPACT, JSONWriter.Option.PRETTY_PRINT));
+    }
+
+  }  // end of OutputModes
+
+
+  @Nested
+  public class BinaryEncoding {
+    public record Point(int x, int y) { }
+    public record Empty() { }
+    public record Path(String name, List<Point> points, Map<String, Object> tags, Empty empty) { }
+    public record Coordinate(int abscissa, int ordinate) { }
+
+    private static final Path PATH = new Path("p", List.of(new Point(1, 2), new Point(3, 4)),
+        Map.of("closed", true), new Empty());
+
+    private static int count(byte[] data, byte[] pattern) {
+      var count = 0;
+      loop: for(var i = 0; i + pattern.length <= data.length; i++) {
+        for(var j = 0; j < pattern.length; j++) {
+          if (data[i + j] != pattern[j]) {
+            continue loop;
+          }
+        }
+        count++;
+      }
+      return count;
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryHasTheSameValuesAsTheJSONText() {
+      var writer = new JSONWriter();
+      assertAll(
+          () -> assertEquals(new JSONWriter(JSONWriter.Option.COMPACT).toJSON(PATH), BinaryParser.toJSON(writer.toBinary(PATH))),
+          () -> assertEquals("null", BinaryParser.toJSON(writer.toBinary(null))),
+          () -> assertEquals("[1,-1,31,-32,32,-33,9223372036854775807,-9223372036854775808]",
+              BinaryParser.toJSON(writer.toBinary(new long[] { 1, -1, 31, -32, 32, -33, Long.MAX_VALUE, Long.MIN_VALUE }))),
+          () -> assertEquals("[1.5,2.5,true,false]", BinaryParser.toJSON(writer.toBinary(List.of(1.5, 2.5f, true, false)))),
+          () -> assertEquals("[12345678901234567890,1.5E+400]",
+              BinaryParser.toJSON(writer.toBinary(List.of(new BigInteger("12345678901234567890"), new BigDecimal("1.5E+400")))))
+      );
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryFloats() {
+      var writer = new JSONWriter();
+      var floats = new float[] { 0.1f, -3.4028235E38f, 1.4E-45f, 1e7f, 123.456f };
+      assertEquals(new JSONWriter(JSONWriter.Option.COMPACT).toJSON(floats), BinaryParser.toJSON(writer.toBinary(floats)));
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryStrings() {
+      var writer = new JSONWriter();
+      var longText = "a\"b\\c\u00e9\u20ac\uD83D\uDE00".repeat(20);
+      assertAll(
+          () -> assertEquals("\"\"", BinaryParser.toJSON(writer.toBinary(""))),
+          () -> assertEquals("\"h\u00e9llo \u20ac\uD83D\uDE00\"", BinaryParser.toJSON(writer.toBinary("h\u00e9llo \u20ac\uD83D\uDE00"))),
+          () -> assertEquals(writer.toJSON(longText), BinaryParser.toJSON(writer.toBinary(longText)))
+      );
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryWritesEachKeyOnce() {
+      var writer = new JSONWriter();
+      var coordinates = IntStream.range(0, 100).mapToObj(i -> new Coordinate(i, -i)).toList();
+      var data = writer.toBinary(coordinates);
+      var json = new JSONWriter(JSONWriter.Option.COMPACT).toJSON(coordinates);
+      assertAll(
+          () -> assertEquals(1, count(data, "abscissa".getBytes(UTF_8))),
+          () -> assertEquals(1, count(data, "ordinate".getBytes(UTF_8))),
+          () -> assertTrue(data.length * 3 < json.length()),
+          () -> assertEquals(json, BinaryParser.toJSON(data))
+      );
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryManyKeys() {
+      var writer = new JSONWriter();
+      var map = new LinkedHashMap<String, Integer>();
+      for(var i = 0; i < 2_000; i++) {
+        map.put("key" + i, i);
+      }
+      var data = writer.toBinary(List.of(map, map));
+      assertEquals(writer.toJSON(List.of(map, map)).replace(", ", ",").replace(": ", ":"), BinaryParser.toJSON(data));
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryWithConfigure() {
+      var writer = new JSONWriter();
+      writer.configure(MonthDay.class, monthDay -> "{\"month\": " + monthDay.getMonthValue() + ", \"day\": " + monthDay.getDayOfMonth() + "}");
+      var data = writer.toBinary(List.of(MonthDay.of(3, 14), MonthDay.of(12, 25)));
+      assertEquals("[{\"month\":3,\"day\":14},{\"month\":12,\"day\":25}]", BinaryParser.toJSON(data));
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryWithConfigureAScalar() {
+      var writer = new JSONWriter();
+      writer.configure(LocalTime.class, __ -> "\"time\"");
+      writer.configure(LocalDateTime.class, time -> "\"" + time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "\"");
+      writer.configure(MonthDay.class, monthDay -> "" + monthDay.getDayOfMonth());
+      var time = LocalDateTime.of(2021, 3, 14, 15, 9, 26);
+      assertAll(
+          () -> assertEquals("\"time\"", BinaryParser.toJSON(writer.toBinary(LocalTime.NOON))),
+          () -> assertEquals("[\"2021-03-14T15:09:26\",14]", BinaryParser.toJSON(writer.toBinary(List.of(time, MonthDay.of(3, 14))))),
+          () -> assertEquals("{\"time\":\"2021-03-14T15:09:26\"}", BinaryParser.toJSON(writer.toBinary(Map.of("time", time))))
+      );
+    }
+
+    @Test @Tag("BinaryEncoding")
+    public void toBinaryOutputStream() {
+      var writer = new JSONWriter();
+      var points = IntStream.range(0, 10_000).mapToObj(i -> new Point(i, i * 1_000)).toList();
+      var outputStream = new ByteArrayOutputStream();
+      writer.toBinary(points, outputStream);
+      assertArrayEquals(writer.toBinary(points), outputStream.toByteArray());
+    }
+
+  }  // end of BinaryEncoding
 }
@@ -1,20 +1,43 @@
 package com.github.forax.framework.mapper;
 
+import com.github.forax.framework.mapper.ToyJSONParser.Cursor;
 import com.github.forax.framework.mapper.ToyJSONParser.JSONVisitor;
+import com.github.forax.framework.mapper.ToyJSONParser.KeyTable;
+import com.github.forax.framework.mapper.ToyJSONParser.KeyedVisitor;
+import com.github.forax.framework.mapper.ToyJSONParser.Kind;
+import com.github.forax.framework.mapper.ToyJSONParser.PushParser;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ToyJSONParserTest {
   private static Object asJava(String text) {
+    return asJava(visitor -> ToyJSONParser.parse(text, visitor));
+  }
+
+  private static Object asJava(Consumer<JSONVisitor> parser) {
     var visitor = new JSONVisitor() {
       private Object result;
       private final ArrayDeque<Object> stack = new ArrayDeque<>();
@@ -64,7 +87,7 @@ class ToyJSONParserTest {
         }
       }
     };
-    ToyJSONParser.parse(text, visitor);
+    parser.accept(visitor);
     return visitor.result;
   }
 
@@ -143,4 +166,685 @@ class ToyJSONParserTest {
         [ 13.4, null ]
         """));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void parseStringsWithEscapes() {
+    assertAll(
+        () -> assertEquals(List.of("a\"b"), asJava("""
+            ["a\\"b"]
+            """)),
+        () -> assertEquals(List.of("\\/\b\f\n\r\t"), asJava("""
+            ["\\\\\\/\\b\\f\\n\\r\\t"]
+            """)),
+        () -> assertEquals(List.of("\u00e9\u20ac\uD83D\uDE00"), asJava("""
+            ["\\u00e9\\u20AC\\ud83d\\ude00"]
+            """)),
+        () -> assertEquals(Map.of("\u00e9t\u00e9", "\u20ac"), asJava("""
+            { "\u00e9t\u00e9": "\u20ac" }
+            """))
+    );
+  }
+
+  @Test
+  public void parseNumbers() {
+    assertAll(
+        () -> assertEquals(List.of(-12, 0, 2147483647, -2147483648), asJava("[-12, 0, 2147483647, -2147483648]")),
+        () -> assertEquals(List.of(2147483648L, -9223372036854775808L), asJava("[2147483648, -9223372036854775808]")),
+        () -> assertEquals(List.of(1e3, -2.5e-3, 1E10, 0.5, -0.0), asJava("[1e3, -2.5e-3, 1E+10, 0.5, -0.0]")),
+        () -> assertEquals(List.of(1e300, 123456789012345678e-5, 4.9e-324), asJava("[1e300, 123456789012345678e-5, 4.9e-324]")),
+        () -> assertEquals(List.of(9.3e18), asJava("[9300000000000000000]"))
+    );
+  }
+
+  @Test
+  public void parseRandomDoubles() {
+    var random = new Random(0);
+    for(var i = 0; i < 10_000; i++) {
+      var value = switch (i % 3) {
+        case 0 -> random.nextDouble();
+        case 1 -> random.nextInt(1_000_000) / 1000.0;
+        default -> Double.longBitsToDouble(random.nextLong());
+      };
+      if (!Double.isFinite(value)) {
+        continue;
+      }
+      assertEquals(List.of(value), asJava("[" + value + "]"));
+    }
+  }
+
+  @Test
+  public void parseNewLinesAndNesting() {
+    assertEquals(Map.of("a", List.of(Map.of("b", List.of())), "c", Map.of()),
+        asJava("{\r\n\t\"a\" :[ {\"b\":[]}\n],\n\"c\":{}\r\n}"));
+  }
+
+  @Test
+  public void parseErrors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> asJava("")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("{")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[1,]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[1 2]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("{\"a\" 1}")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[nul]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[01]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[1.]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[1e]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[\"abc]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[\"\\x\"]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[\"\\u12\"]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJava("[] []"))
+    );
+  }
+
+  @Test
+  public void parseErrorMessage() {
+    var e = assertThrows(IllegalStateException.class, () -> asJava("[1 2]"));
+    assertTrue(e.getMessage().startsWith("expect COMMA but recognized INTEGER at 3"), e.getMessage());
+  }
+
+  private static final List<String> DOCUMENTS = List.of(
+      "{}",
+      "[ 1, -2, 3.5, -4e-2, 12345678901234567890, true, false, null ]",
+      """
+      {
+        "name": "\u00e9l\u00e8ve \u20ac \uD83D\uDE00",
+        "escaped": "tab\\t quote\\" unicode\\u00e9 \\uD83D\\uDE00",
+        "nested": { "array": [ [], {}, [ { "x": 1 } ] ] },
+        "long": "%s"
+      }
+      """.formatted("abc\u00e9".repeat(5_000))
+  );
+
+  /**
+   * An input stream that returns at most one byte at a time.
+   */
+  private static InputStream trickle(byte[] bytes) {
+    return trickle(bytes, 1);
+  }
+
+  /**
+   * An input stream that returns at most chunkSize bytes at a time.
+   */
+  private static InputStream trickle(byte[] bytes, int chunkSize) {
+    return new ByteArrayInputStream(bytes) {
+      @Override
+      public synchronized int read(byte[] buffer, int offset, int length) {
+        return super.read(buffer, offset, Math.min(length, chunkSize));
+      }
+    };
+  }
+
+  // each token is scanned once, not again from its start each time a chunk is read or pushed
+  private static final String LONG_TOKENS = "[\"" + "abc\u00e9".repeat(500_000) + "\", \""
+      + "\\\"\\u00e9".repeat(200_000) + "\", " + "1".repeat(10_000) + "]";
+
+  @Test
+  public void parseBytes() {
+    for(var document: DOCUMENTS) {
+      var expected = asJava(document);
+      var bytes = document.getBytes(UTF_8);
+      assertAll(
+          () -> assertEquals(expected, asJava(visitor -> ToyJSONParser.parse(bytes, visitor))),
+          () -> assertEquals(expected, asJava(visitor -> ToyJSONParser.parse(ByteBuffer.wrap(bytes), visitor))),
+          () -> assertEquals(expected, asJava(visitor -> ToyJSONParser.parse(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip(), visitor))),
+          () -> assertEquals(expected, asJava(visitor -> ToyJSONParser.parse(new ByteArrayInputStream(bytes), visitor))),
+          () -> assertEquals(expected, asJava(visitor -> ToyJSONParser.parse(trickle(bytes), visitor)))
+      );
+    }
+  }
+
+  @Test
+  public void parseInputStreamLongTokensInSmallChunks() {
+    var bytes = LONG_TOKENS.getBytes(UTF_8);
+    assertEquals(asJava(LONG_TOKENS), asJava(visitor -> ToyJSONParser.parse(trickle(bytes, 64), visitor)));
+  }
+
+  @Test
+  public void parseByteBufferSlice() {
+    var bytes = "xx[1, 2]yy".getBytes(UTF_8);
+    var buffer = ByteBuffer.wrap(bytes, 2, 6).slice();
+    assertEquals(List.of(1, 2), asJava(visitor -> ToyJSONParser.parse(buffer, visitor)));
+    assertEquals(buffer.limit(), buffer.position());
+  }
+
+  @Test
+  public void parseBytesErrors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse("[1, tru]".getBytes(UTF_8), visitor))),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(trickle("[\"abc".getBytes(UTF_8)), visitor))),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(trickle("[1".getBytes(UTF_8)), visitor))),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(trickle("[1-2]".getBytes(UTF_8)), visitor)))
+    );
+  }
+
+  @Test
+  public void parseUnicodeEscapeOnlyASCIIDigits() {
+    // full-width digits are Unicode digits but not hexadecimal digits of JSON
+    var text = "[\"\\u\uFF10\uFF10\uFF14\uFF11\"]";
+    var bytes = text.getBytes(UTF_8);
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> asJava(text)),
+        () -> assertThrows(IllegalStateException.class, () -> asJava(visitor -> ToyJSONParser.parse(bytes, visitor))),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel(text)),
+        () -> assertEquals(List.of("A\u00e9"), asJava("[\"\\u0041\\u00E9\"]")),
+        () -> assertEquals(List.of("A\u00e9"), asJava(visitor -> ToyJSONParser.parse("[\"\\u0041\\u00E9\"]".getBytes(UTF_8), visitor)))
+    );
+  }
+
+  @Test
+  public void parseBytesErrorLocation() {
+    var e = assertThrows(IllegalStateException.class,
+        () -> asJava(visitor -> ToyJSONParser.parse(trickle("[1, 2 3]".getBytes(UTF_8)), visitor)));
+    assertEquals("expect COMMA but recognized INTEGER at 6", e.getMessage());
+  }
+
+  @Test
+  public void parseInputStreamError() {
+    var input = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("boom");
+      }
+    };
+    assertThrows(UncheckedIOException.class, () -> asJava(visitor -> ToyJSONParser.parse(input, visitor)));
+  }
+
+  private static Object asJavaParallel(String text) {
+    var bytes = text.getBytes(UTF_8);
+    return asJava(visitor -> ToyJSONParser.parseParallel(bytes, visitor));
+  }
+
+  @Test
+  public void parseParallel() {
+    for(var document: DOCUMENTS) {
+      assertEquals(asJava(document), asJavaParallel(document));
+    }
+  }
+
+  @Test
+  public void parseParallelLargeDocument() {
+    var random = new Random(0);
+    var builder = new StringBuilder("[");
+    for(var i = 0; i < 20_000; i++) {
+      var value = switch (random.nextInt(4)) {
+        case 0 -> "\"" + "x\\\"\\\\\u00e9".repeat(random.nextInt(20)) + "\"";
+        case 1 -> "{\"k" + i + "\": [" + random.nextInt() + ", " + random.nextDouble() + ", null, true]}";
+        case 2 -> "\"" + "abc".repeat(random.nextInt(100)) + "\\n\"";
+        default -> "false";
+      };
+      builder.append(i == 0? "": ",\n ").append(value);
+    }
+    var document = builder.append("]").toString();
+    assertEquals(asJava(document), asJavaParallel(document));
+  }
+
+  @Test
+  public void parseParallelStringsAcrossBlocks() {
+    var blockSize = 1 << 16;
+    // an escaped quote split between two blocks
+    var quote = "[\"" + "a".repeat(blockSize - 3) + "\\\"b\"]";
+    // a string with an escape in the first block that ends two blocks later
+    var spanning = "[\"\\n" + "c".repeat(2 * blockSize) + "\", 1]";
+    // a number that starts at the beginning of a block
+    var number = "[\"" + "d".repeat(blockSize - 5) + "\", 12]";
+    assertAll(
+        () -> assertEquals(asJava(quote), asJavaParallel(quote)),
+        () -> assertEquals(asJava(spanning), asJavaParallel(spanning)),
+        () -> assertEquals(asJava(number), asJavaParallel(number))
+    );
+  }
+
+  @Test
+  public void parseParallelBlockBoundaryInsideAString() {
+    var blockSize = 1 << 16;
+    // the block boundary falls on each byte of an escape sequence or a quote of a string
+    var patterns = List.of("\\\"", "\\\\", "\\\\\\\\\\\"", "\\u0041\\\"", "\", \"", "\\\\\", \"\\\"");
+    for(var pattern: patterns) {
+      for(var shift = 0; shift <= pattern.length() + 1; shift++) {
+        var text = "[\"" + "a".repeat(blockSize - 2 - shift) + pattern + "b\", \"" + "c".repeat(blockSize) + "\\\"\", 1]";
+        assertEquals(asJava(text), asJavaParallel(text), "pattern " + pattern + " shift " + shift);
+      }
+    }
+  }
+
+  @Test
+  public void parseParallelErrors() {
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("{")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[1,]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[1 2]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[1x]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[\"a\"x]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[\"a\"\"b\"]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[nul]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[01]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[\"abc]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[\"\\x\"]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[\"\\u12\"]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[\"a\tb\"]")),
+        () -> assertThrows(IllegalStateException.class, () -> asJavaParallel("[] []"))
+    );
+  }
+
+  @Test
+  public void parseParallelErrorLocation() {
+    var e = assertThrows(IllegalStateException.class, () -> asJavaParallel("[1, 2 3]"));
+    assertEquals("expect COMMA but recognized INTEGER at 6", e.getMessage());
+  }
+
+  private static Object pushAll(byte[] bytes, int... splits) {
+    return asJava(visitor -> {
+      var parser = new PushParser(visitor);
+      var from = 0;
+      for(var split: splits) {
+        parser.feed(ByteBuffer.wrap(bytes, from, split - from));
+        from = split;
+      }
+      parser.feed(ByteBuffer.wrap(bytes, from, bytes.length - from));
+      parser.end();
+    });
+  }
+
+  @Test
+  public void pushParserAllSplits() {
+    var text = """
+        {"name": "\u00e9t\u00e9 \uD83D\uDE00", "escaped": "a\\"b\\u00e9", "values": [-12.5e3, 42, 12345678901, true, null], "o": {}}
+        """;
+    var expected = asJava(text);
+    var bytes = text.getBytes(UTF_8);
+    for(var split = 0; split <= bytes.length; split++) {
+      assertEquals(expected, pushAll(bytes, split), "split at " + split);
+    }
+  }
+
+  @Test
+  public void pushParserByteByByte() {
+    for(var document: DOCUMENTS) {
+      var bytes = document.getBytes(UTF_8);
+      var splits = new int[Math.max(0, bytes.length - 1)];
+      for(var i = 0; i < splits.length; i++) {
+        splits[i] = i + 1;
+      }
+      assertEquals(asJava(document), pushAll(bytes, splits));
+    }
+  }
+
+  private static int[] chunks(int length, int chunkSize) {
+    return IntStream.iterate(chunkSize, i -> i < length, i -> i + chunkSize).toArray();
+  }
+
+  @Test
+  public void pushParserLongTokensInSmallChunks() {
+    var bytes = LONG_TOKENS.getBytes(UTF_8);
+    assertEquals(asJava(LONG_TOKENS), pushAll(bytes, chunks(bytes.length, 64)));
+  }
+
+  @Test
+  public void pushParserCallsVisitorEarly() {
+    var events = new ArrayList<String>();
+    var parser = new PushParser(new JSONVisitor() {
+      @Override
+      public void value(String key, Object value) {
+        events.add(key + "=" + value);
+      }
+      @Override
+      public void startObject(String key) {
+        events.add("{");
+      }
+      @Override
+      public void endObject(String key) {
+        events.add("}");
+      }
+      @Override
+      public void startArray(String key) {
+        events.add("[");
+      }
+      @Override
+      public void endArray(String key) {
+        events.add("]");
+      }
+    });
+    parser.feed(ByteBuffer.wrap("{\"a\": 1, \"b\": [tr".getBytes(UTF_8)));
+    assertEquals(List.of("{", "a=1", "["), events);
+    parser.feed(ByteBuffer.wrap("ue, 3".getBytes(UTF_8)));
+    assertEquals(List.of("{", "a=1", "[", "null=true"), events);
+    parser.feed(ByteBuffer.wrap("]}".getBytes(UTF_8)));
+    assertEquals(List.of("{", "a=1", "[", "null=true", "null=3", "]", "}"), events);
+    parser.end();
+  }
+
+  @Test
+  public void pushParserErrors() {
+    var bytes = "[1, \"abc".getBytes(UTF_8);
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> pushAll(bytes, 3)),
+        () -> assertThrows(IllegalStateException.class, () -> pushAll("[1, 2".getBytes(UTF_8))),
+        () -> assertThrows(IllegalStateException.class, () -> pushAll("".getBytes(UTF_8))),
+        () -> assertThrows(IllegalStateException.class, () -> pushAll("[1] 2".getBytes(UTF_8), 2)),
+        () -> assertThrows(IllegalStateException.class, () -> {
+          var parser = new PushParser(new JSONVisitor() {
+            public void value(String key, Object value) { }
+            public void startObject(String key) { }
+            public void endObject(String key) { }
+            public void startArray(String key) { }
+            public void endArray(String key) { }
+          });
+          parser.feed(ByteBuffer.wrap("[]".getBytes(UTF_8)));
+          parser.end();
+          parser.feed(ByteBuffer.wrap(" ".getBytes(UTF_8)));
+        })
+    );
+  }
+
+  @Test
+  public void pushParserErrorLocation() {
+    var e = assertThrows(IllegalStateException.class, () -> pushAll("[1, 2 3]".getBytes(UTF_8), 2, 4, 7));
+    assertEquals("expect COMMA but recognized INTEGER at 6", e.getMessage());
+  }
+
+  @Test
+  public void parseDeeplyNested() {
+    var text = "[".repeat(100_000) + "]".repeat(100_000);
+    var result = asJava(text);
+    for(var i = 0; i < 100_000 - 1; i++) {
+      result = ((List<?>) result).get(0);
+    }
+    assertEquals(List.of(), result);
+  }
+
+  private static List<Function<String, Cursor>> cursors() {
+    return List.of(
+        ToyJSONParser::cursor,
+        text -> ToyJSONParser.cursor(text.getBytes(UTF_8)),
+        text -> ToyJSONParser.cursor(ByteBuffer.wrap(text.getBytes(UTF_8))),
+        text -> ToyJSONParser.cursor(trickle(text.getBytes(UTF_8)))
+    );
+  }
+
+  @Test
+  public void cursorTokens() {
+    var text = """
+        {"id": 42, "name": "a\\"b", "values": [1.5, true, false, null], "empty": {}}
+        """;
+    for(var factory: cursors()) {
+      var cursor = factory.apply(text);
+      var tokens = new ArrayList<Kind>();
+      Kind kind;
+      while ((kind = cursor.nextToken()) != Kind.EOF) {
+        tokens.add(kind);
+      }
+      assertEquals(List.of(
+          Kind.LEFT_CURLY,
+          Kind.KEY, Kind.INTEGER,
+          Kind.KEY, Kind.STRING,
+          Kind.KEY, Kind.LEFT_BRACKET, Kind.DOUBLE, Kind.TRUE, Kind.FALSE, Kind.NULL, Kind.RIGHT_BRACKET,
+          Kind.KEY, Kind.LEFT_CURLY, Kind.RIGHT_CURLY,
+          Kind.RIGHT_CURLY), tokens);
+      assertEquals(Kind.EOF, cursor.nextToken());
+    }
+  }
+
+  @Test
+  public void cursorGetters() {
+    for(var factory: cursors()) {
+      var cursor = factory.apply("""
+          ["\\u00e9t\\u00e9", -7, 10000000000, 2.5, true]
+          """);
+      assertEquals(Kind.LEFT_BRACKET, cursor.nextToken());
+      cursor.nextToken();
+      assertEquals("\u00e9t\u00e9", cursor.getString());
+      cursor.nextToken();
+      assertAll(
+          () -> assertEquals(-7, cursor.getInt()),
+          () -> assertEquals(-7L, cursor.getLong()),
+          () -> assertEquals(-7.0, cursor.getDouble()),
+          () -> assertThrows(IllegalStateException.class, cursor::getString)
+      );
+      cursor.nextToken();
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, cursor::getInt),
+          () -> assertEquals(10_000_000_000L, cursor.getLong())
+      );
+      cursor.nextToken();
+      assertAll(
+          () -> assertEquals(2.5, cursor.getDouble()),
+          () -> assertThrows(IllegalStateException.class, cursor::getLong)
+      );
+      cursor.nextToken();
+      assertTrue(cursor.getBoolean());
+      assertEquals(Kind.RIGHT_BRACKET, cursor.nextToken());
+    }
+  }
+
+  @Test
+  public void cursorStringRange() {
+    var text = "{\"key\": \"va\\nlue\"}";
+    for(var factory: cursors()) {
+      var cursor = factory.apply(text);
+      cursor.nextToken();
+      assertEquals(Kind.KEY, cursor.nextToken());
+      assertEquals(new Cursor.StringRange(2, 5, false), cursor.getStringRange());
+      assertEquals(Kind.STRING, cursor.nextToken());
+      assertEquals(new Cursor.StringRange(9, 16, true), cursor.getStringRange());
+    }
+  }
+
+  @Test
+  public void cursorEscapedKeys() {
+    // the keys are only decoded by getString()
+    var text = "{\"a\\u0062\": 1, \"c\\n\": {\"d\\\"\": 2}}";
+    for(var factory: cursors()) {
+      var cursor = factory.apply(text);
+      cursor.nextToken();
+      assertEquals(Kind.KEY, cursor.nextToken());
+      assertEquals(Kind.INTEGER, cursor.nextToken());
+      assertEquals(Kind.KEY, cursor.nextToken());
+      assertEquals("c\n", cursor.getString());
+      assertEquals(Kind.LEFT_CURLY, cursor.nextToken());
+      assertEquals(Kind.KEY, cursor.nextToken());
+      assertEquals("d\"", cursor.getString());
+      assertEquals(Kind.INTEGER, cursor.nextToken());
+      assertEquals(2, cursor.getInt());
+      assertEquals(Kind.RIGHT_CURLY, cursor.nextToken());
+      assertEquals(Kind.RIGHT_CURLY, cursor.nextToken());
+      assertEquals(Kind.EOF, cursor.nextToken());
+    }
+  }
+
+  @Test
+  public void cursorSkipValue() {
+    var text = """
+        {
+          "skipped": {"a": [1, 2, {"b": "}]\\"["}], "c": "\\\\"},
+          "array": [[1, [2]], "x"],
+          "id": 7,
+          "last": "z"
+        }
+        """;
+    for(var factory: cursors()) {
+      var cursor = factory.apply(text);
+      assertEquals(Kind.LEFT_CURLY, cursor.nextToken());
+      assertEquals(Kind.KEY, cursor.nextToken());
+      cursor.skipValue();
+      assertEquals(Kind.RIGHT_CURLY, cursor.currentToken());
+      assertEquals(Kind.KEY, cursor.nextToken());
+      assertEquals("array", cursor.getString());
+      assertEquals(Kind.LEFT_BRACKET, cursor.nextToken());
+      cursor.skipValue();
+      assertEquals(Kind.RIGHT_BRACKET, cursor.currentToken());
+      assertEquals(Kind.KEY, cursor.nextToken());
+      assertEquals("id", cursor.getString());
+      cursor.nextToken();
+      assertEquals(7, cursor.getInt());
+      assertEquals(Kind.KEY, cursor.nextToken());
+      cursor.skipValue();
+      assertEquals(Kind.RIGHT_CURLY, cursor.nextToken());
+      assertEquals(Kind.EOF, cursor.nextToken());
+    }
+  }
+
+  @Test
+  public void cursorSkipLargeValue() {
+    var text = "[" + "{\"a\": [\"x\", 1], \"b\": \"\\\"]\"}, ".repeat(10_000) + "{}], 3]";
+    var cursor = ToyJSONParser.cursor(trickle(("[" + text).getBytes(UTF_8)));
+    assertEquals(Kind.LEFT_BRACKET, cursor.nextToken());
+    assertEquals(Kind.LEFT_BRACKET, cursor.nextToken());
+    cursor.skipValue();
+    assertEquals(Kind.INTEGER, cursor.nextToken());
+    assertEquals(3, cursor.getInt());
+  }
+
+  @Test
+  public void cursorErrors() {
+    for(var factory: cursors()) {
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, () -> {
+            var cursor = factory.apply("[1 2]");
+            cursor.nextToken();
+            cursor.nextToken();
+            cursor.nextToken();
+          }),
+          () -> assertThrows(IllegalStateException.class, () -> {
+            var cursor = factory.apply("{\"a\": [1, 2}}");
+            cursor.nextToken();
+            cursor.nextToken();
+            cursor.nextToken();
+            cursor.skipValue();
+          }),
+          () -> assertThrows(IllegalStateException.class, () -> {
+            var cursor = factory.apply("[[1, 2]");
+            cursor.nextToken();
+            cursor.nextToken();
+            cursor.skipValue();
+            cursor.nextToken();
+          })
+      );
+    }
+  }
+
+  private static List<String> keys(KeyTable table, Consumer<JSONVisitor> parser) {
+    var keys = new ArrayList<String>();
+    parser.accept(new KeyedVisitor() {
+      @Override
+      public KeyTable keyTable() {
+        return table;
+      }
+
+      @Override
+      public void value(String key, Object value) {
+        keys.add(key);
+      }
+
+      @Override
+      public void startObject(String key) {}
+      @Override
+      public void endObject(String key) {}
+      @Override
+      public void startArray(String key) {}
+      @Override
+      public void endArray(String key) {}
+    });
+    return keys;
+  }
+
+  @Test
+  public void keyTableSlots() {
+    var table = new KeyTable(List.of("name", "age", "address"));
+    assertAll(
+        () -> assertEquals(0, table.slot("name")),
+        () -> assertEquals(1, table.slot("age")),
+        () -> assertEquals(2, table.slot("address")),
+        () -> assertEquals(-1, table.slot("phone")),
+        () -> assertThrows(IllegalArgumentException.class, () -> new KeyTable(List.of("name", "name")))
+    );
+  }
+
+  @Test
+  public void keyedVisitorKnownKeys() {
+    var name = new String("name");
+    var age = new String("age");
+    var table = new KeyTable(List.of(name, age));
+    var text = """
+        { "name": "Bob", "age": 23 }
+        """;
+    var bytes = text.getBytes(UTF_8);
+    for(var keys: List.of(
+        keys(table, visitor -> ToyJSONParser.parse(text, visitor)),
+        keys(table, visitor -> ToyJSONParser.parse(bytes, visitor)),
+        keys(table, visitor -> ToyJSONParser.parse(new ByteArrayInputStream(bytes), visitor)))) {
+      assertAll(
+          () -> assertSame(name, keys.get(0)),
+          () -> assertSame(age, keys.get(1))
+      );
+    }
+  }
+
+  @Test
+  public void keyedVisitorUnknownKeys() {
+    var table = new KeyTable(List.of("name", "caf\u00e9"));
+    var text = """
+        { "na\\u006de": 1, "caf\u00e9": 2, "phone": 3, "nam": 4 }
+        """;
+    for(var keys: List.of(
+        keys(table, visitor -> ToyJSONParser.parse(text, visitor)),
+        keys(table, visitor -> ToyJSONParser.parse(text.getBytes(UTF_8), visitor)))) {
+      assertEquals(List.of("name", "caf\u00e9", "phone", "nam"), keys);
+    }
+  }
+
+  @Test
+  public void keyedVisitorNoKeyTable() {
+    var keys = keys(null, visitor -> ToyJSONParser.parse("{\"a\": 1}", visitor));
+    assertNotSame("a", keys.get(0));
+    assertEquals(List.of("a"), keys);
+  }
+
+  private static List<String> rawValues(Consumer<JSONVisitor> parser) {
+    var values = new ArrayList<String>();
+    parser.accept(new KeyedVisitor() {
+      @Override
+      public KeyTable keyTable() {
+        return null;
+      }
+
+      @Override
+      public boolean rawValue(String key) {
+        return "raw".equals(key);
+      }
+
+      @Override
+      public void value(String key, Object value) {
+        if (key.equals("raw")) {
+          values.add(value.toString());
+        }
+      }
+
+      @Override
+      public void startObject(String key) {}
+      @Override
+      public void endObject(String key) {}
+      @Override
+      public void startArray(String key) {}
+      @Override
+      public void endArray(String key) {}
+    });
+    return values;
+  }
+
+  @Test
+  public void keyedVisitorRawValues() {
+    var text = """
+        { "a": 1, "raw": { "b": [1, "]"], "c": "\u00e9" }, "d": { "raw": 3.5 }, "raw": "x\\ny" }
+        """;
+    var bytes = text.getBytes(UTF_8);
+    var expected = List.of("{ \"b\": [1, \"]\"], \"c\": \"\u00e9\" }", "3.5", "\"x\\ny\"");
+    assertAll(
+        () -> assertEquals(expected, rawValues(visitor -> ToyJSONParser.parse(text, visitor))),
+        () -> assertEquals(expected, rawValues(visitor -> ToyJSONParser.parse(bytes, visitor))),
+        () -> assertEquals(expected, rawValues(visitor -> ToyJSONParser.parse(trickle(bytes), visitor))),
+        () -> assertEquals(expected, rawValues(visitor -> ToyJSONParser.parseParallel(bytes, visitor)))
+    );
+  }
+}